@@ -0,0 +1,101 @@
+package com.ff.benchmark;
+
+import com.ff.model.RpcRequest;
+import com.ff.protocol.ProtocolConstant;
+import com.ff.protocol.ProtocolMessage;
+import com.ff.protocol.ProtocolMessageDecoder;
+import com.ff.protocol.ProtocolMessageEncoder;
+import com.ff.protocol.ProtocolMessageTypeEnum;
+import com.ff.serializer.Serializer;
+import com.ff.serializer.SerializerFactory;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编解码路径的分配量（配合 gc profiler 的 gc.alloc.rate.norm 查看）
+ * legacy：先序列化为 byte[] 再拷贝进 Buffer / 先从 Buffer 拷贝出 byte[] 再反序列化；
+ * stream：直接在 Buffer 上流式序列化、在入站 Buffer 的切片上反序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecAllocationBenchmark {
+
+    @Param({"kryo", "hessian", "jdk"})
+    private String serializer;
+
+    @Param({"MEDIUM"})
+    private Payloads.Size size;
+
+    private Serializer instance;
+
+    private ProtocolMessage<RpcRequest> message;
+
+    private Buffer frame;
+
+    @Setup
+    public void setup() {
+        Payloads.init(serializer);
+        instance = SerializerFactory.getInstance(serializer);
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION_1);
+        header.setSerializer(Payloads.serializerKey(serializer));
+        header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+        header.setRequestId(1);
+        message = new ProtocolMessage<>(header, Payloads.request(size));
+        frame = ProtocolMessageEncoder.encode(message);
+    }
+
+    // 旧路径：序列化为 byte[]，再拷贝进 Buffer
+    @Benchmark
+    public Buffer legacyEncode() throws IOException {
+        ProtocolMessage.Header header = message.getHeader();
+        Buffer buffer = Buffer.buffer();
+        buffer.appendByte(header.getMagic());
+        buffer.appendByte(header.getVersion());
+        buffer.appendByte(header.getSerializer());
+        buffer.appendByte(header.getType());
+        buffer.appendByte(header.getStatus());
+        buffer.appendLong(header.getRequestId());
+        byte[] bodyBytes = instance.serialize(message.getBody());
+        buffer.appendInt(bodyBytes.length);
+        buffer.appendBytes(bodyBytes);
+        return buffer;
+    }
+
+    @Benchmark
+    public Buffer streamEncode() {
+        return ProtocolMessageEncoder.encode(message);
+    }
+
+    // 旧路径：从 Buffer 拷贝出 byte[]，再反序列化
+    @Benchmark
+    public RpcRequest legacyDecode() throws IOException {
+        int bodyLength = frame.getInt(13);
+        byte[] bodyBytes = frame.getBytes(ProtocolConstant.MESSAGE_HEADER_LENGTH,
+                ProtocolConstant.MESSAGE_HEADER_LENGTH + bodyLength);
+        return instance.deserialize(bodyBytes, RpcRequest.class);
+    }
+
+    @Benchmark
+    public ProtocolMessage<?> streamDecode() throws IOException {
+        return ProtocolMessageDecoder.decode(frame);
+    }
+}
@@ -0,0 +1,80 @@
+package com.ff.benchmark;
+
+import com.ff.model.RpcRequest;
+import com.ff.protocol.ProtocolConstant;
+import com.ff.protocol.ProtocolMessage;
+import com.ff.protocol.ProtocolMessageDecoder;
+import com.ff.protocol.ProtocolMessageEncoder;
+import com.ff.protocol.ProtocolMessageTypeEnum;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协议编解码（帧头 + v2 扩展区 + 消息体）的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"jdk", "json", "kryo", "hessian"})
+    private String serializer;
+
+    @Param({"MEDIUM"})
+    private Payloads.Size size;
+
+    @Param({"false", "true"})
+    private boolean compressed;
+
+    private ProtocolMessage<RpcRequest> message;
+
+    private Buffer frame;
+
+    @Setup
+    public void setup() {
+        Payloads.init(serializer);
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION_2);
+        header.setSerializer(Payloads.serializerKey(serializer));
+        header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+        header.setRequestId(1);
+        header.setDeadline(5000);
+        if (compressed) {
+            header.addFlag(ProtocolConstant.FLAG_COMPRESSED);
+        }
+        message = new ProtocolMessage<>(header, Payloads.request(size));
+        frame = ProtocolMessageEncoder.encode(message);
+    }
+
+    @Benchmark
+    public Buffer encode() {
+        return ProtocolMessageEncoder.encode(message);
+    }
+
+    @Benchmark
+    public ProtocolMessage<?> decode() throws IOException {
+        return ProtocolMessageDecoder.decode(frame);
+    }
+
+    @Benchmark
+    public ProtocolMessage<?> roundTrip() throws IOException {
+        return ProtocolMessageDecoder.decode(ProtocolMessageEncoder.encode(message));
+    }
+}
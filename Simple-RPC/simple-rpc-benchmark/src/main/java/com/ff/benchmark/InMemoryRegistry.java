@@ -0,0 +1,66 @@
+package com.ff.benchmark;
+
+import com.ff.config.RegistryConfig;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.registry.Registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存注册中心，基准测试不依赖外部的 etcd
+ * 通过自定义 SPI 注册，key 为 memory
+ * 与 etcd 注册中心的本地缓存一样，节点变化时替换整个列表而不是原地修改，负载均衡器据此判断节点列表是否变化
+ */
+public class InMemoryRegistry implements Registry {
+
+    public static final String KEY = "memory";
+
+    private final Map<String, List<ServiceMetaInfo>> services = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(RegistryConfig registryConfig) {
+    }
+
+    @Override
+    public void registry(ServiceMetaInfo serviceMetaInfo) {
+        // 与 etcd 的 put 一致，同一节点重复注册时覆盖
+        services.compute(serviceMetaInfo.getServiceKey(), (key, serviceMetaInfos) -> {
+            List<ServiceMetaInfo> updated = new ArrayList<>();
+            if (serviceMetaInfos != null) {
+                serviceMetaInfos.stream()
+                        .filter(info -> !info.getServiceNodeKey().equals(serviceMetaInfo.getServiceNodeKey()))
+                        .forEach(updated::add);
+            }
+            updated.add(serviceMetaInfo);
+            return List.copyOf(updated);
+        });
+    }
+
+    @Override
+    public List<ServiceMetaInfo> getServices(String serviceKey) {
+        return services.getOrDefault(serviceKey, List.of());
+    }
+
+    @Override
+    public void unRegistry(ServiceMetaInfo serviceMetaInfo) {
+        services.computeIfPresent(serviceMetaInfo.getServiceKey(), (key, serviceMetaInfos) -> serviceMetaInfos.stream()
+                .filter(info -> !info.getServiceNodeKey().equals(serviceMetaInfo.getServiceNodeKey()))
+                .toList());
+    }
+
+    @Override
+    public void destroy() {
+        services.clear();
+    }
+
+    @Override
+    public void heartbeat() {
+    }
+
+    @Override
+    public void watch(String serviceNodeKey) {
+    }
+}
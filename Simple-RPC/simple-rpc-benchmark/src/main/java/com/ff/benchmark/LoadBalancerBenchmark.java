@@ -0,0 +1,70 @@
+package com.ff.benchmark;
+
+import com.ff.loadbalancer.LoadBalancer;
+import com.ff.loadbalancer.LoadBalancerFactory;
+import com.ff.model.ServiceMetaInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各负载均衡器在不同服务提供者个数下 select 的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    @Param({"roundRobin", "random", "consistentHash", "p2cEwma", "weightedRoundRobin"})
+    private String loadBalancer;
+
+    @Param({"3", "16", "64"})
+    private int providers;
+
+    private LoadBalancer instance;
+
+    private List<ServiceMetaInfo> services;
+
+    private Map<String, Object> requestParams;
+
+    @Setup
+    public void setup() {
+        // 一致性哈希从全局配置读取哈希参数下标，先用内存注册中心初始化，避免连接 etcd
+        Payloads.init("kryo");
+        instance = LoadBalancerFactory.getInstance(loadBalancer);
+        services = new ArrayList<>(providers);
+        for (int i = 0; i < providers; i++) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName(Payloads.EchoService.class.getName());
+            serviceMetaInfo.setServiceHost("10.0." + (i / 250) + "." + (i % 250 + 1));
+            serviceMetaInfo.setServicePort(8080);
+            services.add(serviceMetaInfo);
+        }
+        requestParams = new HashMap<>();
+        requestParams.put("methodName", "echo");
+        requestParams.put("services", services);
+        requestParams.put("request", Payloads.request(Payloads.Size.SMALL));
+    }
+
+    @Benchmark
+    public ServiceMetaInfo select() {
+        return instance.select(requestParams, services);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ff.benchmark;
+
+import com.ff.RpcApplication;
+import com.ff.common.model.User;
+import com.ff.config.RpcConfig;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.protocol.ProtocolMessageSerializerEnum;
+import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基准测试共用的服务接口、负载和框架初始化
+ */
+public final class Payloads {
+
+    /**
+     * 负载大小：参数和返回值都是 size 个 User 组成的列表
+     */
+    public enum Size {
+        SMALL(1),
+        MEDIUM(32),
+        LARGE(1024);
+
+        private final int users;
+
+        Size(int users) {
+            this.users = users;
+        }
+    }
+
+    public interface EchoService {
+        List<User> echo(List<User> users);
+
+        CompletableFuture<List<User>> echoAsync(List<User> users);
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+        @Override
+        public List<User> echo(List<User> users) {
+            return users;
+        }
+
+        @Override
+        public CompletableFuture<List<User>> echoAsync(List<User> users) {
+            return CompletableFuture.completedFuture(users);
+        }
+    }
+
+    private static final Class<?>[] ECHO_PARAMETER_TYPES = {List.class};
+
+    private Payloads() {
+    }
+
+    /**
+     * 使用内存注册中心初始化框架，并在本地注册 EchoService
+     * 每个 JMH fork 是独立的 JVM，同一 fork 内的参数组合共享同一份全局配置
+     */
+    public static synchronized RpcConfig init(String serializer) {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.setSerializer(serializer);
+        rpcConfig.getRegistryConfig().setRegistry(InMemoryRegistry.KEY);
+        RpcApplication.init(rpcConfig);
+        if (LocalRegistry.getInvoker(EchoService.class.getName(), "echo", ECHO_PARAMETER_TYPES) == null) {
+            LocalRegistry.register(EchoService.class.getName(), EchoServiceImpl.class);
+        }
+        return rpcConfig;
+    }
+
+    public static List<User> users(Size size) {
+        List<User> users = new ArrayList<>(size.users);
+        for (int i = 0; i < size.users; i++) {
+            User user = new User();
+            user.setUserName("user-" + i);
+            user.setAge(i % 100);
+            users.add(user);
+        }
+        return users;
+    }
+
+    public static RpcRequest request(Size size) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(EchoService.class.getName());
+        request.setMethodName("echo");
+        request.setParameterTypes(ECHO_PARAMETER_TYPES);
+        request.setParameters(new Object[]{users(size)});
+        return request;
+    }
+
+    public static RpcResponse response(Size size) {
+        MethodInvoker invoker = LocalRegistry.getInvoker(EchoService.class.getName(), "echo", ECHO_PARAMETER_TYPES);
+        RpcResponse response = new RpcResponse();
+        response.setResult(users(size));
+        response.setResultType(invoker.getResultType());
+        response.setMessage("success");
+        return response;
+    }
+
+    public static byte serializerKey(String serializer) {
+        return (byte) ProtocolMessageSerializerEnum.getEnumByValue(serializer).getKey();
+    }
+}
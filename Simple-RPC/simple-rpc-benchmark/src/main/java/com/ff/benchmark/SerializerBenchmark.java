@@ -0,0 +1,78 @@
+package com.ff.benchmark;
+
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.serializer.Serializer;
+import com.ff.serializer.SerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各序列化器在不同负载大小下序列化、反序列化请求和响应的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"jdk", "json", "kryo", "hessian"})
+    private String serializer;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private Payloads.Size size;
+
+    private Serializer instance;
+
+    private RpcRequest request;
+
+    private RpcResponse response;
+
+    private byte[] requestBytes;
+
+    private byte[] responseBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        Payloads.init(serializer);
+        instance = SerializerFactory.getInstance(serializer);
+        request = Payloads.request(size);
+        response = Payloads.response(size);
+        requestBytes = instance.serialize(request);
+        responseBytes = instance.serialize(response);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws IOException {
+        return instance.serialize(request);
+    }
+
+    @Benchmark
+    public RpcRequest deserializeRequest() throws IOException {
+        return instance.deserialize(requestBytes, RpcRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return instance.serialize(response);
+    }
+
+    @Benchmark
+    public RpcResponse deserializeResponse() throws IOException {
+        return instance.deserialize(responseBytes, RpcResponse.class);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ff.benchmark;
+
+import com.ff.common.model.User;
+import com.ff.config.RpcConfig;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.proxy.ServiceProxyFactory;
+import com.ff.registry.RegistryFactory;
+import com.ff.server.tcp.VertxTcpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 ServiceProxy 发起一次完整调用的开销：服务发现、负载均衡、编解码、回环地址上的 TCP 往返、服务端执行
+ * 服务端和客户端在同一个 JVM 内，服务地址注册在内存注册中心
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceProxyBenchmark {
+
+    @Param({"jdk", "json", "kryo", "hessian"})
+    private String serializer;
+
+    @Param({"SMALL"})
+    private Payloads.Size size;
+
+    private Payloads.EchoService echoService;
+
+    private List<User> users;
+
+    @Setup
+    public void setup() throws Exception {
+        RpcConfig rpcConfig = Payloads.init(serializer);
+        int port = freePort();
+        new VertxTcpServer().start(port);
+
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName(Payloads.EchoService.class.getName());
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(port);
+        RegistryFactory.getInstance(rpcConfig.getRegistryConfig().getRegistry()).registry(serviceMetaInfo);
+
+        echoService = ServiceProxyFactory.getProxy(Payloads.EchoService.class);
+        users = Payloads.users(size);
+        awaitServer();
+    }
+
+    @Benchmark
+    public List<User> syncCall() {
+        return echoService.echo(users);
+    }
+
+    @Benchmark
+    public List<User> asyncCall() {
+        return echoService.echoAsync(users).join();
+    }
+
+    // 服务端异步启动，第一次调用成功之前一直重试
+    private void awaitServer() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                echoService.echo(users);
+                return;
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
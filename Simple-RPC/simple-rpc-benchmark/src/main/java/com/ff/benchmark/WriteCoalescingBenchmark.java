@@ -0,0 +1,149 @@
+package com.ff.benchmark;
+
+import com.ff.config.ConnectionPoolConfig;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.protocol.ProtocolConstant;
+import com.ff.protocol.ProtocolMessage;
+import com.ff.protocol.ProtocolMessageEncoder;
+import com.ff.protocol.ProtocolMessageSerializerEnum;
+import com.ff.protocol.ProtocolMessageStatusEnum;
+import com.ff.protocol.ProtocolMessageTypeEnum;
+import com.ff.server.tcp.RpcResponseFuture;
+import com.ff.server.tcp.TcpBufferHandlerWrapper;
+import com.ff.server.tcp.TcpConnection;
+import com.ff.server.tcp.TcpConnectionPool;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客户端合并写的吞吐量
+ * 服务端是一个只回固定响应帧的 TCP 服务，排除业务与服务端序列化的影响；
+ * 调用方在收到响应后立即发起下一次请求（闭环），所有调用方共用一条连接，在途请求数等于线程数。
+ * 每轮结束时输出每次 socket 写平均携带的请求数和服务端的读事件次数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class WriteCoalescingBenchmark {
+
+    private static final int PORT = 18090;
+
+    @Param({"false", "true"})
+    private boolean coalescing;
+
+    private final AtomicLong serverReads = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private Vertx vertx;
+
+    private NetServer server;
+
+    private TcpConnectionPool pool;
+
+    private TcpConnection connection;
+
+    private RpcRequest rpcRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        server = startServer();
+        ConnectionPoolConfig config = new ConnectionPoolConfig();
+        config.setMaxConnectionsPerEndpoint(1);
+        config.setWriteCoalescing(coalescing);
+        pool = new TcpConnectionPool(vertx, config);
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(PORT);
+        connection = pool.acquire(serviceMetaInfo).get(5, TimeUnit.SECONDS);
+
+        rpcRequest = new RpcRequest();
+        rpcRequest.setServiceName("com.ff.benchmark.EchoService");
+        rpcRequest.setMethodName("echo");
+        rpcRequest.setParameterTypes(new Class[]{String.class});
+        rpcRequest.setParameters(new Object[]{"hello"});
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        long clientWrites = coalescing ? connection.getSocketWriteCount() : requests.get();
+        System.out.printf("coalescing=%s  requests=%,d  clientWrites=%,d (%.2f req/write)  serverReads=%,d%n",
+                coalescing, requests.get(), clientWrites, (double) requests.get() / Math.max(1, clientWrites),
+                serverReads.get());
+        pool.close();
+        server.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Object call() {
+        ProtocolMessage<RpcRequest> requestMessage = new ProtocolMessage<>();
+        requestMessage.setHeader(newHeader(ProtocolMessageTypeEnum.REQUEST));
+        requestMessage.setBody(rpcRequest);
+        RpcResponseFuture future = new RpcResponseFuture();
+        connection.send(requestMessage, future);
+        Object response = future.join();
+        requests.incrementAndGet();
+        return response;
+    }
+
+    private NetServer startServer() throws Exception {
+        // 预先编码好的响应帧，每次只替换 requestId
+        ProtocolMessage<RpcResponse> responseMessage = new ProtocolMessage<>();
+        ProtocolMessage.Header header = newHeader(ProtocolMessageTypeEnum.RESPONSE);
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getStatus());
+        responseMessage.setHeader(header);
+        RpcResponse rpcResponse = new RpcResponse();
+        rpcResponse.setResult("ok");
+        responseMessage.setBody(rpcResponse);
+        Buffer responseTemplate = ProtocolMessageEncoder.encode(responseMessage);
+
+        NetServer netServer = vertx.createNetServer();
+        netServer.connectHandler(socket -> {
+            TcpBufferHandlerWrapper frameHandler = new TcpBufferHandlerWrapper(frame -> {
+                Buffer response = responseTemplate.copy();
+                response.setLong(5, frame.getLong(5));
+                socket.write(response);
+            });
+            socket.handler(buffer -> {
+                serverReads.incrementAndGet();
+                frameHandler.handle(buffer);
+            });
+        });
+        netServer.listen(PORT).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        return netServer;
+    }
+
+    private static ProtocolMessage.Header newHeader(ProtocolMessageTypeEnum type) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.KRYO.getKey());
+        header.setType((byte) type.getType());
+        return header;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ff.benchmark.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * 一个消费者在测量阶段的结果，多个消费者的结果可以合并
+ * 延迟单位为纳秒：corrected 从预定发送时间开始计算（修正协调遗漏），uncorrected 从实际发送时间开始计算
+ */
+public class LoadResult {
+
+    // 独立 JVM 中的消费者在标准输出中以该前缀输出结果
+    static final String OUTPUT_PREFIX = "LOADTEST-RESULT ";
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    long succeeded;
+
+    long failed;
+
+    // 测量阶段时长（纳秒），合并时取最大值
+    long elapsedNanos;
+
+    final Histogram corrected;
+
+    final Histogram uncorrected;
+
+    LoadResult() {
+        this(new Histogram(SIGNIFICANT_DIGITS), new Histogram(SIGNIFICANT_DIGITS));
+    }
+
+    LoadResult(Histogram corrected, Histogram uncorrected) {
+        this.corrected = corrected;
+        this.uncorrected = uncorrected;
+    }
+
+    void merge(LoadResult other) {
+        succeeded += other.succeeded;
+        failed += other.failed;
+        elapsedNanos = Math.max(elapsedNanos, other.elapsedNanos);
+        corrected.add(other.corrected);
+        uncorrected.add(other.uncorrected);
+    }
+
+    double throughput() {
+        return elapsedNanos == 0 ? 0 : succeeded * 1e9 / elapsedNanos;
+    }
+
+    double errorRate() {
+        long total = succeeded + failed;
+        return total == 0 ? 0 : failed * 100.0 / total;
+    }
+
+    /**
+     * 编码为一行文本，用于独立 JVM 中的消费者把结果传回协调进程
+     */
+    String encode() {
+        return OUTPUT_PREFIX + succeeded + " " + failed + " " + elapsedNanos + " "
+                + encodeHistogram(corrected) + " " + encodeHistogram(uncorrected);
+    }
+
+    static LoadResult decode(String line) {
+        String[] parts = line.substring(OUTPUT_PREFIX.length()).trim().split(" ");
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("压测结果格式错误: " + line);
+        }
+        LoadResult result = new LoadResult(decodeHistogram(parts[3]), decodeHistogram(parts[4]));
+        result.succeeded = Long.parseLong(parts[0]);
+        result.failed = Long.parseLong(parts[1]);
+        result.elapsedNanos = Long.parseLong(parts[2]);
+        return result;
+    }
+
+    static String header() {
+        return String.format("%-36s %-8s %12s %9s %9s %9s %9s %12s %8s",
+                "serializer/transport/loadBalancer", "mode", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)",
+                "p99 raw(ms)", "errors");
+    }
+
+    String format(LoadTestOptions.Combination combination, String mode) {
+        return String.format("%-36s %-8s %12.1f %9.3f %9.3f %9.3f %9.3f %12.3f %7.2f%%",
+                combination, mode, throughput(),
+                millis(corrected.getValueAtPercentile(50)),
+                millis(corrected.getValueAtPercentile(99)),
+                millis(corrected.getValueAtPercentile(99.9)),
+                millis(corrected.getMaxValue()),
+                millis(uncorrected.getValueAtPercentile(99)),
+                errorRate());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String encodeHistogram(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    private static Histogram decodeHistogram(String value) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(value)), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("压测结果中的直方图无法解码", e);
+        }
+    }
+}
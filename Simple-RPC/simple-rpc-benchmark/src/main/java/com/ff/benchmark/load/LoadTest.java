@@ -0,0 +1,168 @@
+package com.ff.benchmark.load;
+
+import com.ff.RpcApplication;
+import com.ff.config.RpcConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 端到端压测：在回环地址上启动 N 个服务提供者和 M 个消费者，服务地址注册在内存注册中心，
+ * 对每个 序列化器 × 传输方式 × 负载均衡器 的组合输出吞吐量、修正协调遗漏后的 p50/p99/p999 延迟和错误率
+ * <p>
+ * 提供者和消费者可以在当前 JVM 中运行，也可以通过 --fork 在独立的 JVM 中运行。
+ * 进程内的消费者共享同一个连接池，要模拟多个客户端时请使用 --fork=consumers
+ * <pre>
+ * java -cp simple-rpc-benchmark/target/benchmarks.jar com.ff.benchmark.load.LoadTest \
+ *     --mode=open --rate=20000 --providers=2 --consumers=2 --fork=consumers \
+ *     --serializers=kryo,hessian --transports=coalesced,direct --loadBalancers=roundRobin,random
+ * </pre>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        List<LoadTestOptions.Combination> combinations = options.combinations();
+        List<Process> processes = new ArrayList<>();
+        try {
+            List<Integer> ports = new ArrayList<>(options.providers);
+            for (int i = 0; i < options.providers; i++) {
+                ports.add(freePort());
+            }
+            options.providerPorts = ports;
+
+            // 进程内的提供者启动时读取全局配置中的执行模型
+            RpcApplication.init(options.toRpcConfig(combinations.get(0)));
+            for (Integer port : ports) {
+                if (options.forkProviders()) {
+                    processes.add(fork(LoadTestProvider.class,
+                            List.of("--port=" + port, "--execution=" + options.execution, "--metrics=" + options.metrics),
+                            ProcessBuilder.Redirect.DISCARD));
+                } else {
+                    LoadTestProvider.start(port);
+                }
+            }
+            awaitPorts(ports);
+
+            System.out.printf("providers=%d consumers=%d fork=%s mode=%s rate=%s warmup=%ds duration=%ds%n",
+                    options.providers, options.consumers, options.fork, options.mode,
+                    options.rate > 0 ? options.rate + "/s" : "unlimited(concurrency=" + options.concurrency + ")",
+                    options.warmup, options.duration);
+            System.out.println(LoadResult.header());
+            for (LoadTestOptions.Combination combination : combinations) {
+                LoadResult result = options.forkConsumers()
+                        ? runForkedConsumers(options, combination, processes)
+                        : runConsumers(options, combination);
+                System.out.println(result.format(combination, options.mode));
+            }
+            if (!options.openLoop() && options.rate <= 0) {
+                System.out.println("注：闭环且未指定 --rate 时没有预定发送时间，无法修正协调遗漏，p50/p99/p999 与未修正的延迟相同");
+            }
+        } finally {
+            processes.forEach(Process::destroy);
+        }
+        System.exit(0);
+    }
+
+    private static LoadResult runConsumers(LoadTestOptions options, LoadTestOptions.Combination combination)
+            throws Exception {
+        RpcConfig rpcConfig = options.toRpcConfig(combination);
+        RpcApplication.init(rpcConfig);
+        LoadTestConsumer.registerProviders(rpcConfig, options.providerPorts);
+        ExecutorService executor = Executors.newFixedThreadPool(options.consumers);
+        try {
+            List<Future<LoadResult>> futures = new ArrayList<>(options.consumers);
+            for (int i = 0; i < options.consumers; i++) {
+                int consumerRate = options.consumerRate(i);
+                futures.add(executor.submit(() -> new LoadTestConsumer(options, consumerRate).run()));
+            }
+            LoadResult result = new LoadResult();
+            for (Future<LoadResult> future : futures) {
+                result.merge(future.get());
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static LoadResult runForkedConsumers(LoadTestOptions options, LoadTestOptions.Combination combination,
+                                                 List<Process> processes) throws IOException, InterruptedException {
+        List<Process> consumers = new ArrayList<>(options.consumers);
+        for (int i = 0; i < options.consumers; i++) {
+            Process process = fork(LoadTestConsumer.class, options.toConsumerArgs(combination, options.consumerRate(i)),
+                    ProcessBuilder.Redirect.PIPE);
+            processes.add(process);
+            consumers.add(process);
+        }
+        LoadResult result = new LoadResult();
+        for (Process consumer : consumers) {
+            LoadResult consumerResult = null;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(consumer.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(LoadResult.OUTPUT_PREFIX)) {
+                        consumerResult = LoadResult.decode(line);
+                    }
+                }
+            }
+            consumer.waitFor();
+            processes.remove(consumer);
+            if (consumerResult == null) {
+                throw new RuntimeException("消费者进程没有输出压测结果，退出码: " + consumer.exitValue());
+            }
+            result.merge(consumerResult);
+        }
+        return result;
+    }
+
+    // 使用当前 JVM 的 java 命令和 classpath 启动子进程，子进程的日志输出到当前进程的标准错误
+    private static Process fork(Class<?> mainClass, List<String> args, ProcessBuilder.Redirect output)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(args);
+        return new ProcessBuilder(command)
+                .redirectOutput(output)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    // 服务端异步启动，等待所有端口可以连接
+    private static void awaitPorts(List<Integer> ports) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        for (Integer port : ports) {
+            while (true) {
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress("localhost", port), 1000);
+                    break;
+                } catch (IOException e) {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new RuntimeException("服务提供者启动超时，端口: " + port, e);
+                    }
+                    Thread.sleep(100);
+                }
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
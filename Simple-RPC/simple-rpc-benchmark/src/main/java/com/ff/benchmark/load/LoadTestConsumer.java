@@ -0,0 +1,209 @@
+package com.ff.benchmark.load;
+
+import com.ff.RpcApplication;
+import com.ff.common.model.User;
+import com.ff.common.service.UserService;
+import com.ff.config.RpcConfig;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.proxy.AsyncServiceStub;
+import com.ff.proxy.ServiceProxyFactory;
+import com.ff.registry.Registry;
+import com.ff.registry.RegistryFactory;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测的消费者：通过异步代理调用 UserService#getUser，先预热再测量
+ * <p>
+ * 开环模式按固定速率在预定时间发送请求，不等待响应；闭环模式由 concurrency 个虚拟线程各自同步调用，
+ * 指定速率时每个虚拟线程按速率节奏发送。两种模式下的 corrected 延迟都从预定发送时间开始计算，
+ * 请求因为前面的请求变慢而被推迟发送的时间也计入延迟，即修正了协调遗漏（coordinated omission）；
+ * 闭环且不指定速率时没有预定发送时间，corrected 与 uncorrected 相同
+ * <p>
+ * 独立 JVM 运行时入口为 main，参数与 LoadTestOptions 相同，但只包含一个组合
+ */
+public class LoadTestConsumer {
+
+    // 距离预定时间小于该值时自旋等待，避免 park 的唤醒误差
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LoadTestOptions options;
+
+    // 该消费者的目标速率（次/秒）
+    private final int rate;
+
+    private final AsyncServiceStub<UserService> stub;
+
+    private final User user;
+
+    private final Recorder corrected = new Recorder(3);
+
+    private final Recorder uncorrected = new Recorder(3);
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private long measureStart;
+
+    private long end;
+
+    LoadTestConsumer(LoadTestOptions options, int rate) {
+        this.options = options;
+        this.rate = rate;
+        this.stub = ServiceProxyFactory.getAsyncProxy(UserService.class);
+        this.user = new User();
+        user.setUserName("load-test");
+        user.setAge(18);
+    }
+
+    /**
+     * 把服务提供者注册到当前 JVM 的内存注册中心
+     */
+    static void registerProviders(RpcConfig rpcConfig, List<Integer> ports) throws Exception {
+        Registry registry = RegistryFactory.getInstance(rpcConfig.getRegistryConfig().getRegistry());
+        for (Integer port : ports) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName(UserService.class.getName());
+            serviceMetaInfo.setServiceHost("localhost");
+            serviceMetaInfo.setServicePort(port);
+            registry.registry(serviceMetaInfo);
+        }
+    }
+
+    LoadResult run() throws InterruptedException {
+        long start = System.nanoTime();
+        measureStart = start + TimeUnit.SECONDS.toNanos(options.warmup);
+        end = measureStart + TimeUnit.SECONDS.toNanos(options.duration);
+        if (options.openLoop()) {
+            runOpenLoop(start);
+        } else {
+            runClosedLoop(start);
+        }
+        // 等待在途请求完成，超时的请求会由框架以超时异常结束
+        long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeout + 1000);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        LoadResult result = new LoadResult();
+        result.succeeded = succeeded.sum();
+        result.failed = failed.sum() + inFlight.get();
+        result.elapsedNanos = end - measureStart;
+        result.corrected.add(corrected.getIntervalHistogram());
+        result.uncorrected.add(uncorrected.getIntervalHistogram());
+        return result;
+    }
+
+    private void runOpenLoop(long start) {
+        double intervalNanos = 1e9 / rate;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                return;
+            }
+            awaitUntil(intended);
+            // 发送落后于预定时间时立即补发，落后的时间计入 corrected 延迟
+            if (inFlight.get() >= options.maxInFlight) {
+                if (intended >= measureStart) {
+                    failed.increment();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            CompletableFuture<User> future;
+            try {
+                future = stub.call(userService -> userService.getUser(user));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((response, throwable) -> {
+                record(intended, sent, throwable == null && response != null);
+                inFlight.decrementAndGet();
+            });
+        }
+    }
+
+    private void runClosedLoop(long start) throws InterruptedException {
+        int concurrency = options.concurrency;
+        // 指定速率时，每个虚拟线程的发送间隔为 concurrency / rate，各线程的起始时间错开
+        double intervalNanos = rate > 0 ? 1e9 * concurrency / rate : 0;
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            long offset = (long) (intervalNanos * w / concurrency);
+            workers.add(Thread.ofVirtual().name("load-test-worker-" + w).start(() -> {
+                for (long k = 0; ; k++) {
+                    long intended = rate > 0 ? start + offset + (long) (k * intervalNanos) : System.nanoTime();
+                    if (intended >= end) {
+                        return;
+                    }
+                    awaitUntil(intended);
+                    inFlight.incrementAndGet();
+                    long sent = System.nanoTime();
+                    boolean success;
+                    try {
+                        success = stub.call(userService -> userService.getUser(user)).join() != null;
+                    } catch (RuntimeException e) {
+                        success = false;
+                    }
+                    record(rate > 0 ? intended : sent, sent, success);
+                    inFlight.decrementAndGet();
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void record(long intended, long sent, boolean success) {
+        // 预热阶段发出的请求不计入结果
+        if (intended < measureStart) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (success) {
+            succeeded.increment();
+            corrected.recordValue(now - intended);
+            uncorrected.recordValue(now - sent);
+        } else {
+            failed.increment();
+        }
+    }
+
+    private static void awaitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        List<LoadTestOptions.Combination> combinations = options.combinations();
+        if (combinations.size() != 1) {
+            throw new IllegalArgumentException("独立 JVM 中的消费者只能测试一个组合");
+        }
+        RpcConfig rpcConfig = options.toRpcConfig(combinations.get(0));
+        RpcApplication.init(rpcConfig);
+        registerProviders(rpcConfig, options.providerPorts);
+        LoadResult result = new LoadTestConsumer(options, options.rate).run();
+        System.out.println(result.encode());
+        System.out.flush();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,234 @@
+package com.ff.benchmark.load;
+
+import com.ff.benchmark.InMemoryRegistry;
+import com.ff.config.ConnectionPoolConfig;
+import com.ff.config.RpcConfig;
+import com.ff.server.ServerExecutionModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 压测参数，命令行格式为 --name=value，列表用逗号分隔
+ * <pre>
+ * --providers=2               服务提供者个数
+ * --consumers=1               消费者个数，总速率平均分给每个消费者（余数分给前面的消费者）
+ * --fork=none                 none / providers / consumers / all：哪些角色在独立的 JVM 中运行
+ * --mode=closed               closed（闭环：每个并发等上一个响应后再发下一个）/ open（开环：按固定速率发送）
+ * --rate=0                    总目标速率（次/秒），开环模式必填；闭环模式设置后每个并发按速率节奏发送
+ * --concurrency=16            闭环模式下每个消费者的并发数
+ * --maxInFlight=10000         开环模式下每个消费者允许的最大未完成请求数，超过时计为错误
+ * --warmup=5                  预热时间（秒），不计入结果
+ * --duration=30               测量时间（秒）
+ * --timeout=5000              请求超时时间（毫秒）
+ * --serializers=kryo          序列化器，多个时逐个组合测试
+ * --transports=coalesced      coalesced（写合并）/ direct（每个请求单独写）/ compressed（写合并 + 压缩）
+ * --loadBalancers=roundRobin  负载均衡器
+ * --execution=worker          服务端执行模型：inline / worker / virtual
+ * --metrics=true              是否记录调用指标，用于对比指标采集的开销
+ * </pre>
+ */
+public class LoadTestOptions {
+
+    public static final String MODE_OPEN = "open";
+
+    public static final String MODE_CLOSED = "closed";
+
+    public static final String FORK_NONE = "none";
+
+    public static final String FORK_PROVIDERS = "providers";
+
+    public static final String FORK_CONSUMERS = "consumers";
+
+    public static final String FORK_ALL = "all";
+
+    public static final String TRANSPORT_COALESCED = "coalesced";
+
+    public static final String TRANSPORT_DIRECT = "direct";
+
+    public static final String TRANSPORT_COMPRESSED = "compressed";
+
+    int providers = 2;
+
+    int consumers = 1;
+
+    String fork = FORK_NONE;
+
+    String mode = MODE_CLOSED;
+
+    int rate = 0;
+
+    int concurrency = 16;
+
+    int maxInFlight = 10000;
+
+    int warmup = 5;
+
+    int duration = 30;
+
+    long timeout = 5000;
+
+    List<String> serializers = List.of("kryo");
+
+    List<String> transports = List.of(TRANSPORT_COALESCED);
+
+    List<String> loadBalancers = List.of("roundRobin");
+
+    String execution = ServerExecutionModel.WORKER;
+
+    boolean metrics = true;
+
+    // 服务提供者端口，由协调进程分配后传给独立 JVM 中的提供者和消费者
+    List<Integer> providerPorts = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (!arg.startsWith("--") || index < 0) {
+                throw new IllegalArgumentException("参数格式错误，应为 --name=value: " + arg);
+            }
+            String name = arg.substring(2, index);
+            String value = arg.substring(index + 1).trim();
+            switch (name) {
+                case "providers" -> options.providers = Integer.parseInt(value);
+                case "consumers" -> options.consumers = Integer.parseInt(value);
+                case "fork" -> options.fork = oneOf(name, value, FORK_NONE, FORK_PROVIDERS, FORK_CONSUMERS, FORK_ALL);
+                case "mode" -> options.mode = oneOf(name, value, MODE_OPEN, MODE_CLOSED);
+                case "rate" -> options.rate = Integer.parseInt(value);
+                case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "maxInFlight" -> options.maxInFlight = Integer.parseInt(value);
+                case "warmup" -> options.warmup = Integer.parseInt(value);
+                case "duration" -> options.duration = Integer.parseInt(value);
+                case "timeout" -> options.timeout = Long.parseLong(value);
+                case "serializers" -> options.serializers = split(value);
+                case "transports" -> options.transports = split(value);
+                case "loadBalancers" -> options.loadBalancers = split(value);
+                case "execution" -> options.execution = oneOf(name, value,
+                        ServerExecutionModel.INLINE, ServerExecutionModel.WORKER, ServerExecutionModel.VIRTUAL);
+                case "metrics" -> options.metrics = Boolean.parseBoolean(value);
+                case "providerPorts" -> options.providerPorts = split(value).stream().map(Integer::valueOf).toList();
+                default -> throw new IllegalArgumentException("未知参数: " + arg);
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (MODE_OPEN.equals(mode) && rate <= 0) {
+            throw new IllegalArgumentException("开环模式必须指定 --rate");
+        }
+        if (consumers < 1) {
+            throw new IllegalArgumentException("--consumers 必须大于 0: " + consumers);
+        }
+        // 每个消费者至少分到 1 次/秒，否则速率为 0 的消费者会按不限速发送
+        if (rate > 0 && rate < consumers) {
+            throw new IllegalArgumentException("--rate 不能小于 --consumers: rate=" + rate + ", consumers=" + consumers);
+        }
+        for (String transport : transports) {
+            oneOf("transports", transport, TRANSPORT_COALESCED, TRANSPORT_DIRECT, TRANSPORT_COMPRESSED);
+        }
+        // 客户端连接池配置在第一次调用时读取，同一个 JVM 内无法切换
+        if (transports.size() > 1 && !forkConsumers()) {
+            throw new IllegalArgumentException("进程内的消费者无法切换 transport，测试多个 transport 时请使用 --fork=consumers 或 --fork=all");
+        }
+    }
+
+    /**
+     * 第 index 个消费者的速率：总速率平均分配，余数分给前面的消费者，各消费者之和等于总速率
+     */
+    int consumerRate(int index) {
+        if (rate <= 0) {
+            return 0;
+        }
+        return rate / consumers + (index < rate % consumers ? 1 : 0);
+    }
+
+    boolean forkProviders() {
+        return FORK_PROVIDERS.equals(fork) || FORK_ALL.equals(fork);
+    }
+
+    boolean forkConsumers() {
+        return FORK_CONSUMERS.equals(fork) || FORK_ALL.equals(fork);
+    }
+
+    boolean openLoop() {
+        return MODE_OPEN.equals(mode);
+    }
+
+    /**
+     * 某个组合下的框架配置：内存注册中心 + 组合指定的序列化器、负载均衡器、传输方式
+     */
+    RpcConfig toRpcConfig(Combination combination) {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.getRegistryConfig().setRegistry(InMemoryRegistry.KEY);
+        rpcConfig.getServerExecutionConfig().setMode(execution);
+        rpcConfig.setTimeout(timeout);
+        rpcConfig.getMetricsConfig().setEnabled(metrics);
+        rpcConfig.setSerializer(combination.serializer());
+        rpcConfig.setLoadBalancer(combination.loadBalancer());
+        ConnectionPoolConfig connectionPoolConfig = rpcConfig.getConnectionPoolConfig();
+        connectionPoolConfig.setWriteCoalescing(!TRANSPORT_DIRECT.equals(combination.transport()));
+        connectionPoolConfig.setCompression(TRANSPORT_COMPRESSED.equals(combination.transport()));
+        return rpcConfig;
+    }
+
+    // 所有 序列化器 × 传输方式 × 负载均衡器 的组合
+    List<Combination> combinations() {
+        List<Combination> combinations = new ArrayList<>();
+        for (String serializer : serializers) {
+            for (String transport : transports) {
+                for (String loadBalancer : loadBalancers) {
+                    combinations.add(new Combination(serializer, transport, loadBalancer));
+                }
+            }
+        }
+        return combinations;
+    }
+
+    /**
+     * 传给独立 JVM 中消费者的参数：只包含一个组合，速率为该消费者分到的速率
+     */
+    List<String> toConsumerArgs(Combination combination, int consumerRate) {
+        return List.of(
+                "--mode=" + mode,
+                "--rate=" + consumerRate,
+                "--concurrency=" + concurrency,
+                "--maxInFlight=" + maxInFlight,
+                "--warmup=" + warmup,
+                "--duration=" + duration,
+                "--timeout=" + timeout,
+                "--metrics=" + metrics,
+                "--serializers=" + combination.serializer(),
+                "--transports=" + combination.transport(),
+                "--loadBalancers=" + combination.loadBalancer(),
+                "--providerPorts=" + join(providerPorts));
+    }
+
+    private static String oneOf(String name, String value, String... allowed) {
+        if (!Arrays.asList(allowed).contains(value)) {
+            throw new IllegalArgumentException("参数 " + name + " 的取值必须是 " + Arrays.toString(allowed) + " 之一: " + value);
+        }
+        return value;
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty()).toList();
+    }
+
+    private static String join(List<Integer> values) {
+        return String.join(",", values.stream().map(String::valueOf).toList());
+    }
+
+    /**
+     * 一次测试的组合
+     */
+    record Combination(String serializer, String transport, String loadBalancer) {
+        @Override
+        public String toString() {
+            return serializer + "/" + transport + "/" + loadBalancer;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ff.benchmark.load;
+
+import com.ff.RpcApplication;
+import com.ff.common.model.User;
+import com.ff.common.service.UserService;
+import com.ff.config.RpcConfig;
+import com.ff.registry.LocalRegistry;
+import com.ff.server.tcp.VertxTcpServer;
+
+/**
+ * 压测的服务提供者：VertxTcpServer + UserService
+ * 进程内运行时由 LoadTest 调用 start，独立 JVM 运行时入口为 main，参数 --port=端口 [--execution=执行模型]
+ */
+public class LoadTestProvider {
+
+    /**
+     * 与 provider 模块的 UserServiceImpl 行为一致，但不在每次调用时打印，避免输出成为压测瓶颈
+     */
+    public static class QuietUserService implements UserService {
+        @Override
+        public User getUser(User user) {
+            return user;
+        }
+    }
+
+    private LoadTestProvider() {
+    }
+
+    /**
+     * 在当前 JVM 中启动一个服务提供者，调用前需要先初始化框架配置
+     */
+    static void start(int port) {
+        if (LocalRegistry.get(UserService.class.getName()) == null) {
+            LocalRegistry.register(UserService.class.getName(), QuietUserService.class);
+        }
+        new VertxTcpServer().start(port);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = 0;
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--execution=")) {
+                options.execution = arg.substring("--execution=".length());
+            } else if (arg.startsWith("--metrics=")) {
+                options.metrics = Boolean.parseBoolean(arg.substring("--metrics=".length()));
+            } else {
+                throw new IllegalArgumentException("未知参数: " + arg);
+            }
+        }
+        if (port <= 0) {
+            throw new IllegalArgumentException("必须指定 --port");
+        }
+        // 服务端按请求头中的序列化器解码，这里的组合只决定执行模型和注册中心
+        RpcConfig rpcConfig = options.toRpcConfig(new LoadTestOptions.Combination("kryo",
+                LoadTestOptions.TRANSPORT_COALESCED, "roundRobin"));
+        RpcApplication.init(rpcConfig);
+        start(port);
+        // 由协调进程在测试结束后销毁
+        Thread.currentThread().join();
+    }
+}
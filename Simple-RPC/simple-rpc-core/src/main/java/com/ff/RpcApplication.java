@@ -3,6 +3,7 @@ package com.ff;
 import com.ff.config.RegistryConfig;
 import com.ff.config.RpcConfig;
 import com.ff.constant.RpcConstant;
+import com.ff.metrics.RpcMetrics;
 import com.ff.registry.Registry;
 import com.ff.registry.RegistryFactory;
 import com.ff.utils.ConfigUtils;
@@ -33,6 +34,9 @@ public class RpcApplication {
         registry.init(registryConfig);
         log.info("rpc init, registryConfig = {}", registryConfig);
 
+        // 按配置启动指标采集端口
+        RpcMetrics.init(rpcConfig.getMetricsConfig());
+
         // 创建并注册 Shutdown Hook，JVM 退出时执行操作
         Runtime.getRuntime().addShutdownHook(new Thread(registry::destroy));
     }
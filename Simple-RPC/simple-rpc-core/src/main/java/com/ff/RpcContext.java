@@ -0,0 +1,94 @@
+package com.ff;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 调用附加信息（attachments），用于链路追踪 id、路由标签等不属于方法参数的信息
+ * 消费端：调用前通过 setAttachment 设置，只对当前线程发起的下一次调用生效，发起调用时取走；
+ * 提供端：服务方法执行期间（同步部分）通过 getReceivedAttachment 读取请求携带的附加信息。
+ * 附加信息放在 v2 帧的扩展区传输，与 v1 服务端通信时不会发送
+ */
+public class RpcContext {
+
+    // 当前线程下一次调用要发送的附加信息
+    private static final ThreadLocal<Map<String, String>> attachments = new ThreadLocal<>();
+
+    // 当前线程正在处理的请求携带的附加信息
+    private static final ThreadLocal<Map<String, String>> receivedAttachments = new ThreadLocal<>();
+
+    private RpcContext() {
+    }
+
+    /**
+     * 设置下一次调用要发送的附加信息
+     *
+     * @param key   键
+     * @param value 值，为 null 时移除
+     */
+    public static void setAttachment(String key, String value) {
+        Map<String, String> map = attachments.get();
+        if (value == null) {
+            if (map != null) {
+                map.remove(key);
+            }
+            return;
+        }
+        if (map == null) {
+            map = new HashMap<>();
+            attachments.set(map);
+        }
+        map.put(key, value);
+    }
+
+    /**
+     * 下一次调用要发送的附加信息（只读）
+     */
+    public static Map<String, String> getAttachments() {
+        Map<String, String> map = attachments.get();
+        return map == null ? Collections.emptyMap() : Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 取走下一次调用要发送的附加信息，没有时返回 null
+     */
+    public static Map<String, String> takeAttachments() {
+        Map<String, String> map = attachments.get();
+        if (map == null) {
+            return null;
+        }
+        attachments.remove();
+        return map.isEmpty() ? null : map;
+    }
+
+    /**
+     * 当前处理的请求携带的附加信息
+     *
+     * @param key 键
+     * @return 值，没有时返回 null
+     */
+    public static String getReceivedAttachment(String key) {
+        Map<String, String> map = receivedAttachments.get();
+        return map == null ? null : map.get(key);
+    }
+
+    /**
+     * 当前处理的请求携带的附加信息（只读）
+     */
+    public static Map<String, String> getReceivedAttachments() {
+        Map<String, String> map = receivedAttachments.get();
+        return map == null ? Collections.emptyMap() : Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 服务端执行服务方法前设置，执行结束后以 null 清除
+     */
+    public static void setReceivedAttachments(Map<String, String> map) {
+        if (map == null || map.isEmpty()) {
+            receivedAttachments.remove();
+        } else {
+            receivedAttachments.set(map);
+        }
+    }
+}
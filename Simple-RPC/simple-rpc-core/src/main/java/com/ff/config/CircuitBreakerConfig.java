@@ -0,0 +1,45 @@
+package com.ff.config;
+
+import lombok.Data;
+
+/**
+ * 熔断器配置，按 服务节点 × 方法 分别统计
+ */
+@Data
+public class CircuitBreakerConfig {
+
+    /**
+     * 滑动窗口长度（秒），窗口按秒分桶，只统计最近这段时间内的调用
+     */
+    private Integer windowSeconds = 10;
+
+    /**
+     * 窗口内至少有这么多次调用才计算失败率，避免少量调用就触发熔断
+     */
+    private Integer minimumCalls = 20;
+
+    /**
+     * 失败率阈值（百分比），达到后熔断
+     */
+    private Integer failureRateThreshold = 50;
+
+    /**
+     * 慢调用阈值（毫秒），耗时不小于该值的调用记为慢调用
+     */
+    private Long slowCallMillis = 2000L;
+
+    /**
+     * 慢调用比例阈值（百分比），达到后熔断
+     */
+    private Integer slowCallRateThreshold = 80;
+
+    /**
+     * 熔断持续时间（毫秒），之后进入半开状态放行少量探测请求
+     */
+    private Long openMillis = 5000L;
+
+    /**
+     * 半开状态允许的探测请求数，全部成功后恢复，任意一个失败或过慢则重新熔断
+     */
+    private Integer halfOpenCalls = 3;
+}
@@ -0,0 +1,32 @@
+package com.ff.config;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端请求合并配置
+ * 同一个方法、参数相等的请求在途时，后来的调用直接等待在途请求的结果，不再重复发送。
+ * 只对配置的方法开启，这些方法必须是幂等的只读方法；合并的调用拿到的是同一个结果对象，调用方不应修改它
+ */
+@Data
+public class CoalesceConfig {
+
+    /**
+     * 开启合并的方法，格式：服务名[#方法名]，多条规则用逗号分隔，例如
+     * rpc.coalesceConfig.methods=com.ff.common.service.UserService#getUser
+     */
+    private List<String> methods = new ArrayList<>();
+
+    /**
+     * 参数的最大规模，超过时不合并：字符串按长度计算，数组、集合和 Map 按元素累加，数字、布尔、字符和枚举按 1 计算，
+     * 值对象（record 或重写了 equals、hashCode 的 DTO）按字段累加；含有按引用比较的对象参数的调用不合并
+     */
+    private Integer maxKeySize = 1024;
+
+    /**
+     * 同时在途的合并键的最大数量，超过时新的调用直接发送
+     */
+    private Integer maxInFlightKeys = 10000;
+}
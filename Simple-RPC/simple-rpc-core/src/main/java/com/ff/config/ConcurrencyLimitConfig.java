@@ -0,0 +1,52 @@
+package com.ff.config;
+
+import lombok.Data;
+
+/**
+ * 服务端自适应并发限制配置，按 服务 × 方法名 分别限制（同名的重载方法共用一个限制）
+ * 并发限制随测量到的服务端延迟调整：延迟相对长期基线升高时减小限制，延迟平稳时逐步增大，
+ * 超过限制的请求立即以 LIMIT_EXCEEDED 状态拒绝，不执行服务方法
+ */
+@Data
+public class ConcurrencyLimitConfig {
+
+    /**
+     * 是否开启
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 初始并发限制
+     */
+    private Integer initialLimit = 20;
+
+    /**
+     * 并发限制的下限
+     */
+    private Integer minLimit = 10;
+
+    /**
+     * 并发限制的上限
+     */
+    private Integer maxLimit = 1000;
+
+    /**
+     * 延迟容忍度：短期延迟不超过长期基线的这个倍数时不减小限制
+     */
+    private Double rttTolerance = 1.5;
+
+    /**
+     * 每次调整的平滑系数（0 到 1），越大调整越快
+     */
+    private Double smoothing = 0.2;
+
+    /**
+     * 短期延迟的平均窗口（样本数）
+     */
+    private Integer shortWindow = 10;
+
+    /**
+     * 长期延迟基线的平均窗口（样本数）
+     */
+    private Integer longWindow = 600;
+}
@@ -0,0 +1,75 @@
+package com.ff.config;
+
+import lombok.Data;
+
+/**
+ * RPC 客户端 TCP 连接池配置
+ */
+@Data
+public class ConnectionPoolConfig {
+
+    /**
+     * 每个服务节点（host:port）最多保持的长连接数，每条连接上可以同时承载多个请求
+     */
+    private Integer maxConnectionsPerEndpoint = 2;
+
+    /**
+     * 每条连接上允许的最大在途请求数（向上取整为 2 的幂）
+     */
+    private Integer maxPendingRequestsPerConnection = 4096;
+
+    /**
+     * 建立连接超时时间（单位毫秒）
+     */
+    private Integer connectTimeout = 3000;
+
+    /**
+     * 连接空闲多久（且没有在途请求）后被回收（单位毫秒）
+     */
+    private Long idleTimeout = 60000L;
+
+    /**
+     * 连接建立失败后的重连次数
+     */
+    private Integer reconnectAttempts = 3;
+
+    /**
+     * 重连间隔（单位毫秒），第 n 次重连等待 n * reconnectInterval
+     */
+    private Long reconnectInterval = 200L;
+
+    /**
+     * 是否开启合并写：同一事件循环 tick 内的多个请求帧合并为一次 socket 写出
+     */
+    private Boolean writeCoalescing = true;
+
+    /**
+     * 合并写单批最大字节数
+     */
+    private Integer maxWriteBatchBytes = 64 * 1024;
+
+    /**
+     * 合并写单批最大帧数
+     */
+    private Integer maxWriteBatchFrames = 128;
+
+    /**
+     * 合并写最多额外等待时间（单位毫秒），0 表示在下一个事件循环 tick 立即写出
+     */
+    private Long maxFlushDelay = 0L;
+
+    /**
+     * 是否使用握手时协商的方法 id 字典，开启后请求只携带方法 id 和参数
+     */
+    private Boolean methodDictionary = true;
+
+    /**
+     * 连接握手超时时间（单位毫秒），超时或服务端不支持握手时使用 v1 帧和完整的请求格式
+     */
+    private Long handshakeTimeout = 3000L;
+
+    /**
+     * 是否压缩请求消息体（仅 v2 帧，服务端按请求的设置压缩响应）
+     */
+    private Boolean compression = false;
+}
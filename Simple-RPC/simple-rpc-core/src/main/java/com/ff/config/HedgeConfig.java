@@ -0,0 +1,47 @@
+package com.ff.config;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对冲请求配置
+ * 只对配置的方法开启（应当是只读、幂等的方法）：第一次请求在对冲延迟内没有返回时，
+ * 再向另一个节点发送同样的请求，使用先返回的响应，取消另一个
+ */
+@Data
+public class HedgeConfig {
+
+    /**
+     * 开启对冲的方法，格式：服务名[#方法名][:对冲延迟毫秒]，多条规则用逗号分隔，方法级优先于服务级，例如
+     * rpc.hedgeConfig.methods=com.ff.common.service.UserService#getUser:20,com.ff.common.service.OrderService
+     * 没有配置延迟时使用该方法最近观测到的 delayPercentile 分位延迟
+     */
+    private List<String> methods = new ArrayList<>();
+
+    /**
+     * 自适应对冲延迟使用的延迟分位
+     */
+    private Double delayPercentile = 95.0;
+
+    /**
+     * 统计窗口内至少有这么多个响应才更新自适应延迟，样本不足且没有历史延迟时不对冲
+     */
+    private Integer minSamples = 100;
+
+    /**
+     * 延迟统计窗口和对冲预算窗口的长度（秒）
+     */
+    private Integer windowSeconds = 10;
+
+    /**
+     * 对冲预算：窗口内的对冲请求数不超过开启对冲的调用数的这个百分比，节点整体变慢时对冲不会把负载放大
+     */
+    private Integer budgetPercent = 10;
+
+    /**
+     * 对冲预算的保底值：调用量很小时每秒也允许这么多次对冲
+     */
+    private Integer budgetMinHedgesPerSecond = 5;
+}
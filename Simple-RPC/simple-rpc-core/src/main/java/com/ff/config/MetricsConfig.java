@@ -0,0 +1,25 @@
+package com.ff.config;
+
+import lombok.Data;
+
+/**
+ * RPC 调用指标配置
+ */
+@Data
+public class MetricsConfig {
+
+    /**
+     * 是否记录调用次数、错误数、在途请求数和各阶段的延迟直方图
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 是否把每个方法的指标注册为 JMX MBean（com.ff.rpc:type=Metrics,side=...,service=...,method=...）
+     */
+    private Boolean jmxEnabled = true;
+
+    /**
+     * 指标采集端口，访问 http://host:port/metrics 得到 Prometheus 文本格式的指标，为空时不启动
+     */
+    private Integer httpPort;
+}
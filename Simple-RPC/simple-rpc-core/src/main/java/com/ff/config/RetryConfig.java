@@ -0,0 +1,40 @@
+package com.ff.config;
+
+import lombok.Data;
+
+/**
+ * 指数退避重试配置
+ */
+@Data
+public class RetryConfig {
+
+    /**
+     * 最大尝试次数（包含第一次调用）
+     */
+    private Integer maxAttempts = 3;
+
+    /**
+     * 退避基数（毫秒），第 n 次重试前在 [0, min(maxDelayMillis, baseDelayMillis * 2^(n-1))] 内随机等待
+     */
+    private Long baseDelayMillis = 50L;
+
+    /**
+     * 单次退避的上限（毫秒）
+     */
+    private Long maxDelayMillis = 2000L;
+
+    /**
+     * 重试预算：窗口内的重试次数不超过成功调用次数的这个百分比，避免故障期间重试把集群的负载放大数倍
+     */
+    private Integer budgetPercent = 10;
+
+    /**
+     * 重试预算的保底值：调用量很小时每秒也允许这么多次重试
+     */
+    private Integer budgetMinRetriesPerSecond = 10;
+
+    /**
+     * 重试预算的统计窗口（秒）
+     */
+    private Integer budgetWindowSeconds = 10;
+}
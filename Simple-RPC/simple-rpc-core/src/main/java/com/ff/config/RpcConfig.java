@@ -1,11 +1,26 @@
 package com.ff.config;
 
+import cn.hutool.core.util.StrUtil;
+import com.ff.fault.circuitbreaker.CircuitBreakerKeys;
 import com.ff.fault.retry.RetryStrategyKeys;
 import com.ff.fault.tolerant.TolerantStrategyKeys;
 import com.ff.loadbalancer.LoadBalancerKeys;
+import com.ff.model.ServiceMetaInfo;
 import com.ff.serializer.SerializerKeys;
 import com.ff.server.RpcServerModel;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /*
  * RPC 框架全局配置
@@ -31,6 +46,12 @@ public class RpcConfig {
     // 服务器端口号
     private Integer serverPort = 8080;
 
+    // 服务权重，注册服务时写入服务元信息，用于消费端的加权负载均衡
+    private Integer weight = ServiceMetaInfo.DEFAULT_WEIGHT;
+
+    // 服务预热时间（毫秒），注册服务时写入服务元信息，新节点在这段时间内逐步承接流量
+    private Integer warmup = ServiceMetaInfo.DEFAULT_WARMUP;
+
     /*
      * 模拟调用：mock
      * 默认为 false
@@ -43,6 +64,15 @@ public class RpcConfig {
      * */
     private String serializer = SerializerKeys.JDK;
 
+    /*
+     * Kryo 序列化需要额外注册的类（全限定类名，逗号分隔），按顺序分配固定的注册 id，
+     * 序列化结果中只写入注册 id，消费者和提供者必须配置相同的列表
+     */
+    private List<String> kryoRegistrations = new ArrayList<>();
+
+    // Kryo 是否要求所有类都必须注册，开启后未注册的类会直接序列化失败
+    private boolean kryoRegistrationRequired = false;
+
     /*
      * 网络传输协议,默认为 HTTP
      */
@@ -53,13 +83,169 @@ public class RpcConfig {
      */
     private RegistryConfig registryConfig = new RegistryConfig();
 
+    /*
+     * 客户端连接池配置
+     */
+    private ConnectionPoolConfig connectionPoolConfig = new ConnectionPoolConfig();
+
+    /*
+     * 服务端执行模型配置
+     */
+    private ServerExecutionConfig serverExecutionConfig = new ServerExecutionConfig();
+
+    /*
+     * 服务端自适应并发限制配置
+     */
+    private ConcurrencyLimitConfig concurrencyLimitConfig = new ConcurrencyLimitConfig();
+
+    /*
+     * 调用指标配置
+     */
+    private MetricsConfig metricsConfig = new MetricsConfig();
+
     // 负载均衡配置
     private String loadBalancer = LoadBalancerKeys.ROUND_ROBIN;
 
+    /*
+     * 一致性哈希负载均衡参与哈希的参数下标（逗号分隔），默认按第一个参数哈希，
+     * 例如 rpc.consistentHashArguments=0,2；参数按 toString 拼接，方法没有对应参数时按方法名哈希
+     */
+    private List<Integer> consistentHashArguments = new ArrayList<>(List.of(0));
+
     // 重试策略
     private String retryStrategy = RetryStrategyKeys.NO;
 
+    /*
+     * 指数退避重试配置
+     */
+    private RetryConfig retryConfig = new RetryConfig();
+
     // 容错机制
     private String tolerantStrategy = TolerantStrategyKeys.FAST_FAIL;
 
+    // 故障转移的最大尝试次数（包含第一次调用），每次换一个没有尝试过的节点，所有尝试共用调用的超时时间
+    private Integer failoverMaxAttempts = 3;
+
+    // 熔断器
+    private String circuitBreaker = CircuitBreakerKeys.NO;
+
+    /*
+     * 熔断器配置
+     */
+    private CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+
+    /*
+     * 客户端请求合并配置
+     */
+    private CoalesceConfig coalesceConfig = new CoalesceConfig();
+
+    /*
+     * 对冲请求配置
+     */
+    private HedgeConfig hedgeConfig = new HedgeConfig();
+
+    /*
+     * 单向调用的方法：只发送请求，不等待响应，服务端执行后也不回写响应，只对返回 void 的方法生效
+     * 格式：服务名[#方法名]，多条规则用逗号分隔，例如
+     * rpc.onewayMethods=com.ff.common.service.LogService#report
+     * 服务端按 v1 协议通信时没有单向标记，仍然按普通调用等待响应
+     */
+    private List<String> onewayMethods = new ArrayList<>();
+
+    // onewayMethods 解析后的结果，懒加载
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile Set<String> onewayMethodSet;
+
+    // 默认请求超时时间（单位毫秒）
+    private Long timeout = 5000L;
+
+    /*
+     * 服务级、方法级超时时间（单位毫秒），方法级优先于服务级，服务级优先于默认超时
+     * 格式：服务名[#方法名]:超时时间，多条规则用逗号分隔，例如
+     * rpc.methodTimeouts=com.ff.common.service.UserService:1000,com.ff.common.service.UserService#getUser:200
+     */
+    private List<String> methodTimeouts = new ArrayList<>();
+
+    // methodTimeouts 解析后的结果，懒加载
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile Map<String, Long> methodTimeoutMap;
+
+    public void setMethodTimeouts(List<String> methodTimeouts) {
+        this.methodTimeouts = methodTimeouts;
+        this.methodTimeoutMap = null;
+    }
+
+    /**
+     * 获取某个方法的超时时间（单位毫秒）
+     *
+     * @param serviceName 服务名
+     * @param methodName  方法名
+     * @return 超时时间
+     */
+    public long getTimeout(String serviceName, String methodName) {
+        Map<String, Long> timeoutMap = methodTimeoutMap;
+        if (timeoutMap == null) {
+            timeoutMap = parseMethodTimeouts();
+            methodTimeoutMap = timeoutMap;
+        }
+        if (timeoutMap.isEmpty()) {
+            return timeout;
+        }
+        Long methodTimeout = timeoutMap.get(serviceName + "#" + methodName);
+        if (methodTimeout != null) {
+            return methodTimeout;
+        }
+        return timeoutMap.getOrDefault(serviceName, timeout);
+    }
+
+    public void setOnewayMethods(List<String> onewayMethods) {
+        this.onewayMethods = onewayMethods;
+        this.onewayMethodSet = null;
+    }
+
+    /**
+     * 某个方法是否配置为单向调用
+     *
+     * @param serviceName 服务名
+     * @param methodName  方法名
+     * @return 是否单向调用
+     */
+    public boolean isOneway(String serviceName, String methodName) {
+        Set<String> methodSet = onewayMethodSet;
+        if (methodSet == null) {
+            methodSet = new HashSet<>();
+            if (onewayMethods != null) {
+                for (String rule : onewayMethods) {
+                    if (StrUtil.isNotBlank(rule)) {
+                        methodSet.add(rule.trim());
+                    }
+                }
+            }
+            onewayMethodSet = methodSet;
+        }
+        return !methodSet.isEmpty()
+                && (methodSet.contains(serviceName + "#" + methodName) || methodSet.contains(serviceName));
+    }
+
+    private Map<String, Long> parseMethodTimeouts() {
+        Map<String, Long> timeoutMap = new HashMap<>();
+        if (methodTimeouts == null) {
+            return timeoutMap;
+        }
+        for (String rule : methodTimeouts) {
+            int index = StrUtil.isBlank(rule) ? -1 : rule.lastIndexOf(':');
+            if (index <= 0) {
+                continue;
+            }
+            timeoutMap.put(rule.substring(0, index).trim(), Long.parseLong(rule.substring(index + 1).trim()));
+        }
+        return timeoutMap;
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.ff.config;
+
+import com.ff.server.ServerExecutionModel;
+import lombok.Data;
+
+/**
+ * RPC 服务端执行模型配置
+ */
+@Data
+public class ServerExecutionConfig {
+
+    /**
+     * 执行模型：inline（事件循环）、worker（平台线程池）、virtual（虚拟线程）
+     */
+    private String mode = ServerExecutionModel.WORKER;
+
+    /**
+     * worker 模式下的线程数
+     */
+    private Integer workerThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * worker 模式下的排队上限，队列满时直接返回服务端繁忙
+     */
+    private Integer queueCapacity = 1024;
+
+    /**
+     * virtual 模式下同时执行的最大请求数，超过时直接返回服务端繁忙
+     */
+    private Integer maxConcurrentRequests = 10000;
+}
@@ -13,4 +13,10 @@ public interface RpcConstant {
      * 默认服务版本
      */
     String DEFAULT_SERVICE_VERSION = "1.0";
+
+    /*
+     * 方法 id 字典握手使用的保留服务名
+     * 握手以普通请求的形式发送，不支持的旧版本服务端会按“服务不存在”正常返回，客户端据此回退到完整的请求格式
+     */
+    String HANDSHAKE_SERVICE_NAME = "$rpc.handshake";
 }
@@ -0,0 +1,18 @@
+package com.ff.exception;
+
+import com.ff.protocol.ProtocolMessageStatusEnum;
+import lombok.Getter;
+
+/**
+ * RPC 调用异常，携带服务端返回的状态码
+ */
+@Getter
+public class RpcException extends RuntimeException {
+
+    private final ProtocolMessageStatusEnum status;
+
+    public RpcException(ProtocolMessageStatusEnum status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ff.fault.circuitbreaker;
+
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 熔断器：按 服务节点 × 方法 统计调用结果，失败或慢调用过多的节点在一段时间内不再接收该方法的请求，
+ * 调用直接失败而不是等到超时
+ */
+public interface CircuitBreaker {
+
+    /**
+     * 排除熔断中的节点，在负载均衡之前调用
+     * 没有节点被排除时返回原列表（负载均衡器按列表对象缓存状态），全部被排除时返回空列表
+     *
+     * @param serviceName 服务名
+     * @param methodName  方法名
+     * @param services    注册中心返回的节点列表
+     * @return 可用的节点列表
+     */
+    List<ServiceMetaInfo> filter(String serviceName, String methodName, List<ServiceMetaInfo> services);
+
+    /**
+     * 通过熔断器向某个节点发起一次调用并记录结果，熔断中（或半开状态的探测名额已用完）时直接返回失败
+     * 只有调用异常结束（超时、连接失败、服务端拒绝等）才计为失败，服务方法抛出的业务异常随响应正常返回，不计入
+     *
+     * @param request         请求
+     * @param serviceMetaInfo 选中的节点
+     * @param supplier        发起调用
+     * @return 调用结果
+     */
+    CompletableFuture<RpcResponse> call(RpcRequest request, ServiceMetaInfo serviceMetaInfo,
+                                        Supplier<CompletableFuture<RpcResponse>> supplier);
+}
@@ -0,0 +1,15 @@
+package com.ff.fault.circuitbreaker;
+
+import com.ff.spi.SpiLoader;
+
+// 熔断器工厂
+public class CircuitBreakerFactory {
+    static {
+        SpiLoader.load(CircuitBreaker.class);
+    }
+
+    // 获取熔断器实例
+    public static CircuitBreaker getInstance(String key) {
+        return SpiLoader.getInstance(CircuitBreaker.class, key);
+    }
+}
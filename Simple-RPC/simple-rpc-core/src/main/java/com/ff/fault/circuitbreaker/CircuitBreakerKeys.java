@@ -0,0 +1,10 @@
+package com.ff.fault.circuitbreaker;
+
+// 熔断器键常量
+public interface CircuitBreakerKeys {
+    // 不熔断
+    String NO = "no";
+
+    // 滑动窗口统计失败率和慢调用比例
+    String SLIDING_WINDOW = "slidingWindow";
+}
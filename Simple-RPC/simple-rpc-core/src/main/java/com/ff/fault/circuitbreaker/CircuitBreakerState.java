@@ -0,0 +1,24 @@
+package com.ff.fault.circuitbreaker;
+
+import lombok.Getter;
+
+/**
+ * 熔断器状态
+ */
+@Getter
+public enum CircuitBreakerState {
+
+    CLOSED("closed", 0),
+    OPEN("open", 1),
+    HALF_OPEN("half_open", 2);
+
+    private final String text;
+
+    // 指标中使用的数值
+    private final int value;
+
+    CircuitBreakerState(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+}
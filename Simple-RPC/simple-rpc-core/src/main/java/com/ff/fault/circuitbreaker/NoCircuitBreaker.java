@@ -0,0 +1,24 @@
+package com.ff.fault.circuitbreaker;
+
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// 不熔断，直接调用
+public class NoCircuitBreaker implements CircuitBreaker {
+
+    @Override
+    public List<ServiceMetaInfo> filter(String serviceName, String methodName, List<ServiceMetaInfo> services) {
+        return services;
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> call(RpcRequest request, ServiceMetaInfo serviceMetaInfo,
+                                               Supplier<CompletableFuture<RpcResponse>> supplier) {
+        return supplier.get();
+    }
+}
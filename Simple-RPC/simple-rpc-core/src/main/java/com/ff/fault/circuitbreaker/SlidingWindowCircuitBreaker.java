@@ -0,0 +1,365 @@
+package com.ff.fault.circuitbreaker;
+
+import com.ff.RpcApplication;
+import com.ff.config.CircuitBreakerConfig;
+import com.ff.metrics.RpcMetrics;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 基于滑动窗口的熔断器，每个 服务节点 × 方法 一个状态机：
+ * 关闭（正常放行，按秒分桶统计最近 windowSeconds 秒的调用数、失败数、慢调用数）
+ * -> 失败率或慢调用比例达到阈值后打开（直接拒绝，负载均衡前被排除）
+ * -> openMillis 后半开（只放行 halfOpenCalls 个探测请求）
+ * -> 探测全部成功则关闭，任意一个失败或过慢则重新打开。
+ * 记录结果只做原子自增，只有分桶过期需要清零时才对该桶加锁；状态变化会记录到 RpcMetrics
+ */
+@Slf4j
+public class SlidingWindowCircuitBreaker implements CircuitBreaker {
+
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int windowSeconds;
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final int slowCallRateThreshold;
+
+    private final long openNanos;
+
+    private final int halfOpenCalls;
+
+    // 服务名 -> 方法名 -> 节点（host:port）-> 熔断状态
+    private final Map<String, Map<String, Map<String, NodeCircuit>>> circuits = new ConcurrentHashMap<>();
+
+    // 服务名 -> 方法名 -> 上一次的过滤结果
+    private final Map<String, Map<String, Filtered>> filteredCache = new ConcurrentHashMap<>();
+
+    // 任意节点状态变化时递增，过滤结果随之失效
+    private final AtomicLong version = new AtomicLong();
+
+    public SlidingWindowCircuitBreaker() {
+        this(RpcApplication.getRpcConfig().getCircuitBreakerConfig());
+    }
+
+    public SlidingWindowCircuitBreaker(CircuitBreakerConfig config) {
+        this.windowSeconds = Math.max(1, config.getWindowSeconds());
+        this.minimumCalls = Math.max(1, config.getMinimumCalls());
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallMillis());
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenMillis());
+        this.halfOpenCalls = Math.max(1, config.getHalfOpenCalls());
+    }
+
+    @Override
+    public List<ServiceMetaInfo> filter(String serviceName, String methodName, List<ServiceMetaInfo> services) {
+        Map<String, NodeCircuit> nodeCircuits = nodeCircuits(serviceName, methodName, false);
+        if (nodeCircuits == null) {
+            return services;
+        }
+        long now = System.nanoTime();
+        long currentVersion = version.get();
+        Map<String, Filtered> methods = filteredCache.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        Filtered cached = methods.get(methodName);
+        // 节点列表和熔断状态都没有变化时复用上一次的结果，保证负载均衡器看到的是同一个列表对象
+        if (cached != null && cached.source == services && cached.version == currentVersion && now < cached.expiresAtNanos) {
+            return cached.result;
+        }
+        List<ServiceMetaInfo> result = services;
+        long expiresAtNanos = Long.MAX_VALUE;
+        for (int i = 0; i < services.size(); i++) {
+            ServiceMetaInfo serviceMetaInfo = services.get(i);
+            NodeCircuit circuit = nodeCircuits.get(nodeKey(serviceMetaInfo));
+            boolean available = circuit == null || circuit.isAvailable(now);
+            if (!available) {
+                if (result == services) {
+                    result = new ArrayList<>(services.subList(0, i));
+                }
+                // 熔断时间到了之后节点重新可用，结果随之失效
+                Phase phase = circuit.phase.get();
+                if (phase.state() == CircuitBreakerState.OPEN) {
+                    expiresAtNanos = Math.min(expiresAtNanos, phase.openedAtNanos() + openNanos);
+                }
+            } else if (result != services) {
+                result.add(serviceMetaInfo);
+            }
+        }
+        methods.put(methodName, new Filtered(services, currentVersion, expiresAtNanos, result));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> call(RpcRequest request, ServiceMetaInfo serviceMetaInfo,
+                                               Supplier<CompletableFuture<RpcResponse>> supplier) {
+        Map<String, NodeCircuit> nodeCircuits = nodeCircuits(request.getServiceName(), request.getMethodName(), true);
+        String node = nodeKey(serviceMetaInfo);
+        NodeCircuit circuit = nodeCircuits.get(node);
+        if (circuit == null) {
+            circuit = nodeCircuits.computeIfAbsent(node, key ->
+                    new NodeCircuit(request.getServiceName(), request.getMethodName(), key));
+        }
+        if (!tryAcquire(circuit)) {
+            return CompletableFuture.failedFuture(new RuntimeException("服务熔断中: " + request.getServiceName()
+                    + "#" + request.getMethodName() + " @ " + circuit.node));
+        }
+        long startNanos = System.nanoTime();
+        CompletableFuture<RpcResponse> future;
+        try {
+            future = supplier.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        NodeCircuit calledCircuit = circuit;
+        future.whenComplete((response, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                onCancelled(calledCircuit);
+            } else {
+                onResult(calledCircuit, System.nanoTime() - startNanos, throwable == null);
+            }
+        });
+        return future;
+    }
+
+    // 获取调用许可，熔断时间到了之后由第一个请求把状态切换为半开
+    private boolean tryAcquire(NodeCircuit circuit) {
+        Phase phase = circuit.phase.get();
+        if (phase.state() == CircuitBreakerState.CLOSED) {
+            return true;
+        }
+        if (phase.state() == CircuitBreakerState.OPEN) {
+            if (System.nanoTime() - phase.openedAtNanos() < openNanos) {
+                return false;
+            }
+            transition(circuit, CircuitBreakerState.OPEN, CircuitBreakerState.HALF_OPEN);
+        }
+        // 半开状态只放行有限个探测请求
+        return circuit.phase.get().state() == CircuitBreakerState.HALF_OPEN
+                && circuit.halfOpenPermits.getAndUpdate(permits -> permits > 0 ? permits - 1 : 0) > 0;
+    }
+
+    // 被调用方主动取消的请求（例如对冲请求中较慢的一个）不计入成功或失败，半开状态下归还探测名额；
+    // 名额从 0 恢复时节点重新可用，缓存的过滤结果（其中该节点已被排除）随之失效
+    private void onCancelled(NodeCircuit circuit) {
+        if (circuit.phase.get().state() == CircuitBreakerState.HALF_OPEN
+                && circuit.halfOpenPermits.getAndIncrement() == 0) {
+            version.incrementAndGet();
+        }
+    }
+
+    private void onResult(NodeCircuit circuit, long durationNanos, boolean success) {
+        boolean slow = durationNanos >= slowCallNanos;
+        CircuitBreakerState state = circuit.phase.get().state();
+        if (state == CircuitBreakerState.HALF_OPEN) {
+            if (!success || slow) {
+                transition(circuit, CircuitBreakerState.HALF_OPEN, CircuitBreakerState.OPEN);
+            } else if (circuit.halfOpenSuccesses.incrementAndGet() >= halfOpenCalls) {
+                transition(circuit, CircuitBreakerState.HALF_OPEN, CircuitBreakerState.CLOSED);
+            }
+            return;
+        }
+        if (state != CircuitBreakerState.CLOSED) {
+            // 熔断期间返回的迟到响应不计入
+            return;
+        }
+        long now = System.nanoTime();
+        circuit.record(now, success, slow);
+        // 成功且不慢的调用只会降低失败率，不需要检查阈值
+        if (success && !slow) {
+            return;
+        }
+        long[] totals = circuit.totals(now);
+        long calls = totals[0];
+        if (calls < minimumCalls) {
+            return;
+        }
+        if (totals[1] * 100 >= calls * failureRateThreshold || totals[2] * 100 >= calls * slowCallRateThreshold) {
+            transition(circuit, CircuitBreakerState.CLOSED, CircuitBreakerState.OPEN);
+        }
+    }
+
+    private void transition(NodeCircuit circuit, CircuitBreakerState from, CircuitBreakerState to) {
+        Phase current = circuit.phase.get();
+        if (current.state() != from) {
+            return;
+        }
+        // 状态和打开时间一起发布，读到 OPEN 的线程总能读到这次打开的时间；只有切换成功的线程生效
+        long openedAtNanos = to == CircuitBreakerState.OPEN ? System.nanoTime() : current.openedAtNanos();
+        if (!circuit.phase.compareAndSet(current, new Phase(to, openedAtNanos))) {
+            return;
+        }
+        if (to == CircuitBreakerState.OPEN) {
+            // 清空上一轮半开剩下的探测名额，下次半开在名额准备好之前不放行请求
+            circuit.halfOpenPermits.set(0);
+        } else if (to == CircuitBreakerState.HALF_OPEN) {
+            circuit.halfOpenSuccesses.set(0);
+            circuit.halfOpenPermits.set(halfOpenCalls);
+        } else if (to == CircuitBreakerState.CLOSED) {
+            circuit.clear();
+        }
+        version.incrementAndGet();
+        RpcMetrics.recordCircuitBreakerTransition(circuit.serviceName, circuit.methodName, circuit.node, to);
+        if (to == CircuitBreakerState.OPEN) {
+            log.warn("熔断器打开 {}#{} @ {}（{} -> {}）", circuit.serviceName, circuit.methodName, circuit.node,
+                    from.getText(), to.getText());
+        } else {
+            log.info("熔断器状态变化 {}#{} @ {}（{} -> {}）", circuit.serviceName, circuit.methodName, circuit.node,
+                    from.getText(), to.getText());
+        }
+    }
+
+    private Map<String, NodeCircuit> nodeCircuits(String serviceName, String methodName, boolean create) {
+        Map<String, Map<String, NodeCircuit>> methods = circuits.get(serviceName);
+        if (methods == null) {
+            if (!create) {
+                return null;
+            }
+            methods = circuits.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, NodeCircuit> nodes = methods.get(methodName);
+        if (nodes == null && create) {
+            nodes = methods.computeIfAbsent(methodName, key -> new ConcurrentHashMap<>());
+        }
+        return nodes;
+    }
+
+    private static String nodeKey(ServiceMetaInfo serviceMetaInfo) {
+        return serviceMetaInfo.getServiceHost() + ":" + serviceMetaInfo.getServicePort();
+    }
+
+    /**
+     * 过滤结果缓存
+     */
+    private record Filtered(List<ServiceMetaInfo> source, long version, long expiresAtNanos,
+                            List<ServiceMetaInfo> result) {
+    }
+
+    /**
+     * 熔断状态和最近一次打开的时间（System.nanoTime），不可变，整体替换
+     */
+    private record Phase(CircuitBreakerState state, long openedAtNanos) {
+    }
+
+    /**
+     * 一个 服务节点 × 方法 的熔断状态
+     */
+    private final class NodeCircuit {
+
+        private final String serviceName;
+
+        private final String methodName;
+
+        private final String node;
+
+        // 当前状态和最近一次打开的时间
+        private final AtomicReference<Phase> phase = new AtomicReference<>(new Phase(CircuitBreakerState.CLOSED, 0));
+
+        // 半开状态剩余的探测名额
+        private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+        // 半开状态已成功的探测数
+        private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+        private final Bucket[] buckets = new Bucket[windowSeconds];
+
+        NodeCircuit(String serviceName, String methodName, String node) {
+            this.serviceName = serviceName;
+            this.methodName = methodName;
+            this.node = node;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        boolean isAvailable(long now) {
+            Phase current = phase.get();
+            if (current.state() == CircuitBreakerState.CLOSED) {
+                return true;
+            }
+            if (current.state() == CircuitBreakerState.OPEN) {
+                return now - current.openedAtNanos() >= openNanos;
+            }
+            return halfOpenPermits.get() > 0;
+        }
+
+        void record(long now, boolean success, boolean slow) {
+            long epoch = now / BUCKET_NANOS;
+            Bucket bucket = buckets[Math.floorMod(epoch, buckets.length)];
+            if (bucket.epoch != epoch) {
+                synchronized (bucket) {
+                    if (bucket.epoch != epoch) {
+                        bucket.reset(epoch);
+                    }
+                }
+            }
+            bucket.calls.incrementAndGet();
+            if (!success) {
+                bucket.failures.incrementAndGet();
+            }
+            if (slow) {
+                bucket.slowCalls.incrementAndGet();
+            }
+        }
+
+        // 窗口内的 {调用数, 失败数, 慢调用数}
+        long[] totals(long now) {
+            long epoch = now / BUCKET_NANOS;
+            long[] totals = new long[3];
+            for (Bucket bucket : buckets) {
+                if (bucket.epoch > epoch - buckets.length) {
+                    totals[0] += bucket.calls.get();
+                    totals[1] += bucket.failures.get();
+                    totals[2] += bucket.slowCalls.get();
+                }
+            }
+            return totals;
+        }
+
+        void clear() {
+            for (Bucket bucket : buckets) {
+                synchronized (bucket) {
+                    bucket.reset(Long.MIN_VALUE);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一秒内的调用统计
+     */
+    private static final class Bucket {
+
+        private volatile long epoch = Long.MIN_VALUE;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        void reset(long newEpoch) {
+            calls.set(0);
+            failures.set(0);
+            slowCalls.set(0);
+            epoch = newEpoch;
+        }
+    }
+}
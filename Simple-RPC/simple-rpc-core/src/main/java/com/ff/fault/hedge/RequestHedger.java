@@ -0,0 +1,392 @@
+package com.ff.fault.hedge;
+
+import cn.hutool.core.util.StrUtil;
+import com.ff.RpcApplication;
+import com.ff.config.HedgeConfig;
+import com.ff.fault.circuitbreaker.CircuitBreaker;
+import com.ff.fault.retry.RetryBudget;
+import com.ff.loadbalancer.LoadBalancer;
+import com.ff.metrics.LatencyHistogram;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.utils.TimerUtils;
+import io.netty.util.Timeout;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对冲请求：降低只读方法的尾延迟
+ * 第一次请求在对冲延迟内没有返回时，向负载均衡器选出的另一个节点发送同样的请求，使用先成功返回的响应，
+ * 并取消另一个请求（释放其在连接上的在途槽位，迟到的响应会被直接丢弃）。
+ * 对冲延迟可以按方法固定配置，也可以使用该方法最近一个统计窗口内观测到的分位延迟（默认 p95）；
+ * 对冲次数受预算限制，不超过开启对冲的调用数的一定比例，节点整体变慢时不会把负载翻倍
+ */
+@Slf4j
+public class RequestHedger {
+
+    // 没有开启对冲的方法
+    private static final MethodHedge NONE = new MethodHedge(-1, 0, 0, 0);
+
+    // 规则：服务名[#方法名] -> 固定对冲延迟（毫秒），-1 表示使用观测到的分位延迟
+    private final Map<String, Long> rules;
+
+    private final double percentile;
+
+    private final int minSamples;
+
+    private final long windowNanos;
+
+    // 复用重试预算的计数方式：开启对冲的每次调用记一次 recordSuccess，每次对冲申请一次 tryAcquireRetry
+    private final RetryBudget budget;
+
+    // 服务名 -> 方法名 -> 对冲状态
+    private final Map<String, Map<String, MethodHedge>> methods = new ConcurrentHashMap<>();
+
+    public RequestHedger(HedgeConfig hedgeConfig) {
+        this.rules = parseRules(hedgeConfig.getMethods());
+        this.percentile = hedgeConfig.getDelayPercentile();
+        this.minSamples = Math.max(1, hedgeConfig.getMinSamples());
+        int windowSeconds = Math.max(1, hedgeConfig.getWindowSeconds());
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.budget = new RetryBudget(hedgeConfig.getBudgetPercent(), hedgeConfig.getBudgetMinHedgesPerSecond(),
+                windowSeconds);
+    }
+
+    public static RequestHedger getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 发送请求：方法开启了对冲时按对冲方式发送，否则直接通过熔断器发送给 primary
+     *
+     * @param request        请求
+     * @param primary        负载均衡选出的节点
+     * @param services       可用的服务节点（已排除熔断中的节点），从中选择对冲节点
+     * @param requestParams  负载均衡参数
+     * @param loadBalancer   负载均衡器
+     * @param circuitBreaker 熔断器，每个请求都经过熔断器
+     * @param timeoutMillis  调用的超时时间，对冲请求只使用剩余的时间
+     * @param sender         实际发送请求的方法
+     * @return 响应 future
+     */
+    public CompletableFuture<RpcResponse> call(RpcRequest request, ServiceMetaInfo primary,
+                                               List<ServiceMetaInfo> services, Map<String, Object> requestParams,
+                                               LoadBalancer loadBalancer, CircuitBreaker circuitBreaker,
+                                               long timeoutMillis, Sender sender) {
+        MethodHedge methodHedge = methodHedge(request.getServiceName(), request.getMethodName());
+        if (methodHedge == NONE) {
+            return circuitBreaker.call(request, primary, () -> sender.send(primary, timeoutMillis));
+        }
+        budget.recordSuccess();
+        HedgedCall hedgedCall = new HedgedCall(request, primary, services, requestParams, loadBalancer,
+                circuitBreaker, timeoutMillis, sender, methodHedge);
+        hedgedCall.start();
+        return hedgedCall.result;
+    }
+
+    private MethodHedge methodHedge(String serviceName, String methodName) {
+        if (rules.isEmpty()) {
+            return NONE;
+        }
+        Map<String, MethodHedge> serviceMethods = methods.get(serviceName);
+        if (serviceMethods == null) {
+            serviceMethods = methods.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        }
+        MethodHedge methodHedge = serviceMethods.get(methodName);
+        if (methodHedge == null) {
+            methodHedge = serviceMethods.computeIfAbsent(methodName, key -> {
+                Long delayMillis = rules.get(serviceName + "#" + methodName);
+                if (delayMillis == null) {
+                    delayMillis = rules.get(serviceName);
+                }
+                return delayMillis == null ? NONE : new MethodHedge(
+                        delayMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(delayMillis),
+                        percentile, minSamples, windowNanos);
+            });
+        }
+        return methodHedge;
+    }
+
+    private static Map<String, Long> parseRules(List<String> methods) {
+        Map<String, Long> rules = new HashMap<>();
+        if (methods == null) {
+            return rules;
+        }
+        for (String rule : methods) {
+            if (StrUtil.isBlank(rule)) {
+                continue;
+            }
+            int index = rule.lastIndexOf(':');
+            if (index > 0) {
+                rules.put(rule.substring(0, index).trim(), Long.parseLong(rule.substring(index + 1).trim()));
+            } else {
+                rules.put(rule.trim(), -1L);
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * 发送一次请求，返回的 future 被取消时应当释放该请求占用的资源
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<RpcResponse> send(ServiceMetaInfo serviceMetaInfo, long timeoutMillis);
+    }
+
+    /**
+     * 一个方法的对冲延迟
+     * 自适应延迟按窗口统计：窗口结束且样本足够时，用窗口内的分位延迟替换当前延迟并开始新的窗口；
+     * 样本不足时继续在原来的直方图中累计，低流量的方法也能得到足够的样本
+     */
+    private static final class MethodHedge {
+
+        // 固定延迟（纳秒），-1 表示自适应
+        private final long fixedDelayNanos;
+
+        private final double percentile;
+
+        private final int minSamples;
+
+        private final long windowNanos;
+
+        private volatile LatencyHistogram window = new LatencyHistogram();
+
+        private volatile long windowStartNanos = System.nanoTime();
+
+        // 自适应延迟（纳秒），还没有统计结果时为 -1
+        private volatile long adaptiveDelayNanos = -1;
+
+        MethodHedge(long fixedDelayNanos, double percentile, int minSamples, long windowNanos) {
+            this.fixedDelayNanos = fixedDelayNanos;
+            this.percentile = percentile;
+            this.minSamples = minSamples;
+            this.windowNanos = windowNanos;
+        }
+
+        /**
+         * 当前的对冲延迟（纳秒），-1 表示暂不对冲
+         */
+        long delayNanos() {
+            return fixedDelayNanos >= 0 ? fixedDelayNanos : adaptiveDelayNanos;
+        }
+
+        /**
+         * 记录一次成功请求的延迟
+         */
+        void record(long nanos) {
+            if (fixedDelayNanos >= 0) {
+                return;
+            }
+            window.record(nanos);
+            long now = System.nanoTime();
+            if (now - windowStartNanos >= windowNanos) {
+                rotate(now);
+            }
+        }
+
+        private synchronized void rotate(long now) {
+            if (now - windowStartNanos < windowNanos) {
+                return;
+            }
+            windowStartNanos = now;
+            LatencyHistogram.Snapshot snapshot = window.snapshot();
+            if (snapshot.getCount() < minSamples) {
+                return;
+            }
+            adaptiveDelayNanos = snapshot.getValueAtPercentile(percentile);
+            window = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 一次对冲调用：最多两个请求，先成功的作为结果，都失败时返回第一次请求的异常
+     */
+    private final class HedgedCall {
+
+        private final RpcRequest request;
+
+        private final ServiceMetaInfo primary;
+
+        private final List<ServiceMetaInfo> services;
+
+        private final Map<String, Object> requestParams;
+
+        private final LoadBalancer loadBalancer;
+
+        private final CircuitBreaker circuitBreaker;
+
+        private final long timeoutMillis;
+
+        private final Sender sender;
+
+        private final MethodHedge methodHedge;
+
+        private final CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+
+        // 尚未结束的请求数
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private final long startNanos = System.nanoTime();
+
+        // 两个请求由发送方返回的 future，取消时直接取消它们（熔断器返回的可能是包装后的 future）
+        private volatile CompletableFuture<RpcResponse> primaryFuture;
+
+        private volatile CompletableFuture<RpcResponse> hedgeFuture;
+
+        private volatile Throwable primaryError;
+
+        private volatile Timeout hedgeTimer;
+
+        // 已经有请求成功
+        private volatile boolean succeeded;
+
+        HedgedCall(RpcRequest request, ServiceMetaInfo primary, List<ServiceMetaInfo> services,
+                   Map<String, Object> requestParams, LoadBalancer loadBalancer, CircuitBreaker circuitBreaker,
+                   long timeoutMillis, Sender sender, MethodHedge methodHedge) {
+            this.request = request;
+            this.primary = primary;
+            this.services = services;
+            this.requestParams = requestParams;
+            this.loadBalancer = loadBalancer;
+            this.circuitBreaker = circuitBreaker;
+            this.timeoutMillis = timeoutMillis;
+            this.sender = sender;
+            this.methodHedge = methodHedge;
+        }
+
+        void start() {
+            long delayNanos = methodHedge.delayNanos();
+            CompletableFuture<RpcResponse> future = circuitBreaker.call(request, primary, () -> {
+                primaryFuture = sender.send(primary, timeoutMillis);
+                return primaryFuture;
+            });
+            // 只有一个可用节点、还没有延迟统计或对冲延迟不小于超时时间时不对冲
+            if (delayNanos >= 0 && services.size() > 1 && delayNanos < TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+                    && !future.isDone()) {
+                // 对冲要选择节点、编码、发送，到期后交给公共线程池执行，不占用定时器线程
+                hedgeTimer = TimerUtils.newTimeout(this::hedge,
+                        Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos + 999_999)), ForkJoinPool.commonPool());
+            }
+            future.whenComplete((response, throwable) -> onComplete(response, throwable, true));
+        }
+
+        // 对冲延迟到期（在公共线程池中执行）
+        private void hedge() {
+            pending.incrementAndGet();
+            if (result.isDone() || !budget.tryAcquireRetry()) {
+                pending.decrementAndGet();
+                return;
+            }
+            long remainingMillis = timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            ServiceMetaInfo selected = remainingMillis > 0 ? selectHedgeNode() : null;
+            if (selected == null) {
+                finish();
+                return;
+            }
+            // 记录对冲请求发往的节点，故障转移时不再选择
+            ((List<ServiceMetaInfo>) requestParams.computeIfAbsent("hedgedServices", key -> new ArrayList<>()))
+                    .add(selected);
+            log.debug("对冲请求 {}#{} -> {}:{}", request.getServiceName(), request.getMethodName(),
+                    selected.getServiceHost(), selected.getServicePort());
+            CompletableFuture<RpcResponse> future;
+            try {
+                future = circuitBreaker.call(request, selected, () -> {
+                    hedgeFuture = sender.send(selected, remainingMillis);
+                    return hedgeFuture;
+                });
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            // 对冲请求发出前第一次请求已经成功
+            if (succeeded) {
+                cancel(hedgeFuture);
+            }
+            future.whenComplete((response, throwable) -> onComplete(response, throwable, false));
+        }
+
+        // 选择与第一次请求不同的节点：按负载均衡器选择，选不到其他节点时（例如一致性哈希）取列表中的下一个节点，
+        // 不为对冲单独构造节点列表，避免负载均衡器按列表缓存的状态被反复重建
+        private ServiceMetaInfo selectHedgeNode() {
+            for (int i = 0; i < 2; i++) {
+                ServiceMetaInfo selected = loadBalancer.select(requestParams, services);
+                if (selected != null && !isPrimary(selected)) {
+                    return selected;
+                }
+            }
+            for (int i = 0; i < services.size(); i++) {
+                if (isPrimary(services.get(i))) {
+                    return services.get((i + 1) % services.size());
+                }
+            }
+            return null;
+        }
+
+        private boolean isPrimary(ServiceMetaInfo serviceMetaInfo) {
+            return serviceMetaInfo == primary
+                    || serviceMetaInfo.getServiceNodeKey().equals(primary.getServiceNodeKey());
+        }
+
+        /**
+         * 一个请求结束
+         *
+         * @param isPrimary 是否为第一次请求
+         */
+        private void onComplete(RpcResponse response, Throwable throwable, boolean isPrimary) {
+            if (throwable == null) {
+                // 先取消另一个请求和尚未到期的对冲定时器，再返回结果
+                succeeded = true;
+                cancelHedgeTimer();
+                cancel(isPrimary ? hedgeFuture : primaryFuture);
+                if (result.complete(response)) {
+                    methodHedge.record(System.nanoTime() - startNanos);
+                }
+                return;
+            }
+            // 被取消的另一个请求
+            if (succeeded) {
+                return;
+            }
+            if (isPrimary) {
+                primaryError = throwable;
+                // 第一次请求失败后不再发起对冲，由重试和容错策略处理
+                cancelHedgeTimer();
+            }
+            finish();
+        }
+
+        // 一个请求失败或对冲请求没有发出，所有请求都结束时以第一次请求的异常失败
+        private void finish() {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(primaryError);
+            }
+        }
+
+        private void cancelHedgeTimer() {
+            Timeout timer = hedgeTimer;
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+
+        private void cancel(CompletableFuture<RpcResponse> future) {
+            if (future != null && !future.isDone()) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static class Holder {
+        private static final RequestHedger INSTANCE = new RequestHedger(RpcApplication.getRpcConfig().getHedgeConfig());
+    }
+}
@@ -0,0 +1,119 @@
+package com.ff.fault.retry;
+
+import com.ff.RpcApplication;
+import com.ff.config.RetryConfig;
+import com.ff.model.RpcResponse;
+import com.ff.utils.TimerUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 指数退避 + 全抖动（full jitter）重试：第 n 次重试前在 [0, min(上限, 基数 × 2^(n-1))] 内随机等待，
+ * 大量调用方同时失败时重试被打散，不会一起涌向刚恢复的节点；
+ * 所有调用共享一个重试预算（RetryBudget），预算用完后失败直接返回。
+ * 异步重试的等待由时间轮定时器调度，不占用任何线程，到期后的重试交给公共线程池执行
+ */
+@Slf4j
+public class ExponentialBackoffRetryStrategy implements RetryStrategy {
+
+    private final int maxAttempts;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final RetryBudget retryBudget;
+
+    public ExponentialBackoffRetryStrategy() {
+        this(RpcApplication.getRpcConfig().getRetryConfig());
+    }
+
+    public ExponentialBackoffRetryStrategy(RetryConfig retryConfig) {
+        this.maxAttempts = Math.max(1, retryConfig.getMaxAttempts());
+        this.baseDelayMillis = Math.max(0, retryConfig.getBaseDelayMillis());
+        this.maxDelayMillis = Math.max(baseDelayMillis, retryConfig.getMaxDelayMillis());
+        this.retryBudget = new RetryBudget(retryConfig.getBudgetPercent(),
+                retryConfig.getBudgetMinRetriesPerSecond(), retryConfig.getBudgetWindowSeconds());
+    }
+
+    // 同步重试，等待期间阻塞调用线程
+    @Override
+    public RpcResponse retry(Callable<RpcResponse> callable) throws Exception {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                RpcResponse rpcResponse = callable.call();
+                retryBudget.recordSuccess();
+                return rpcResponse;
+            } catch (Exception e) {
+                if (!shouldRetry(attemptNumber)) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(backoffMillis(attemptNumber));
+            }
+        }
+    }
+
+    // 异步重试，等待通过时间轮调度
+    @Override
+    public CompletableFuture<RpcResponse> retryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+        attempt(supplier, 1, result);
+        return result;
+    }
+
+    private void attempt(Supplier<CompletableFuture<RpcResponse>> supplier, int attemptNumber,
+                         CompletableFuture<RpcResponse> result) {
+        CompletableFuture<RpcResponse> future;
+        try {
+            future = supplier.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((rpcResponse, throwable) -> {
+            if (throwable == null) {
+                retryBudget.recordSuccess();
+                result.complete(rpcResponse);
+                return;
+            }
+            if (!shouldRetry(attemptNumber)) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            // 重试要选择节点、编码、发送，不能在定时器线程中执行
+            TimerUtils.newTimeout(() -> attempt(supplier, attemptNumber + 1, result), backoffMillis(attemptNumber),
+                    ForkJoinPool.commonPool());
+        });
+    }
+
+    // 是否还能进行下一次尝试：次数未用完且重试预算未用完
+    private boolean shouldRetry(int attemptNumber) {
+        if (attemptNumber >= maxAttempts) {
+            return false;
+        }
+        if (!retryBudget.tryAcquireRetry()) {
+            log.warn("重试预算已用完，放弃第 {} 次重试", attemptNumber);
+            return false;
+        }
+        log.error("当前重试次数为：{}", attemptNumber);
+        return true;
+    }
+
+    /**
+     * 第 attemptNumber 次尝试失败后的等待时间（毫秒）
+     */
+    long backoffMillis(int attemptNumber) {
+        int shift = Math.min(attemptNumber - 1, 30);
+        // 左移会溢出或超过上限时直接取上限
+        long ceiling = shift >= Long.numberOfLeadingZeros(baseDelayMillis) - 1
+                || (baseDelayMillis << shift) > maxDelayMillis ? maxDelayMillis : baseDelayMillis << shift;
+        return ceiling == Long.MAX_VALUE
+                ? ThreadLocalRandom.current().nextLong(ceiling)
+                : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -1,23 +1,33 @@
 package com.ff.fault.retry;
 
 import com.ff.model.RpcResponse;
+import com.ff.utils.TimerUtils;
 import com.github.rholder.retry.*;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 // 固定时间间隔重试
 @Slf4j
 public class FixedIntervalRetryStrategy implements RetryStrategy {
 
+    // 重试间隔（秒）
+    private static final long WAIT_SECONDS = 3L;
+
+    // 最大尝试次数
+    private static final int MAX_ATTEMPTS = 3;
+
     // 重试，采用guava的retryer实现
     @Override
     public RpcResponse retry(Callable<RpcResponse> callable) throws Exception {
         Retryer<RpcResponse> retryer = RetryerBuilder.<RpcResponse>newBuilder()
                 .retryIfExceptionOfType(Exception.class) // 重试类型
-                .withWaitStrategy(WaitStrategies.fixedWait(3L, TimeUnit.SECONDS)) // 间隔几秒进行重试
-                .withStopStrategy(StopStrategies.stopAfterAttempt(3)) // 最大重试次数
+                .withWaitStrategy(WaitStrategies.fixedWait(WAIT_SECONDS, TimeUnit.SECONDS)) // 间隔几秒进行重试
+                .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS)) // 最大重试次数
                 .withRetryListener(new RetryListener() { // 监听重试
                     @Override
                     public <V> void onRetry(Attempt<V> attempt) {
@@ -26,4 +36,35 @@ public class FixedIntervalRetryStrategy implements RetryStrategy {
                 }).build();
         return retryer.call(callable);
     }
+
+    // 异步重试，等待通过时间轮调度，不阻塞线程
+    @Override
+    public CompletableFuture<RpcResponse> retryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+        attempt(supplier, 1, result);
+        return result;
+    }
+
+    private void attempt(Supplier<CompletableFuture<RpcResponse>> supplier, int attemptNumber,
+                         CompletableFuture<RpcResponse> result) {
+        CompletableFuture<RpcResponse> future;
+        try {
+            future = supplier.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((rpcResponse, throwable) -> {
+            if (throwable == null) {
+                result.complete(rpcResponse);
+                return;
+            }
+            log.error("当前重试次数为：{}", attemptNumber);
+            if (attemptNumber >= MAX_ATTEMPTS) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            TimerUtils.newTimeout(() -> attempt(supplier, attemptNumber + 1, result),
+                    TimeUnit.SECONDS.toMillis(WAIT_SECONDS), ForkJoinPool.commonPool());
+        });
+    }
 }
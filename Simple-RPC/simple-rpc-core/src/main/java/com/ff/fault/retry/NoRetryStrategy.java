@@ -3,6 +3,8 @@ package com.ff.fault.retry;
 import com.ff.model.RpcResponse;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 // 不重试策略
 public class NoRetryStrategy implements RetryStrategy{
@@ -12,4 +14,10 @@ public class NoRetryStrategy implements RetryStrategy{
     public RpcResponse retry(Callable<RpcResponse> callable) throws Exception {
         return callable.call();
     }
+
+    // 异步调用，直接返回
+    @Override
+    public CompletableFuture<RpcResponse> retryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        return supplier.get();
+    }
 }
@@ -0,0 +1,87 @@
+package com.ff.fault.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客户端范围的重试预算：最近 windowSeconds 秒内的重试次数不超过
+ * 成功调用次数 × percent% + minRetriesPerSecond × windowSeconds。
+ * 集群正常时偶发的失败都能重试；大面积故障时成功调用骤减，重试随之被限制，不会把负载放大到原来的几倍。
+ * 按秒分桶计数，记录只做原子自增，只有分桶过期需要清零时才对该桶加锁
+ */
+public class RetryBudget {
+
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int percent;
+
+    private final long minRetries;
+
+    private final Bucket[] buckets;
+
+    public RetryBudget(int percent, int minRetriesPerSecond, int windowSeconds) {
+        this.percent = Math.max(0, percent);
+        int window = Math.max(1, windowSeconds);
+        this.minRetries = (long) Math.max(0, minRetriesPerSecond) * window;
+        this.buckets = new Bucket[window];
+        for (int i = 0; i < window; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 记录一次成功的调用
+     */
+    public void recordSuccess() {
+        current(System.nanoTime()).successes.incrementAndGet();
+    }
+
+    /**
+     * 申请一次重试，预算用完时返回 false
+     * 并发申请时可能略微超出预算，不影响限制效果
+     */
+    public boolean tryAcquireRetry() {
+        long now = System.nanoTime();
+        long epoch = now / BUCKET_NANOS;
+        long successes = 0;
+        long retries = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket.epoch > epoch - buckets.length) {
+                successes += bucket.successes.get();
+                retries += bucket.retries.get();
+            }
+        }
+        if (retries >= minRetries + successes * percent / 100) {
+            return false;
+        }
+        current(now).retries.incrementAndGet();
+        return true;
+    }
+
+    private Bucket current(long now) {
+        long epoch = now / BUCKET_NANOS;
+        Bucket bucket = buckets[Math.floorMod(epoch, buckets.length)];
+        if (bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.successes.set(0);
+                    bucket.retries.set(0);
+                    bucket.epoch = epoch;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * 一秒内的成功调用数和重试数
+     */
+    private static final class Bucket {
+
+        private volatile long epoch = Long.MIN_VALUE;
+
+        private final AtomicLong successes = new AtomicLong();
+
+        private final AtomicLong retries = new AtomicLong();
+    }
+}
@@ -3,9 +3,28 @@ package com.ff.fault.retry;
 import com.ff.model.RpcResponse;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 // 重试策略接口
 public interface RetryStrategy {
     // 重试
     RpcResponse retry(Callable<RpcResponse> callable) throws Exception;
+
+    /**
+     * 异步重试，重试等待不占用任何线程
+     * 默认实现用于兼容自定义的同步重试策略：在公共线程池中执行同步重试，内置策略均重写为非阻塞实现
+     *
+     * @param supplier 每次调用都发起一次新的异步请求
+     * @return 最终结果
+     */
+    default CompletableFuture<RpcResponse> retryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return retry(() -> supplier.get().get());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
 }
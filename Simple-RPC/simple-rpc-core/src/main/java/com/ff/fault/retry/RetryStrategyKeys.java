@@ -6,5 +6,8 @@ public interface RetryStrategyKeys {
     String NO = "no";
 
     // 固定时间间隔重试
-    String FIXED_INTERVAL = "fixedinterval";
+    String FIXED_INTERVAL = "fixedInterval";
+
+    // 指数退避 + 全抖动重试，受重试预算限制
+    String EXPONENTIAL_BACKOFF = "exponentialBackoff";
 }
@@ -0,0 +1,217 @@
+package com.ff.fault.tolerant;
+
+import com.ff.RpcApplication;
+import com.ff.config.RpcConfig;
+import com.ff.fault.circuitbreaker.CircuitBreaker;
+import com.ff.fault.circuitbreaker.CircuitBreakerFactory;
+import com.ff.loadbalancer.LoadBalancer;
+import com.ff.loadbalancer.LoadBalancerFactory;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.server.tcp.VertxTcpClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 故障转移：调用失败后换一个没有尝试过的节点重新调用
+ * 本次调用已经尝试过的节点（context 中的 selectedService、hedgedServices 以及故障转移中选过的节点）不会再被选中；
+ * 总尝试次数不超过 failoverMaxAttempts（包含第一次调用），
+ * 所有尝试共用调用方的超时时间：从 context 中的 startNanos 开始计算，每次尝试只使用剩余的时间，时间用完后不再转移
+ */
+@Slf4j
+public class FailOverTolerantStrategy implements TolerantStrategy {
+
+    /**
+     * 向指定节点发送一次请求
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<RpcResponse> send(RpcRequest request, ServiceMetaInfo serviceMetaInfo, long timeoutMillis);
+    }
+
+    private final RpcConfig rpcConfig;
+
+    private final Sender sender;
+
+    public FailOverTolerantStrategy() {
+        this(RpcApplication.getRpcConfig(), VertxTcpClient::sendAsync);
+    }
+
+    public FailOverTolerantStrategy(RpcConfig rpcConfig, Sender sender) {
+        this.rpcConfig = rpcConfig;
+        this.sender = sender;
+    }
+
+    @Override
+    public RpcResponse tolerant(Map<String, Object> context, Exception e) {
+        try {
+            return tolerantAsync(context, e).get();
+        } catch (ExecutionException exception) {
+            throw exception.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : new RuntimeException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("服务调用失败！", exception);
+        }
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> tolerantAsync(Map<String, Object> context, Exception e) {
+        RpcRequest request = (RpcRequest) context.get("request");
+        List<ServiceMetaInfo> services = (List<ServiceMetaInfo>) context.get("services");
+        if (request == null || services == null) {
+            return CompletableFuture.failedFuture(new RuntimeException("服务调用失败！", e));
+        }
+        long timeoutMillis = rpcConfig.getTimeout(request.getServiceName(), request.getMethodName());
+        Object startNanos = context.get("startNanos");
+        long deadlineNanos = (startNanos instanceof Long start ? start : System.nanoTime())
+                + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        Failover failover = new Failover(context, request, services, deadlineNanos,
+                LoadBalancerFactory.getInstance(rpcConfig.getLoadBalancer()),
+                CircuitBreakerFactory.getInstance(rpcConfig.getCircuitBreaker()),
+                Math.max(1, rpcConfig.getFailoverMaxAttempts()), sender);
+        Object selectedService = context.get("selectedService");
+        if (selectedService instanceof ServiceMetaInfo serviceMetaInfo) {
+            failover.tried.add(serviceMetaInfo);
+        }
+        // 对冲请求发往的节点也已经尝试过
+        if (context.get("hedgedServices") instanceof List<?> hedgedServices) {
+            for (Object hedgedService : hedgedServices) {
+                if (hedgedService instanceof ServiceMetaInfo serviceMetaInfo) {
+                    failover.tried.add(serviceMetaInfo);
+                }
+            }
+        }
+        // 第一次调用（包括重试策略对同一节点的重试）计为一次尝试
+        failover.attemptAsync(1, e);
+        return failover.result;
+    }
+
+    /**
+     * 一次调用的故障转移状态，各次尝试依次进行（每次都在公共线程池中执行），不会并发访问
+     */
+    private static final class Failover {
+
+        private final Map<String, Object> context;
+
+        private final RpcRequest request;
+
+        private final List<ServiceMetaInfo> services;
+
+        private final long deadlineNanos;
+
+        private final LoadBalancer loadBalancer;
+
+        private final CircuitBreaker circuitBreaker;
+
+        private final int maxAttempts;
+
+        private final Sender sender;
+
+        // 本次调用已经尝试过的节点
+        private final List<ServiceMetaInfo> tried = new ArrayList<>();
+
+        private final CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+
+        Failover(Map<String, Object> context, RpcRequest request, List<ServiceMetaInfo> services, long deadlineNanos,
+                 LoadBalancer loadBalancer, CircuitBreaker circuitBreaker, int maxAttempts, Sender sender) {
+            this.context = context;
+            this.request = request;
+            this.services = services;
+            this.deadlineNanos = deadlineNanos;
+            this.loadBalancer = loadBalancer;
+            this.circuitBreaker = circuitBreaker;
+            this.maxAttempts = maxAttempts;
+            this.sender = sender;
+        }
+
+        /**
+         * 上一次尝试失败后，换一个节点进行下一次尝试
+         *
+         * @param attempts  已经进行的尝试次数
+         * @param lastError 上一次尝试的异常
+         */
+        void attempt(int attempts, Throwable lastError) {
+            if (attempts >= maxAttempts) {
+                fail("故障转移次数已用完", lastError);
+                return;
+            }
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                fail("调用已超时", new TimeoutException("故障转移超过调用的超时时间: "
+                        + request.getServiceName() + "#" + request.getMethodName()));
+                return;
+            }
+            ServiceMetaInfo selected = select();
+            if (selected == null) {
+                fail("没有可转移的服务节点", lastError);
+                return;
+            }
+            tried.add(selected);
+            log.warn("故障转移 {}#{} -> {}:{}（第 {} 次尝试）", request.getServiceName(), request.getMethodName(),
+                    selected.getServiceHost(), selected.getServicePort(), attempts + 1);
+            CompletableFuture<RpcResponse> future;
+            try {
+                future = circuitBreaker.call(request, selected, () -> sender.send(request, selected, remainingMillis));
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((rpcResponse, throwable) -> {
+                if (throwable == null) {
+                    result.complete(rpcResponse);
+                } else {
+                    attemptAsync(attempts + 1, throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable);
+                }
+            });
+        }
+
+        // 失败的 future 通常由定时器线程（超时）或事件循环完成，下一次尝试的选择节点、编码和发送不在这些线程上执行
+        void attemptAsync(int attempts, Throwable lastError) {
+            ForkJoinPool.commonPool().execute(() -> attempt(attempts, lastError));
+        }
+
+        // 不为排除尝试过的节点单独构造列表，避免每次尝试都分配列表，以及负载均衡器按列表缓存的状态被反复重建：
+        // 先按负载均衡器从完整列表中选择，选到尝试过的节点时从该节点之后找第一个没有尝试过的节点
+        private ServiceMetaInfo select() {
+            ServiceMetaInfo selected = loadBalancer.select(context, services);
+            if (tried.isEmpty() || (selected != null && !isTried(selected))) {
+                return selected;
+            }
+            int size = services.size();
+            int start = selected == null ? -1 : services.indexOf(selected);
+            for (int i = 1; i <= size; i++) {
+                ServiceMetaInfo candidate = services.get(Math.floorMod(start + i, size));
+                if (!isTried(candidate)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        private boolean isTried(ServiceMetaInfo serviceMetaInfo) {
+            for (ServiceMetaInfo triedService : tried) {
+                if (triedService.getServiceNodeKey().equals(serviceMetaInfo.getServiceNodeKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void fail(String reason, Throwable lastError) {
+            log.error("故障转移结束：{}，已尝试 {} 个节点", reason, tried.size());
+            result.completeExceptionally(new RuntimeException("服务调用失败！", lastError));
+        }
+    }
+}
@@ -3,9 +3,21 @@ package com.ff.fault.tolerant;
 import com.ff.model.RpcResponse;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 // 服务容错
 public interface TolerantStrategy {
 
     RpcResponse tolerant(Map<String, Object> context, Exception e);
+
+    /**
+     * 异步容错，默认直接复用同步实现（同步实现本身不阻塞时即可），需要发起远程调用的策略应重写该方法
+     */
+    default CompletableFuture<RpcResponse> tolerantAsync(Map<String, Object> context, Exception e) {
+        try {
+            return CompletableFuture.completedFuture(tolerant(context, e));
+        } catch (Exception exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
 }
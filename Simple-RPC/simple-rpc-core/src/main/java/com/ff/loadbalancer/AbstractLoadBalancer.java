@@ -0,0 +1,65 @@
+package com.ff.loadbalancer;
+
+import cn.hutool.core.collection.CollUtil;
+import com.ff.model.ServiceMetaInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 负载均衡器基类：处理空列表和单节点的情况，并提供各负载均衡器共用的节点权重计算
+ * 节点权重包含预热：刚注册的节点在预热时间内按运行时长线性提升权重，
+ * 避免 JIT 尚未完成编译的新节点一上线就承接全部流量，每次发布都出现一次延迟尖刺
+ */
+public abstract class AbstractLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        if (CollUtil.isEmpty(serviceMetaInfoList)) {
+            return null;
+        }
+        // 如果只有一个服务器，那么就直接返回
+        if (serviceMetaInfoList.size() == 1) {
+            return serviceMetaInfoList.getFirst();
+        }
+        return doSelect(requestParams, serviceMetaInfoList);
+    }
+
+    /**
+     * 从至少两个节点中选择一个
+     */
+    protected abstract ServiceMetaInfo doSelect(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList);
+
+    /**
+     * 节点当前的有效权重（包含预热）
+     */
+    protected static int getWeight(ServiceMetaInfo serviceMetaInfo) {
+        return getWeight(serviceMetaInfo, System.currentTimeMillis());
+    }
+
+    /**
+     * 节点在 nowMillis 时刻的有效权重：未配置权重时使用默认权重，负数按 0 处理；
+     * 注册时长不足预热时间时，权重按 注册时长 / 预热时间 线性折算，最小为 1
+     *
+     * @param serviceMetaInfo 服务节点
+     * @param nowMillis       当前时间（毫秒），一次选择中对所有节点使用同一个时间
+     */
+    protected static int getWeight(ServiceMetaInfo serviceMetaInfo, long nowMillis) {
+        Integer configuredWeight = serviceMetaInfo.getWeight();
+        int weight = configuredWeight == null ? ServiceMetaInfo.DEFAULT_WEIGHT : Math.max(configuredWeight, 0);
+        Long registerTime = serviceMetaInfo.getRegisterTime();
+        Integer warmup = serviceMetaInfo.getWarmup();
+        if (weight == 0 || registerTime == null || warmup == null || warmup <= 0) {
+            return weight;
+        }
+        long uptime = nowMillis - registerTime;
+        if (uptime >= warmup) {
+            return weight;
+        }
+        // 提供者的时钟比本机快时注册时长为负，按刚注册处理
+        if (uptime <= 0) {
+            return 1;
+        }
+        return (int) Math.max(1, uptime * weight / warmup);
+    }
+}
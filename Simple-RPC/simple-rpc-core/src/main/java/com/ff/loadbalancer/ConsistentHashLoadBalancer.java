@@ -1,62 +1,259 @@
 package com.ff.loadbalancer;
 
+import cn.hutool.core.lang.hash.MurmurHash;
+import com.ff.RpcApplication;
+import com.ff.model.RpcRequest;
 import com.ff.model.ServiceMetaInfo;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 一致性哈希负载均衡器（线程安全版）
+ * 每个服务键对应一个不可变的哈希环，只有服务节点列表变化时才重新构建并整体替换，
+ * 选择节点时只做一次 Murmur3 哈希和一次有序数组上的二分查找，不加锁、不分配对象（哈希键的拼接除外）。
+ * 列表对象变化时先比较指纹（节点数 + 与顺序无关的节点哈希之和），指纹相同再逐个确认节点，都不分配对象；
+ * 节点相同时复用原来的环，只替换为新列表中的节点对象。
+ * 排除了部分节点的子列表（例如熔断过滤后的列表）单独缓存，不会替换完整节点列表的环
  */
-public class ConsistentHashLoadBalancer implements LoadBalancer {
+public class ConsistentHashLoadBalancer extends AbstractLoadBalancer {
 
     /**
-     * 一致性 Hash 环，存放虚拟节点（线程安全）
+     * 虚拟节点数
      */
-    // TODO:后续改成ConcurrentHashMap存放，服务名：ConcurrentSkipListMap，一次初始化，只有在服务列表变动时才重新构建
-    private final ConcurrentSkipListMap<Integer, ServiceMetaInfo> virtualNodes = new ConcurrentSkipListMap<>();
+    private static final int VIRTUAL_NODE_NUM = 100;
 
     /**
-     * 虚拟节点数
+     * 服务键 -> 一致性 Hash 环
      */
-    private static final int VIRTUAL_NODE_NUM = 100;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    /**
+     * 服务键 -> 最近一次使用的子列表的哈希环
+     */
+    private final Map<String, Ring> subsetRings = new ConcurrentHashMap<>();
+
+    /**
+     * 参与哈希的参数下标，为空时按方法名哈希
+     */
+    private final int[] hashArguments;
+
+    public ConsistentHashLoadBalancer() {
+        this(RpcApplication.getRpcConfig().getConsistentHashArguments().stream()
+                .mapToInt(Integer::intValue)
+                .toArray());
+    }
+
+    public ConsistentHashLoadBalancer(int[] hashArguments) {
+        this.hashArguments = hashArguments == null ? new int[0] : hashArguments.clone();
+    }
 
     @Override
-    public ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
-        if (serviceMetaInfoList.isEmpty()) {
-            return null;
+    protected ServiceMetaInfo doSelect(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        Ring ring = getRing(serviceMetaInfoList);
+        // 获取调用请求的 hash 值，选择最接近且大于等于该值的虚拟节点
+        return ring.select(getHash(hashKey(requestParams)));
+    }
+
+    // 获取服务节点列表对应的哈希环，节点列表没有变化时直接复用
+    private Ring getRing(List<ServiceMetaInfo> serviceMetaInfoList) {
+        String serviceKey = serviceMetaInfoList.getFirst().getServiceKey();
+        Ring ring = rings.get(serviceKey);
+        // 注册中心缓存未刷新时返回的是同一个列表对象
+        if (ring != null && ring.source == serviceMetaInfoList) {
+            return ring;
+        }
+        Ring subsetRing = subsetRings.get(serviceKey);
+        if (subsetRing != null && subsetRing.source == serviceMetaInfoList) {
+            return subsetRing;
+        }
+        long fingerprint = fingerprint(serviceMetaInfoList);
+        // 列表对象变了但节点没变（例如注册中心重新拉取），共用原来的环
+        if (ring != null && ring.matches(serviceMetaInfoList, fingerprint)) {
+            ring = new Ring(serviceMetaInfoList, ring);
+            rings.put(serviceKey, ring);
+            return ring;
+        }
+        if (subsetRing != null && subsetRing.matches(serviceMetaInfoList, fingerprint)) {
+            subsetRing = new Ring(serviceMetaInfoList, subsetRing);
+            subsetRings.put(serviceKey, subsetRing);
+            return subsetRing;
         }
+        Ring newRing = new Ring(serviceMetaInfoList, fingerprint);
+        if (ring != null && serviceMetaInfoList.size() < ring.sourceSize && ring.containsAll(serviceMetaInfoList)) {
+            // 完整列表的子列表，不替换完整列表的环
+            subsetRings.put(serviceKey, newRing);
+        } else {
+            rings.put(serviceKey, newRing);
+            subsetRings.remove(serviceKey);
+        }
+        return newRing;
+    }
 
-        // 构建虚拟节点环（注意：这里会重复累加虚拟节点，可以考虑清空再构建）
-        virtualNodes.clear();
-        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
-            for (int i = 0; i < VIRTUAL_NODE_NUM; i++) {
-                int hash = getHash(serviceMetaInfo.getServiceAddress() + "#" + i);
-                virtualNodes.put(hash, serviceMetaInfo);
+    // 根据配置的参数下标拼接哈希键，例如按用户 id 哈希，使同一用户的请求总是落到同一个节点上
+    private String hashKey(Map<String, Object> requestParams) {
+        Object request = requestParams.get("request");
+        Object[] parameters = request instanceof RpcRequest rpcRequest ? rpcRequest.getParameters() : null;
+        if (hashArguments.length > 0 && parameters != null) {
+            StringBuilder key = null;
+            for (int index : hashArguments) {
+                if (index < 0 || index >= parameters.length) {
+                    continue;
+                }
+                if (key == null) {
+                    key = new StringBuilder();
+                } else {
+                    key.append(',');
+                }
+                key.append(parameters[index]);
+            }
+            if (key != null) {
+                return key.toString();
             }
         }
+        // 没有可用的参数时按方法名哈希
+        Object methodName = requestParams.get("methodName");
+        return methodName == null ? "" : methodName.toString();
+    }
 
-        // 获取调用请求的 hash 值
-        String key = (String) requestParams.get("methodName");
-        int hash = getHash(key);
+    // 节点列表的指纹：各节点标识哈希之和，与节点顺序无关
+    private static long fingerprint(List<ServiceMetaInfo> serviceMetaInfoList) {
+        long fingerprint = 0;
+        for (int i = 0; i < serviceMetaInfoList.size(); i++) {
+            fingerprint += nodeKey(serviceMetaInfoList.get(i));
+        }
+        return fingerprint;
+    }
 
-        // 选择最接近且大于等于调用请求 hash 值的虚拟节点
-        Map.Entry<Integer, ServiceMetaInfo> entry = virtualNodes.ceilingEntry(hash);
-        if (entry == null) {
-            // 如果没有大于等于调用请求 hash 值的虚拟节点，则返回环首部的节点
-            entry = virtualNodes.firstEntry();
+    // 节点标识（host:port）的 64 位哈希，直接遍历字符计算，不拼接字符串
+    private static long nodeKey(ServiceMetaInfo serviceMetaInfo) {
+        String host = serviceMetaInfo.getServiceHost();
+        long hash = 1125899906842597L;
+        if (host != null) {
+            for (int i = 0; i < host.length(); i++) {
+                hash = 31 * hash + host.charAt(i);
+            }
         }
-        return entry.getValue();
+        hash = 31 * hash + Objects.hashCode(serviceMetaInfo.getServicePort());
+        // murmur3 fmix64，让相近的输入在 64 位上充分打散
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
     }
 
     /**
-     * Hash 算法，可自行实现
+     * Hash 算法：Murmur3（32 位），分布比 String.hashCode 均匀得多，虚拟节点在环上不会扎堆
      *
      * @param key
      * @return
      */
-    private int getHash(Object key) {
-        return key.hashCode();
+    static int getHash(String key) {
+        return MurmurHash.hash32(key);
+    }
+
+    /**
+     * 不可变的一致性 Hash 环：虚拟节点的哈希值按升序存放在 int 数组中，owners 为对应虚拟节点所属节点的下标
+     */
+    private static final class Ring {
+
+        // 构建该环时的节点列表，用于快速判断列表是否变化
+        private final List<ServiceMetaInfo> source;
+
+        private final int sourceSize;
+
+        private final long fingerprint;
+
+        // 去重、排序后的节点标识哈希，nodes 为对应下标的节点对象
+        private final long[] nodeKeys;
+
+        private final ServiceMetaInfo[] nodes;
+
+        private final int[] hashes;
+
+        private final int[] owners;
+
+        Ring(List<ServiceMetaInfo> source, long fingerprint) {
+            this.source = source;
+            this.sourceSize = source.size();
+            this.fingerprint = fingerprint;
+            long[] keys = new long[sourceSize];
+            for (int i = 0; i < sourceSize; i++) {
+                keys[i] = nodeKey(source.get(i));
+            }
+            Arrays.sort(keys);
+            int unique = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (i == 0 || keys[i] != keys[i - 1]) {
+                    keys[unique++] = keys[i];
+                }
+            }
+            this.nodeKeys = Arrays.copyOf(keys, unique);
+            this.nodes = nodesOf(source, nodeKeys);
+            // 高 32 位为哈希值，低 32 位为节点下标，排序一个 long 数组即可同时得到有序的哈希值和对应节点
+            long[] entries = new long[unique * VIRTUAL_NODE_NUM];
+            int n = 0;
+            for (int i = 0; i < unique; i++) {
+                String address = nodes[i].getServiceAddress();
+                for (int j = 0; j < VIRTUAL_NODE_NUM; j++) {
+                    entries[n++] = ((long) getHash(address + "#" + j) << 32) | i;
+                }
+            }
+            Arrays.sort(entries);
+            this.hashes = new int[entries.length];
+            this.owners = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                hashes[i] = (int) (entries[i] >> 32);
+                owners[i] = (int) entries[i];
+            }
+        }
+
+        // 节点没有变化，复用环的结构，节点对象换成新列表中的对象
+        Ring(List<ServiceMetaInfo> source, Ring ring) {
+            this.source = source;
+            this.sourceSize = source.size();
+            this.fingerprint = ring.fingerprint;
+            this.nodeKeys = ring.nodeKeys;
+            this.nodes = nodesOf(source, nodeKeys);
+            this.hashes = ring.hashes;
+            this.owners = ring.owners;
+        }
+
+        private static ServiceMetaInfo[] nodesOf(List<ServiceMetaInfo> source, long[] nodeKeys) {
+            ServiceMetaInfo[] nodes = new ServiceMetaInfo[nodeKeys.length];
+            for (ServiceMetaInfo serviceMetaInfo : source) {
+                nodes[Arrays.binarySearch(nodeKeys, nodeKey(serviceMetaInfo))] = serviceMetaInfo;
+            }
+            return nodes;
+        }
+
+        // 节点数和指纹都相同，并且每个节点都在环上
+        boolean matches(List<ServiceMetaInfo> serviceMetaInfoList, long fingerprint) {
+            return serviceMetaInfoList.size() == sourceSize && this.fingerprint == fingerprint
+                    && containsAll(serviceMetaInfoList);
+        }
+
+        boolean containsAll(List<ServiceMetaInfo> serviceMetaInfoList) {
+            for (int i = 0; i < serviceMetaInfoList.size(); i++) {
+                if (Arrays.binarySearch(nodeKeys, nodeKey(serviceMetaInfoList.get(i))) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        ServiceMetaInfo select(int hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            // 如果没有大于等于调用请求 hash 值的虚拟节点，则返回环首部的节点
+            return nodes[owners[index == hashes.length ? 0 : index]];
+        }
     }
 }
@@ -14,4 +14,14 @@ public interface LoadBalancerKeys {
 
     String CONSISTENT_HASH = "consistentHash";
 
+    /**
+     * 两次随机选择，比较在途请求数与平均响应时间
+     */
+    String P2C_EWMA = "p2cEwma";
+
+    /**
+     * 平滑加权轮询，按服务元信息中的权重分配
+     */
+    String WEIGHTED_ROUND_ROBIN = "weightedRoundRobin";
+
 }
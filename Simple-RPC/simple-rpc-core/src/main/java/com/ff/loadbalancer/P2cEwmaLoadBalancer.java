@@ -0,0 +1,52 @@
+package com.ff.loadbalancer;
+
+import com.ff.model.ServiceMetaInfo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 负载均衡：两次随机选择（power of two choices）
+ * 随机选出两个不同的节点，取 (在途请求数 + 1) × 平均响应时间 较小的一个，
+ * 统计来自客户端自身的请求跟踪（ProviderStats），变慢（如 GC 停顿）或积压的节点会很快被避开；
+ * 得分再除以节点的有效权重（包含预热），权重大的节点能承担成比例更多的在途请求，预热中的节点少分流量；
+ * 选择过程只读取原子变量，不加锁
+ */
+public class P2cEwmaLoadBalancer extends AbstractLoadBalancer {
+
+    public P2cEwmaLoadBalancer() {
+        ProviderStats.enableTracking();
+    }
+
+    @Override
+    protected ServiceMetaInfo doSelect(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        int size = serviceMetaInfoList.size();
+        // 随机选出两个不同的下标
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceMetaInfo firstService = serviceMetaInfoList.get(first);
+        ServiceMetaInfo secondService = serviceMetaInfoList.get(second);
+        ProviderStats firstStats = ProviderStats.get(firstService);
+        ProviderStats secondStats = ProviderStats.get(secondService);
+
+        long nowMillis = System.currentTimeMillis();
+        int firstWeight = getWeight(firstService, nowMillis);
+        int secondWeight = getWeight(secondService, nowMillis);
+
+        // 任意一个节点还没有响应样本时只比较在途请求数
+        double firstScore = firstStats.getInFlight() + 1;
+        double secondScore = secondStats.getInFlight() + 1;
+        if (firstStats.hasSample() && secondStats.hasSample()) {
+            long now = System.nanoTime();
+            firstScore *= firstStats.decayedEwma(now);
+            secondScore *= secondStats.decayedEwma(now);
+        }
+        // 比较 得分 / 权重，交叉相乘避免除以 0（权重为 0 的节点只在两个都为 0 时被选中）
+        return firstScore * secondWeight <= secondScore * firstWeight ? firstService : secondService;
+    }
+}
@@ -0,0 +1,100 @@
+package com.ff.loadbalancer;
+
+import com.ff.model.ServiceMetaInfo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端对每个服务节点（host:port）的实时统计：在途请求数和响应时间的峰值 EWMA（指数加权移动平均）
+ * 由 VertxTcpClient 在请求发出和结束时更新，负载均衡器读取时不加锁。
+ * 只有使用了依赖这些统计的负载均衡器时才会记录（见 enableTracking）
+ */
+public class ProviderStats {
+
+    // 衰减时间常数：平均值大约覆盖最近 1 秒的响应，长时间没有响应的节点其平均值逐渐衰减到 0，重新获得流量
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Map<String, ProviderStats> statsMap = new ConcurrentHashMap<>();
+
+    private static volatile boolean tracking;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // 响应时间的 EWMA（纳秒），并发更新时可能丢失个别样本，不影响选择效果
+    private volatile double ewmaNanos;
+
+    // 最近一次更新 EWMA 的时间（System.nanoTime），0 表示还没有样本
+    private volatile long lastUpdateNanos;
+
+    /**
+     * 获取服务节点的统计
+     */
+    public static ProviderStats get(ServiceMetaInfo serviceMetaInfo) {
+        String endpoint = serviceMetaInfo.getServiceHost() + ":" + serviceMetaInfo.getServicePort();
+        ProviderStats stats = statsMap.get(endpoint);
+        return stats != null ? stats : statsMap.computeIfAbsent(endpoint, key -> new ProviderStats());
+    }
+
+    /**
+     * 开始记录统计，由依赖统计的负载均衡器在创建时调用
+     */
+    static void enableTracking() {
+        tracking = true;
+    }
+
+    public static boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * 请求发出
+     */
+    public void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param rttNanos 从发起请求到结束的耗时
+     * @param success  是否成功，失败的请求按至少两倍的当前平均值计入，失败的节点会被避开
+     */
+    public void end(long rttNanos, boolean success) {
+        inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        double current = decayedEwma(now);
+        double sample = success ? rttNanos : Math.max(rttNanos, current * 2);
+        if (sample > current) {
+            // 峰值 EWMA：响应变慢时立即生效，变快时按时间逐渐衰减
+            ewmaNanos = sample;
+        } else {
+            double weight = Math.exp(-(now - lastUpdateNanos) / DECAY_NANOS);
+            ewmaNanos = current * weight + sample * (1 - weight);
+        }
+        lastUpdateNanos = now;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean hasSample() {
+        return lastUpdateNanos != 0;
+    }
+
+    /**
+     * 按距离上次更新的时间衰减后的平均响应时间（纳秒）
+     *
+     * @param now 当前时间（System.nanoTime）
+     */
+    public double decayedEwma(long now) {
+        long last = lastUpdateNanos;
+        if (last == 0) {
+            return 0;
+        }
+        return ewmaNanos * Math.exp(-(now - last) / DECAY_NANOS);
+    }
+}
@@ -1,27 +1,38 @@
 package com.ff.loadbalancer;
 
-import cn.hutool.core.collection.CollUtil;
 import com.ff.model.ServiceMetaInfo;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
-// 负载均衡：随机算法
-public class RandomLoadBalancer implements LoadBalancer {
+// 负载均衡：随机算法（节点权重不同或有节点在预热时按权重随机）
+public class RandomLoadBalancer extends AbstractLoadBalancer {
     private final Random random = new Random();
 
     @Override
-    public ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
-        if (CollUtil.isEmpty(serviceMetaInfoList)) {
-            return null;
+    protected ServiceMetaInfo doSelect(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        int size = serviceMetaInfoList.size();
+        long now = System.currentTimeMillis();
+        int[] weights = new int[size];
+        int totalWeight = 0;
+        boolean sameWeight = true;
+        for (int i = 0; i < size; i++) {
+            weights[i] = getWeight(serviceMetaInfoList.get(i), now);
+            totalWeight += weights[i];
+            sameWeight = sameWeight && weights[i] == weights[0];
         }
-
-        // 如果只有一个服务器，那么就直接返回
-        if (serviceMetaInfoList.size() == 1) {
-            return serviceMetaInfoList.getFirst();
+        if (sameWeight || totalWeight == 0) {
+            return serviceMetaInfoList.get(random.nextInt(size));
         }
-
-        return serviceMetaInfoList.get(random.nextInt(serviceMetaInfoList.size()));
+        // 在权重区间上随机取一个点
+        int offset = random.nextInt(totalWeight);
+        for (int i = 0; i < size; i++) {
+            offset -= weights[i];
+            if (offset < 0) {
+                return serviceMetaInfoList.get(i);
+            }
+        }
+        return serviceMetaInfoList.get(random.nextInt(size));
     }
 }
@@ -4,28 +4,104 @@ import com.ff.model.ServiceMetaInfo;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
-// 负载均衡:轮询负载均衡器
-public class RoundRobinLoadBalancer implements LoadBalancer {
+// 负载均衡:轮询负载均衡器（节点权重不同或有节点在预热时按平滑加权轮询）
+public class RoundRobinLoadBalancer extends AbstractLoadBalancer {
 
     /**
      * 当前轮询的下标
      */
     private final AtomicInteger currentIndex = new AtomicInteger(0);
 
+    /**
+     * 权重不同时使用平滑加权轮询，避免按权重区间分配时同一个节点连续收到一批请求
+     */
+    private final WeightedRoundRobinLoadBalancer weightedRoundRobin = new WeightedRoundRobinLoadBalancer();
+
+    /**
+     * 服务键 -> 节点列表的权重信息
+     */
+    private final Map<String, Weights> weightsMap = new ConcurrentHashMap<>();
+
+    // 最近一次使用的权重信息，同一个列表对象连续选择时不查找 map
+    private volatile Weights lastWeights;
+
     @Override
-    public ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
-        if (serviceMetaInfoList.isEmpty()) {
-            return null;
+    protected ServiceMetaInfo doSelect(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        // 权重都相同时取模算法轮询
+        if (getWeights(serviceMetaInfoList).isUniform()) {
+            int sequence = currentIndex.getAndIncrement() & Integer.MAX_VALUE;
+            return serviceMetaInfoList.get(sequence % serviceMetaInfoList.size());
+        }
+        return weightedRoundRobin.select(requestParams, serviceMetaInfoList);
+    }
+
+    // 获取节点列表的权重信息，只在列表对象变化时重新计算
+    private Weights getWeights(List<ServiceMetaInfo> serviceMetaInfoList) {
+        Weights weights = lastWeights;
+        if (weights != null && weights.source == serviceMetaInfoList) {
+            return weights;
+        }
+        String serviceKey = serviceMetaInfoList.getFirst().getServiceKey();
+        weights = weightsMap.get(serviceKey);
+        if (weights == null || weights.source != serviceMetaInfoList) {
+            weights = new Weights(serviceMetaInfoList);
+            weightsMap.put(serviceKey, weights);
         }
-        // 只有一个服务，无需轮询
-        int size = serviceMetaInfoList.size();
-        if (size == 1) {
-            return serviceMetaInfoList.getFirst();
+        lastWeights = weights;
+        return weights;
+    }
+
+    /**
+     * 一个节点列表的权重信息：不考虑预热时权重是否都相同，以及最晚结束预热的时间
+     */
+    private static final class Weights {
+
+        private final List<ServiceMetaInfo> source;
+
+        private final boolean sameWeight;
+
+        // 最晚结束预热的时间（毫秒），预热全部结束后置为 0，不再读取时钟
+        private volatile long warmupEndMillis;
+
+        Weights(List<ServiceMetaInfo> source) {
+            this.source = source;
+            boolean same = true;
+            int firstWeight = -1;
+            long warmupEnd = 0;
+            for (ServiceMetaInfo serviceMetaInfo : source) {
+                Integer configuredWeight = serviceMetaInfo.getWeight();
+                int weight = configuredWeight == null ? ServiceMetaInfo.DEFAULT_WEIGHT : Math.max(configuredWeight, 0);
+                if (firstWeight < 0) {
+                    firstWeight = weight;
+                }
+                same = same && weight == firstWeight;
+                Long registerTime = serviceMetaInfo.getRegisterTime();
+                Integer warmup = serviceMetaInfo.getWarmup();
+                if (registerTime != null && warmup != null && warmup > 0) {
+                    warmupEnd = Math.max(warmupEnd, registerTime + warmup);
+                }
+            }
+            this.sameWeight = same;
+            this.warmupEndMillis = warmupEnd;
+        }
+
+        // 权重都相同且没有节点在预热
+        boolean isUniform() {
+            if (!sameWeight) {
+                return false;
+            }
+            long warmupEnd = warmupEndMillis;
+            if (warmupEnd == 0) {
+                return true;
+            }
+            if (System.currentTimeMillis() < warmupEnd) {
+                return false;
+            }
+            warmupEndMillis = 0;
+            return true;
         }
-        // 取模算法轮询
-        int index = currentIndex.getAndIncrement() % size;
-        return serviceMetaInfoList.get(index);
     }
 }
@@ -0,0 +1,98 @@
+package com.ff.loadbalancer;
+
+import com.ff.model.ServiceMetaInfo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 负载均衡：平滑加权轮询（与 nginx 的算法相同）
+ * 每次选择时所有节点的当前值加上各自的权重，选出当前值最大的节点，再把它的当前值减去权重总和。
+ * 权重为 5:1:1 时选择序列为 a a b a c a a，而不是 a a a a a b c，大权重节点不会连续收到一批请求。
+ * 每个服务键对应一份状态，节点的当前值为原子变量，选择过程不加锁；
+ * 并发选择时各次加减仍然成对出现，整体比例与权重一致，只是序列不再严格平滑
+ */
+public class WeightedRoundRobinLoadBalancer extends AbstractLoadBalancer {
+
+    /**
+     * 服务键 -> 各节点的轮询状态
+     */
+    private final Map<String, Selector> selectors = new ConcurrentHashMap<>();
+
+    @Override
+    protected ServiceMetaInfo doSelect(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        return getSelector(serviceMetaInfoList).select();
+    }
+
+    // 获取服务节点列表对应的轮询状态，节点列表变化时重新构建，保留仍然存在的节点的当前值
+    private Selector getSelector(List<ServiceMetaInfo> serviceMetaInfoList) {
+        String serviceKey = serviceMetaInfoList.getFirst().getServiceKey();
+        Selector selector = selectors.get(serviceKey);
+        if (selector != null && selector.source == serviceMetaInfoList) {
+            return selector;
+        }
+        selector = new Selector(serviceMetaInfoList, selector);
+        selectors.put(serviceKey, selector);
+        return selector;
+    }
+
+    /**
+     * 一个服务的轮询状态，currents 与节点列表按下标一一对应
+     */
+    private static final class Selector {
+
+        private final List<ServiceMetaInfo> source;
+
+        private final String[] nodeKeys;
+
+        private final AtomicLong[] currents;
+
+        Selector(List<ServiceMetaInfo> source, Selector previous) {
+            this.source = source;
+            Map<String, AtomicLong> previousCurrents = new HashMap<>();
+            if (previous != null) {
+                for (int i = 0; i < previous.nodeKeys.length; i++) {
+                    previousCurrents.put(previous.nodeKeys[i], previous.currents[i]);
+                }
+            }
+            this.nodeKeys = new String[source.size()];
+            this.currents = new AtomicLong[source.size()];
+            for (int i = 0; i < nodeKeys.length; i++) {
+                ServiceMetaInfo serviceMetaInfo = source.get(i);
+                nodeKeys[i] = serviceMetaInfo.getServiceHost() + ":" + serviceMetaInfo.getServicePort();
+                AtomicLong current = previousCurrents.get(nodeKeys[i]);
+                currents[i] = current != null ? current : new AtomicLong();
+            }
+        }
+
+        ServiceMetaInfo select() {
+            long totalWeight = 0;
+            long maxCurrent = Long.MIN_VALUE;
+            int selected = -1;
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < currents.length; i++) {
+                // 有效权重包含预热，新节点的份额随注册时长逐步增加
+                int weight = getWeight(source.get(i), now);
+                if (weight == 0) {
+                    continue;
+                }
+                long current = currents[i].addAndGet(weight);
+                totalWeight += weight;
+                if (current > maxCurrent) {
+                    maxCurrent = current;
+                    selected = i;
+                }
+            }
+            // 所有节点的权重都为 0 时随机选择，不让调用直接失败
+            if (selected < 0) {
+                return source.get(ThreadLocalRandom.current().nextInt(source.size()));
+            }
+            currents[selected].addAndGet(-totalWeight);
+            return source.get(selected);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ff.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图（单位纳秒），分桶方式与 HdrHistogram 相同：
+ * 小于 64 的值每个值一个桶，之后每个 2 的幂区间再等分为 32 个桶，相对误差不超过 1/32（约 3%）。
+ * 记录时只做一次桶下标计算和一次原子自增，不加锁、不分配对象；
+ * 总数、总和、最大值都在读取时由各桶计数得到（与 HdrHistogram 一样按桶内的代表值计算，误差同样不超过 1/32），
+ * 读取时复制计数数组得到快照，不影响写入
+ */
+public class LatencyHistogram {
+
+    // 每个 2 的幂区间等分的桶数为 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // 可记录的最大值约 18 分钟，超过时按最大值记录
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 记录一个值（纳秒），负数按 0 记录，超过最大可记录值时按最大值记录
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+    }
+
+    /**
+     * 当前的统计快照
+     */
+    public Snapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long total = 0;
+        long sum = 0;
+        long max = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount == 0) {
+                continue;
+            }
+            snapshotCounts[i] = bucketCount;
+            total += bucketCount;
+            sum += bucketCount * medianValueInBucket(i);
+            max = highestValueInBucket(i);
+        }
+        return new Snapshot(snapshotCounts, total, sum, max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // value 的最高位为第 msb 位时，右移 shift 位后落在 [32, 64) 区间
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    // 桶内的最小值
+    static long lowestValueInBucket(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return (index - (long) shift * SUB_BUCKET_COUNT) << shift;
+    }
+
+    // 桶内的最大值
+    static long highestValueInBucket(int index) {
+        return lowestValueInBucket(index + 1) - 1;
+    }
+
+    // 桶的代表值（中间值），用于计算总和与平均值
+    static long medianValueInBucket(int index) {
+        long lowest = lowestValueInBucket(index);
+        return lowest + (highestValueInBucket(index) - lowest) / 2;
+    }
+
+    /**
+     * 直方图快照，计数在快照时刻不再变化
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * 百分位数（纳秒）
+         *
+         * @param percentile 百分位，例如 99.9
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return highestValueInBucket(i);
+                }
+            }
+            return max;
+        }
+    }
+}
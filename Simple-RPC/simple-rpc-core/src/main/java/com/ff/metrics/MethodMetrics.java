@@ -0,0 +1,142 @@
+package com.ff.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个服务方法在客户端或服务端的调用指标：调用次数、错误数、在途请求数、总延迟和各阶段延迟的直方图
+ * 所有计数都是无锁的，可以在事件循环和业务线程中并发记录；调用次数由已结束的调用数（总延迟直方图的计数）加上在途请求数得到，
+ * 开始一次调用只需要一次计数
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Getter
+    private final String side;
+
+    @Getter
+    private final String serviceName;
+
+    @Getter
+    private final String methodName;
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    // 一次调用从开始到结束的总延迟
+    @Getter
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // 按 RpcPhase 的顺序保存各阶段的延迟
+    private final LatencyHistogram[] phases = new LatencyHistogram[RpcPhase.values().length];
+
+    MethodMetrics(String side, String serviceName, String methodName) {
+        this.side = side;
+        this.serviceName = serviceName;
+        this.methodName = methodName;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 开始一次调用，在途请求数加一
+     */
+    public void begin() {
+        inFlight.increment();
+    }
+
+    /**
+     * 结束一次调用
+     *
+     * @param startNanos 开始时间（System.nanoTime）
+     * @param endNanos   结束时间（System.nanoTime），调用方已经取过当前时间时直接复用
+     * @param success    是否成功
+     */
+    public void end(long startNanos, long endNanos, boolean success) {
+        latency.record(endNanos - startNanos);
+        if (!success) {
+            errors.increment();
+        }
+        inFlight.decrement();
+    }
+
+    /**
+     * 记录某个阶段的耗时
+     */
+    public void recordPhase(RpcPhase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram getPhase(RpcPhase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    @Override
+    public long getCalls() {
+        return latency.snapshot().getCount() + inFlight.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public double getLatencyMean() {
+        return latency.snapshot().getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP50() {
+        return percentile(latency, 50);
+    }
+
+    @Override
+    public double getLatencyP99() {
+        return percentile(latency, 99);
+    }
+
+    @Override
+    public double getLatencyP999() {
+        return percentile(latency, 99.9);
+    }
+
+    @Override
+    public double getLatencyMax() {
+        return latency.snapshot().getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getQueueP99() {
+        return percentile(getPhase(RpcPhase.QUEUE), 99);
+    }
+
+    @Override
+    public double getSerializeP99() {
+        return percentile(getPhase(RpcPhase.SERIALIZE), 99);
+    }
+
+    @Override
+    public double getNetworkP99() {
+        return percentile(getPhase(RpcPhase.NETWORK), 99);
+    }
+
+    @Override
+    public double getExecuteP99() {
+        return percentile(getPhase(RpcPhase.EXECUTE), 99);
+    }
+
+    private static double percentile(LatencyHistogram histogram, double percentile) {
+        return histogram.snapshot().getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ff.metrics;
+
+/**
+ * 方法调用指标的 JMX 接口，延迟单位为毫秒
+ */
+public interface MethodMetricsMBean {
+
+    String getSide();
+
+    String getServiceName();
+
+    String getMethodName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getInFlight();
+
+    double getLatencyMean();
+
+    double getLatencyP50();
+
+    double getLatencyP99();
+
+    double getLatencyP999();
+
+    double getLatencyMax();
+
+    double getQueueP99();
+
+    double getSerializeP99();
+
+    double getNetworkP99();
+
+    double getExecuteP99();
+}
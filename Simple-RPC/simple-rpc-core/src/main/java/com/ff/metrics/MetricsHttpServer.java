@@ -0,0 +1,44 @@
+package com.ff.metrics;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 指标采集端口：GET /metrics 返回 Prometheus 文本格式的指标
+ * 使用独立的 Vert.x 实例，采集请求不占用 RPC 的事件循环
+ */
+@Slf4j
+public class MetricsHttpServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private Vertx vertx;
+
+    public void start(int port) {
+        vertx = Vertx.vertx();
+        HttpServer server = vertx.createHttpServer();
+        server.requestHandler(request -> {
+            if (!"/metrics".equals(request.path())) {
+                request.response().setStatusCode(404).end();
+                return;
+            }
+            request.response()
+                    .putHeader("Content-Type", CONTENT_TYPE)
+                    .end(RpcMetrics.scrape());
+        });
+        server.listen(port, result -> {
+            if (result.succeeded()) {
+                log.info("Metrics server started on port " + port);
+            } else {
+                log.error("Failed to start metrics server: " + result.cause());
+            }
+        });
+    }
+
+    public void stop() {
+        if (vertx != null) {
+            vertx.close();
+        }
+    }
+}
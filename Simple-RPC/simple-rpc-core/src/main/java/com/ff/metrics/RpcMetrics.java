@@ -0,0 +1,244 @@
+package com.ff.metrics;
+
+import com.ff.RpcApplication;
+import com.ff.config.MetricsConfig;
+import com.ff.fault.circuitbreaker.CircuitBreakerState;
+import com.ff.server.limit.GradientConcurrencyLimit;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RPC 调用指标的全局入口
+ * 客户端在 ServiceProxy / VertxTcpClient 中记录，服务端在 TcpServerHandler 中记录，
+ * 通过 JMX 和 MetricsHttpServer（Prometheus 文本格式）对外暴露
+ */
+@Slf4j
+public class RpcMetrics {
+
+    public static final String CLIENT = "client";
+
+    public static final String SERVER = "server";
+
+    // 服务名 -> 方法名 -> 指标，两级查找避免每次调用拼接字符串
+    private static final Map<String, Map<String, MethodMetrics>> clientMetrics = new ConcurrentHashMap<>();
+
+    private static final Map<String, Map<String, MethodMetrics>> serverMetrics = new ConcurrentHashMap<>();
+
+    // 服务端因执行器已满而拒绝的请求数（拒绝时请求体未解码，无法归属到方法）
+    private static final LongAdder serverRejected = new LongAdder();
+
+    // 熔断器状态变化次数：标签（服务、方法、节点、新状态）-> 次数
+    private static final Map<String, LongAdder> circuitBreakerTransitions = new ConcurrentHashMap<>();
+
+    // 熔断器当前状态：标签（服务、方法、节点）-> 状态
+    private static final Map<String, CircuitBreakerState> circuitBreakerStates = new ConcurrentHashMap<>();
+
+    // 服务端并发限制：标签（服务、方法）-> 并发限制
+    private static final Map<String, GradientConcurrencyLimit> concurrencyLimits = new ConcurrentHashMap<>();
+
+    private static volatile MetricsHttpServer httpServer;
+
+    private RpcMetrics() {
+    }
+
+    /**
+     * 按配置启动指标采集端口，重复调用时只启动一次
+     */
+    public static synchronized void init(MetricsConfig metricsConfig) {
+        if (httpServer != null || metricsConfig.getHttpPort() == null || !isEnabled(metricsConfig)) {
+            return;
+        }
+        httpServer = new MetricsHttpServer();
+        httpServer.start(metricsConfig.getHttpPort());
+    }
+
+    /**
+     * 客户端某个方法的指标，未开启指标时返回 null
+     */
+    public static MethodMetrics client(String serviceName, String methodName) {
+        return get(clientMetrics, CLIENT, serviceName, methodName);
+    }
+
+    /**
+     * 服务端某个方法的指标，未开启指标时返回 null
+     */
+    public static MethodMetrics server(String serviceName, String methodName) {
+        return get(serverMetrics, SERVER, serviceName, methodName);
+    }
+
+    /**
+     * 是否开启了指标，调用路径上用来决定是否需要额外取时间戳
+     */
+    public static boolean isEnabled() {
+        return isEnabled(RpcApplication.getRpcConfig().getMetricsConfig());
+    }
+
+    public static void recordServerRejected() {
+        if (isEnabled()) {
+            serverRejected.increment();
+        }
+    }
+
+    public static long getServerRejected() {
+        return serverRejected.sum();
+    }
+
+    /**
+     * 记录熔断器的状态变化，状态变化很少发生，不受指标开关影响
+     */
+    public static void recordCircuitBreakerTransition(String serviceName, String methodName, String node,
+                                                      CircuitBreakerState state) {
+        String labels = "service=\"" + escape(serviceName) + "\",method=\"" + escape(methodName)
+                + "\",node=\"" + escape(node) + '"';
+        circuitBreakerStates.put(labels, state);
+        circuitBreakerTransitions.computeIfAbsent(labels + ",state=\"" + state.getText() + '"',
+                key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 登记服务方法的并发限制，采集时读取当前限制和拒绝次数，每个方法只登记一次，不受指标开关影响
+     */
+    public static void registerConcurrencyLimit(String serviceName, String methodName,
+                                                GradientConcurrencyLimit concurrencyLimit) {
+        concurrencyLimits.put("service=\"" + escape(serviceName) + "\",method=\"" + escape(methodName) + '"',
+                concurrencyLimit);
+    }
+
+    /**
+     * 所有方法的指标
+     */
+    public static List<MethodMetrics> all() {
+        List<MethodMetrics> all = new ArrayList<>();
+        clientMetrics.values().forEach(methods -> all.addAll(methods.values()));
+        serverMetrics.values().forEach(methods -> all.addAll(methods.values()));
+        return all;
+    }
+
+    private static MethodMetrics get(Map<String, Map<String, MethodMetrics>> metricsMap, String side,
+                                     String serviceName, String methodName) {
+        MetricsConfig metricsConfig = RpcApplication.getRpcConfig().getMetricsConfig();
+        if (!isEnabled(metricsConfig) || serviceName == null || methodName == null) {
+            return null;
+        }
+        Map<String, MethodMetrics> methods = metricsMap.get(serviceName);
+        if (methods == null) {
+            methods = metricsMap.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        }
+        MethodMetrics metrics = methods.get(methodName);
+        if (metrics != null) {
+            return metrics;
+        }
+        return methods.computeIfAbsent(methodName, key -> {
+            MethodMetrics created = new MethodMetrics(side, serviceName, methodName);
+            if (Boolean.TRUE.equals(metricsConfig.getJmxEnabled())) {
+                registerMBean(created);
+            }
+            return created;
+        });
+    }
+
+    private static boolean isEnabled(MetricsConfig metricsConfig) {
+        return metricsConfig != null && Boolean.TRUE.equals(metricsConfig.getEnabled());
+    }
+
+    private static void registerMBean(MethodMetrics metrics) {
+        try {
+            ObjectName objectName = new ObjectName("com.ff.rpc:type=Metrics"
+                    + ",side=" + metrics.getSide()
+                    + ",service=" + ObjectName.quote(metrics.getServiceName())
+                    + ",method=" + ObjectName.quote(metrics.getMethodName()));
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+            }
+        } catch (Exception e) {
+            log.warn("注册指标 MBean 失败 {}#{}", metrics.getServiceName(), metrics.getMethodName(), e);
+        }
+    }
+
+    /**
+     * Prometheus 文本格式的指标
+     */
+    public static String scrape() {
+        StringBuilder builder = new StringBuilder(4096);
+        List<MethodMetrics> all = all();
+        builder.append("# TYPE rpc_calls_total counter\n");
+        for (MethodMetrics metrics : all) {
+            appendSample(builder, "rpc_calls_total", metrics, null, null, metrics.getCalls());
+        }
+        builder.append("# TYPE rpc_errors_total counter\n");
+        for (MethodMetrics metrics : all) {
+            appendSample(builder, "rpc_errors_total", metrics, null, null, metrics.getErrors());
+        }
+        builder.append("# TYPE rpc_in_flight gauge\n");
+        for (MethodMetrics metrics : all) {
+            appendSample(builder, "rpc_in_flight", metrics, null, null, metrics.getInFlight());
+        }
+        builder.append("# TYPE rpc_latency_seconds summary\n");
+        for (MethodMetrics metrics : all) {
+            appendSummary(builder, metrics, "total", metrics.getLatency());
+            for (RpcPhase phase : RpcPhase.values()) {
+                appendSummary(builder, metrics, phase.getText(), metrics.getPhase(phase));
+            }
+        }
+        builder.append("# TYPE rpc_server_rejected_total counter\n");
+        builder.append("rpc_server_rejected_total ").append(getServerRejected()).append('\n');
+        // 熔断器状态：0 关闭，1 打开，2 半开
+        if (!circuitBreakerStates.isEmpty()) {
+            builder.append("# TYPE rpc_circuit_breaker_state gauge\n");
+            circuitBreakerStates.forEach((labels, state) -> builder.append("rpc_circuit_breaker_state{")
+                    .append(labels).append("} ").append(state.getValue()).append('\n'));
+            builder.append("# TYPE rpc_circuit_breaker_transitions_total counter\n");
+            circuitBreakerTransitions.forEach((labels, count) -> builder.append("rpc_circuit_breaker_transitions_total{")
+                    .append(labels).append("} ").append(count.sum()).append('\n'));
+        }
+        if (!concurrencyLimits.isEmpty()) {
+            builder.append("# TYPE rpc_concurrency_limit gauge\n");
+            concurrencyLimits.forEach((labels, limit) -> builder.append("rpc_concurrency_limit{")
+                    .append(labels).append("} ").append(limit.getLimit()).append('\n'));
+            builder.append("# TYPE rpc_concurrency_limited_total counter\n");
+            concurrencyLimits.forEach((labels, limit) -> builder.append("rpc_concurrency_limited_total{")
+                    .append(labels).append("} ").append(limit.getRejected()).append('\n'));
+        }
+        return builder.toString();
+    }
+
+    private static void appendSummary(StringBuilder builder, MethodMetrics metrics, String phase,
+                                      LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        if (snapshot.getCount() == 0) {
+            return;
+        }
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            appendSample(builder, "rpc_latency_seconds", metrics, phase, quantile,
+                    snapshot.getValueAtPercentile(quantile * 100) / 1e9);
+        }
+        appendSample(builder, "rpc_latency_seconds_sum", metrics, phase, null, snapshot.getSum() / 1e9);
+        appendSample(builder, "rpc_latency_seconds_count", metrics, phase, null, snapshot.getCount());
+    }
+
+    private static void appendSample(StringBuilder builder, String name, MethodMetrics metrics,
+                                     String phase, Double quantile, Number value) {
+        builder.append(name)
+                .append("{side=\"").append(metrics.getSide())
+                .append("\",service=\"").append(escape(metrics.getServiceName()))
+                .append("\",method=\"").append(escape(metrics.getMethodName())).append('"');
+        if (phase != null) {
+            builder.append(",phase=\"").append(phase).append('"');
+        }
+        if (quantile != null) {
+            builder.append(",quantile=\"").append(quantile).append('"');
+        }
+        builder.append("} ").append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
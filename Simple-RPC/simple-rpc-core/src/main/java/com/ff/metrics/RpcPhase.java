@@ -0,0 +1,22 @@
+package com.ff.metrics;
+
+import lombok.Getter;
+
+/**
+ * 一次调用的耗时阶段
+ * 客户端：queue 为获取连接的耗时，serialize 为请求编码和响应解码的耗时，network 为请求写出到收到响应的耗时（包含服务端处理时间）；
+ * 服务端：queue 为请求在执行器中排队的耗时，serialize 为请求解码和响应编码的耗时，execute 为查找并执行服务方法的耗时
+ */
+@Getter
+public enum RpcPhase {
+    QUEUE("queue"),
+    SERIALIZE("serialize"),
+    NETWORK("network"),
+    EXECUTE("execute");
+
+    private final String text;
+
+    RpcPhase(String text) {
+        this.text = text;
+    }
+}
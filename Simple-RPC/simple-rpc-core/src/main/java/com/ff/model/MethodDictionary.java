@@ -0,0 +1,93 @@
+package com.ff.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 方法 id 字典
+ * 服务端在连接握手时下发，为每个对外暴露的方法分配一个整数 id，
+ * 之后的请求只需要携带方法 id 和参数；同时携带服务端支持的协议版本号
+ */
+@Data
+@NoArgsConstructor
+public class MethodDictionary implements Serializable {
+
+    // 服务端支持的最高协议版本号，客户端据此决定是否使用 v2 帧
+    private byte protocolVersion;
+
+    private List<Entry> entries = new ArrayList<>();
+
+    // 客户端查找用的索引：服务名 -> 方法名 -> 同名方法，懒加载
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile Map<String, Map<String, Entry[]>> index;
+
+    /**
+     * 查找方法 id
+     *
+     * @return 方法 id，字典中不存在时返回 -1
+     */
+    public int getMethodId(String serviceName, String methodName, Class<?>[] parameterTypes) {
+        Map<String, Map<String, Entry[]>> currentIndex = index;
+        if (currentIndex == null) {
+            currentIndex = buildIndex();
+            index = currentIndex;
+        }
+        Map<String, Entry[]> methods = currentIndex.get(serviceName);
+        if (methods == null) {
+            return -1;
+        }
+        Entry[] overloads = methods.get(methodName);
+        if (overloads == null) {
+            return -1;
+        }
+        for (Entry entry : overloads) {
+            if (Arrays.equals(entry.getParameterTypes(), parameterTypes)
+                    || (parameterTypes == null && entry.getParameterTypes().length == 0)) {
+                return entry.getMethodId();
+            }
+        }
+        return -1;
+    }
+
+    private Map<String, Map<String, Entry[]>> buildIndex() {
+        Map<String, Map<String, Entry[]>> newIndex = new HashMap<>();
+        for (Entry entry : entries) {
+            newIndex.computeIfAbsent(entry.getServiceName(), key -> new HashMap<>())
+                    .merge(entry.getMethodName(), new Entry[]{entry}, (oldEntries, newEntries) -> {
+                        Entry[] merged = Arrays.copyOf(oldEntries, oldEntries.length + 1);
+                        merged[oldEntries.length] = newEntries[0];
+                        return merged;
+                    });
+        }
+        return newIndex;
+    }
+
+    /**
+     * 字典条目
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry implements Serializable {
+        private int methodId;                   // 方法 id
+        private String serviceName;             // 服务名
+        private String methodName;              // 方法名
+        private Class<?>[] parameterTypes;      // 方法参数类型
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Map;
 
 @Data
 @Builder
@@ -19,4 +20,8 @@ public class RpcRequest implements Serializable {
     private Class<?>[] parameterTypes;      // 方法参数类型
     private Object[] parameters;            // 方法参数值
     private String serviceVersion = RpcConstant.DEFAULT_SERVICE_VERSION;    // 服务版本
+    private Integer methodId;               // 方法 id（与服务端协商方法 id 字典后使用，此时不再携带服务名、方法名和参数类型）
+    // 以下字段放在 v2 帧的扩展区传输，不随消息体序列化
+    private transient Map<String, String> attachments;  // 调用附加信息
+    private transient boolean oneway;                    // 单向调用，不等待响应
 }
@@ -3,6 +3,7 @@ package com.ff.model;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.lang.reflect.Type;
 
 @Data
 public class RpcResponse implements Serializable {
@@ -12,4 +13,6 @@ public class RpcResponse implements Serializable {
     private Exception exception; // 返回异常
     private Class<?> parameterType;      // 方法参数类型
     private String message; // 相应信息
+    // 服务方法声明的返回值类型（带泛型信息），只有 JSON 序列化器会写出，其他序列化器本身携带类型信息
+    private transient Type resultType;
 }
@@ -12,6 +12,15 @@ import lombok.Data;
 //@Builder
 public class ServiceMetaInfo {
 
+    /**
+     * 默认权重
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
+    /**
+     * 默认预热时间（毫秒）
+     */
+    public static final int DEFAULT_WARMUP = 60 * 1000;
 
     /**
      * 服务名称
@@ -38,6 +47,22 @@ public class ServiceMetaInfo {
      */
     private String serviceGroup = "default";
 
+    /**
+     * 服务权重，随注册信息一起发布，加权负载均衡按权重比例分配请求（例如 32 核机器配置为 8 核机器的 4 倍），
+     * 为 0 时不再分配新请求
+     */
+    private Integer weight = DEFAULT_WEIGHT;
+
+    /**
+     * 注册时间（提供者的毫秒时间戳），由注册中心在注册时写入，用于计算预热权重
+     */
+    private Long registerTime;
+
+    /**
+     * 预热时间（毫秒），注册后的这段时间内负载均衡按注册时长线性提升节点的权重，为 0 时不预热
+     */
+    private Integer warmup = DEFAULT_WARMUP;
+
     /**
      * 获取服务键名
      *
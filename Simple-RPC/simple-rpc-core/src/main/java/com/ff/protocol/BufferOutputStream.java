@@ -0,0 +1,28 @@
+package com.ff.protocol;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.OutputStream;
+
+/**
+ * 直接追加到 Vert.x Buffer 的输出流
+ * 序列化器通过它把消息体直接写进出站 Buffer，不再经过中间的 byte[]
+ */
+class BufferOutputStream extends OutputStream {
+
+    private final Buffer buffer;
+
+    BufferOutputStream(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.appendByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        buffer.appendBytes(bytes, offset, length);
+    }
+}
@@ -6,6 +6,19 @@ public interface ProtocolConstant {
     int MESSAGE_HEADER_LENGTH = 17;
     // 协议魔术
     byte PROTOCOL_MAGIC = 0x1;
-    // 协议版本号
-    byte PROTOCOL_VERSION = 0x1;
+    // 协议版本号 v1：固定 17 字节消息头 + 消息体
+    byte PROTOCOL_VERSION_1 = 0x1;
+    // 协议版本号 v2：消息头格式不变，bodyLength 覆盖扩展区 + 消息体，扩展区包含 flags、deadline、attachments
+    byte PROTOCOL_VERSION_2 = 0x2;
+    // 当前支持的最高协议版本号
+    byte PROTOCOL_VERSION = PROTOCOL_VERSION_2;
+
+    // v2 标志位：消息体经过压缩（Deflate）
+    int FLAG_COMPRESSED = 0x1;
+    // v2 标志位：单向请求，服务端不返回响应
+    int FLAG_ONEWAY = 0x2;
+    // v2 标志位：流式消息（预留）
+    int FLAG_STREAMING = 0x4;
+    // v2 标志位：心跳
+    int FLAG_HEARTBEAT = 0x8;
 }
@@ -8,6 +8,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -32,7 +34,27 @@ public class ProtocolMessage<T> {
         private byte status;
         // 请求ID 8B
         private long requestId;
-        // bodyLength 4B
+        // bodyLength 4B（v2 中包含扩展区长度）
         private int bodyLength;
+
+        // 以下为 v2 扩展区字段
+        // 标志位 1B（压缩、单向、流式、心跳）
+        private byte flags;
+        // 相对截止时间（毫秒，varint），0 表示不限制
+        private long deadline;
+        // 附加信息（varint 长度 + UTF-8 键值），用于链路追踪、路由提示等
+        private Map<String, String> attachments;
+
+        public boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        public void addFlag(int flag) {
+            flags = (byte) (flags | flag);
+        }
+
+        public void removeFlag(int flag) {
+            flags = (byte) (flags & ~flag);
+        }
     }
 }
@@ -4,16 +4,81 @@ import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
 import com.ff.serializer.Serializer;
 import com.ff.serializer.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.buffer.impl.BufferImpl;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
 
 // 解码器
 public class ProtocolMessageDecoder {
-    // 解码
+    // 解码，v1、v2 帧都可以解码
     public static ProtocolMessage<?> decode(Buffer buffer) throws IOException {
-        // 从指定位置读取出 buffer
         ProtocolMessage.Header header = new ProtocolMessage.Header();
+        int bodyStart = decodeHeader(buffer, header);
+
+        // 查看消息返回类型
+        byte type = header.getType();
+        ProtocolMessageTypeEnum typeEnum = ProtocolMessageTypeEnum.getEnumByType(type);
+
+        if (typeEnum == null) {
+            throw new RuntimeException("序列化消息的类型不存在");
+        }
+        // 心跳消息没有消息体
+        if (typeEnum == ProtocolMessageTypeEnum.HEART_BEAT) {
+            return new ProtocolMessage<>(header, null);
+        }
+        // 解析系列化之后的消息体
+        ProtocolMessageSerializerEnum serializerEnum = ProtocolMessageSerializerEnum.getEnumByKey(header.getSerializer());
+        if (serializerEnum == null) {
+            throw new RuntimeException("获取序列化失败，不支持该序列化机制");
+        }
+        Serializer serializer = SerializerFactory.getInstance(serializerEnum.getValue());
+
+        // 直接在入站 Buffer 的切片上反序列化，不再拷贝出 byte[]
+        int bodyEnd = ProtocolConstant.MESSAGE_HEADER_LENGTH + header.getBodyLength();
+        InputStream inputStream = new ByteBufInputStream(byteBuf(buffer).slice(bodyStart, bodyEnd - bodyStart));
+        boolean compressed = header.hasFlag(ProtocolConstant.FLAG_COMPRESSED) && bodyEnd > bodyStart;
+        try (InputStream bodyStream = compressed ? new InflaterInputStream(inputStream) : inputStream) {
+            // switch 新版本使用方法，第一次使用嘿嘿
+            return switch (typeEnum) {
+                case REQUEST -> {
+                    RpcRequest request = serializer.deserialize(bodyStream, RpcRequest.class);
+                    yield new ProtocolMessage<>(header, request);
+                }
+                case RESPONSE -> {
+                    RpcResponse rpcResponse = serializer.deserialize(bodyStream, RpcResponse.class);
+                    yield new ProtocolMessage<>(header, rpcResponse);
+                }
+                default -> throw new RuntimeException("暂时不支持该消息类型");
+            };
+        }
+    }
+
+    // Vert.x 的 Buffer 实现直接取底层的 ByteBuf（不拷贝），其他实现拷贝出字节后包装
+    private static ByteBuf byteBuf(Buffer buffer) {
+        if (buffer instanceof BufferImpl bufferImpl) {
+            return bufferImpl.byteBuf();
+        }
+        return Unpooled.wrappedBuffer(buffer.getBytes());
+    }
+
+    // 只解码消息头（v2 包含扩展区），不反序列化消息体
+    public static ProtocolMessage.Header decodeHeader(Buffer buffer) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        decodeHeader(buffer, header);
+        return header;
+    }
+
+    // 解码消息头，返回消息体的起始位置
+    private static int decodeHeader(Buffer buffer, ProtocolMessage.Header header) {
         // 取出魔数
         byte magic = buffer.getByte(0);
         // 校验魔数
@@ -25,37 +90,49 @@ public class ProtocolMessageDecoder {
         header.setSerializer(buffer.getByte(2));
         header.setType(buffer.getByte(3));
         header.setStatus(buffer.getByte(4));
-        header.setRequestId(buffer.getByte(5));
-        header.setBodyLength(buffer.getByte(13));
+        header.setRequestId(buffer.getLong(5));
+        header.setBodyLength(buffer.getInt(13));
+        return switch (header.getVersion()) {
+            case ProtocolConstant.PROTOCOL_VERSION_1 -> ProtocolConstant.MESSAGE_HEADER_LENGTH;
+            case ProtocolConstant.PROTOCOL_VERSION_2 -> readExtension(buffer, header);
+            default -> throw new RuntimeException("不支持的协议版本: " + header.getVersion());
+        };
+    }
 
-        // 解决粘包、半包问题
-        byte[] bodyBytes = buffer.getBytes(ProtocolConstant.MESSAGE_HEADER_LENGTH, ProtocolConstant.MESSAGE_HEADER_LENGTH + header.getBodyLength());
-        // 解析系列化之后的消息体
-        ProtocolMessageSerializerEnum serializerEnum = ProtocolMessageSerializerEnum.getEnumByKey(header.getSerializer());
-        if (serializerEnum == null) {
-            throw new RuntimeException("获取序列化失败，不支持该序列化机制");
+    // 读取 v2 扩展区，返回消息体的起始位置
+    private static int readExtension(Buffer buffer, ProtocolMessage.Header header) {
+        int[] position = {ProtocolConstant.MESSAGE_HEADER_LENGTH};
+        header.setFlags(buffer.getByte(position[0]++));
+        header.setDeadline(readVarLong(buffer, position));
+        int attachmentCount = (int) readVarLong(buffer, position);
+        if (attachmentCount > 0) {
+            Map<String, String> attachments = new HashMap<>(attachmentCount * 2);
+            for (int i = 0; i < attachmentCount; i++) {
+                String key = readString(buffer, position);
+                attachments.put(key, readString(buffer, position));
+            }
+            header.setAttachments(attachments);
         }
-        Serializer serializer = SerializerFactory.getInstance(serializerEnum.getValue());
-        // 查看消息返回类型
-        byte type = header.getType();
-        ProtocolMessageTypeEnum typeEnum = ProtocolMessageTypeEnum.getEnumByType(type);
+        return position[0];
+    }
 
-        if (typeEnum == null) {
-            throw new RuntimeException("序列化消息的类型不存在");
-        }
+    private static String readString(Buffer buffer, int[] position) {
+        int length = (int) readVarLong(buffer, position);
+        String value = buffer.getString(position[0], position[0] + length, StandardCharsets.UTF_8.name());
+        position[0] += length;
+        return value;
+    }
 
-        // switch 新版本使用方法，第一次使用嘿嘿
-        return switch (typeEnum) {
-            case REQUEST -> {
-                RpcRequest request = serializer.deserialize(bodyBytes, RpcRequest.class);
-                yield new ProtocolMessage<>(header, request);
+    private static long readVarLong(Buffer buffer, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.getByte(position[0]++);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
             }
-            case RESPONSE -> {
-                RpcResponse rpcResponse = serializer.deserialize(bodyBytes, RpcResponse.class);
-                yield new ProtocolMessage<>(header, rpcResponse);
-            }
-            default -> throw new RuntimeException("暂时不支持该消息类型");
-        };
-
+        }
+        throw new RuntimeException("varint 格式错误");
     }
+
 }
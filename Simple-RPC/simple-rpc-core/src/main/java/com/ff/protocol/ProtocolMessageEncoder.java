@@ -6,10 +6,20 @@ import com.ff.serializer.SerializerFactory;
 import io.vertx.core.buffer.Buffer;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
 // 编码器，用于对消息进行编码
 @Slf4j
 public class ProtocolMessageEncoder {
-    // 编码
+
+    // 出站 Buffer 初始容量，取最近编码帧大小的滑动平均，减少扩容拷贝
+    private static volatile int sizeHint = 256;
+
+    // 编码，按消息头中的版本号选择帧格式
     public static Buffer encode(ProtocolMessage<?> protocolMessage) {
         if (ObjectUtil.isNull(protocolMessage) || ObjectUtil.isNull(protocolMessage.getHeader())) {
             return Buffer.buffer();
@@ -17,8 +27,8 @@ public class ProtocolMessageEncoder {
 
         try {
             ProtocolMessage.Header header = protocolMessage.getHeader();
-            // 使用 Vert.x 来管理
-            Buffer buffer = Buffer.buffer();
+            // 使用 Vert.x 来管理，按最近的帧大小再多留 1/8 预分配（滑动平均略小于实际大小时会触发翻倍扩容），消息体直接序列化进该 Buffer
+            Buffer buffer = Buffer.buffer(sizeHint + (sizeHint >>> 3));
             // 写入缓冲区
             buffer.appendByte(header.getMagic());
             buffer.appendByte(header.getVersion());
@@ -26,15 +36,17 @@ public class ProtocolMessageEncoder {
             buffer.appendByte(header.getType());
             buffer.appendByte(header.getStatus());
             buffer.appendLong(header.getRequestId());
+            // 消息体长度占位，写完消息体后回填
+            buffer.appendInt(0);
 
-            ProtocolMessageSerializerEnum enumByKey = ProtocolMessageSerializerEnum.getEnumByKey(header.getSerializer());
-            if (enumByKey == null) {
-                throw new RuntimeException("获取序列化失败，不支持该序列化机制");
+            if (header.getVersion() == ProtocolConstant.PROTOCOL_VERSION_2) {
+                writeExtension(buffer, header);
             }
-            Serializer serializer = SerializerFactory.getInstance(enumByKey.getValue());
-            byte[] bodyBytes = serializer.serialize(protocolMessage.getBody());
-            buffer.appendInt(header.getBodyLength());
-            buffer.appendBytes(bodyBytes);
+
+            writeBody(buffer, protocolMessage);
+            header.setBodyLength(buffer.length() - ProtocolConstant.MESSAGE_HEADER_LENGTH);
+            buffer.setInt(13, header.getBodyLength());
+            sizeHint = (sizeHint * 7 + buffer.length()) >>> 3;
             return buffer;
 
         } catch (Exception e) {
@@ -43,4 +55,61 @@ public class ProtocolMessageEncoder {
         }
 
     }
+
+    // 把消息体直接序列化（需要时压缩）到出站 Buffer
+    private static void writeBody(Buffer buffer, ProtocolMessage<?> protocolMessage) throws Exception {
+        ProtocolMessage.Header header = protocolMessage.getHeader();
+        // 心跳消息没有消息体
+        if (protocolMessage.getBody() == null && header.getType() == ProtocolMessageTypeEnum.HEART_BEAT.getType()) {
+            return;
+        }
+        ProtocolMessageSerializerEnum enumByKey = ProtocolMessageSerializerEnum.getEnumByKey(header.getSerializer());
+        if (enumByKey == null) {
+            throw new RuntimeException("获取序列化失败，不支持该序列化机制");
+        }
+        Serializer serializer = SerializerFactory.getInstance(enumByKey.getValue());
+        OutputStream outputStream = new BufferOutputStream(buffer);
+        if (header.getVersion() == ProtocolConstant.PROTOCOL_VERSION_2 && header.hasFlag(ProtocolConstant.FLAG_COMPRESSED)) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(outputStream, deflater, 512)) {
+                serializer.serialize(protocolMessage.getBody(), deflaterOutput);
+            } finally {
+                deflater.end();
+            }
+            return;
+        }
+        serializer.serialize(protocolMessage.getBody(), outputStream);
+    }
+
+    // v2 扩展区：flags 1B + deadline varint + 附加信息个数 varint + (key 长度 varint + key + value 长度 varint + value)*
+    private static void writeExtension(Buffer buffer, ProtocolMessage.Header header) {
+        buffer.appendByte(header.getFlags());
+        writeVarLong(buffer, Math.max(0, header.getDeadline()));
+        Map<String, String> attachments = header.getAttachments();
+        if (attachments == null || attachments.isEmpty()) {
+            writeVarLong(buffer, 0);
+            return;
+        }
+        writeVarLong(buffer, attachments.size());
+        for (Map.Entry<String, String> entry : attachments.entrySet()) {
+            writeString(buffer, entry.getKey());
+            writeString(buffer, entry.getValue());
+        }
+    }
+
+    private static void writeString(Buffer buffer, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(buffer, bytes.length);
+        buffer.appendBytes(bytes);
+    }
+
+    // 无符号 varint，每个字节低 7 位存数据，最高位表示后面还有字节
+    private static void writeVarLong(Buffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.appendByte((byte) value);
+    }
+
 }
@@ -7,7 +7,13 @@ import lombok.Getter;
 public enum ProtocolMessageStatusEnum {
     OK("ok", 200),
     BAD_REQUEST("badRequest", 400),
-    BAD_RESPONSE("badRequest", 500);
+    BAD_RESPONSE("badRequest", 500),
+    // 服务端线程池或并发数已满，请求未被执行，可以安全地重试其他节点
+    SERVER_BUSY("serverBusy", 503),
+    // 超过服务方法的自适应并发限制，请求未被执行，可以安全地转移到其他节点
+    LIMIT_EXCEEDED("limitExceeded", 429),
+    // 请求在服务端排队期间超过截止时间，未被执行
+    DEADLINE_EXCEEDED("deadlineExceeded", 504);
 
     private final String text;
 
@@ -19,10 +25,10 @@ public enum ProtocolMessageStatusEnum {
     }
 
 
-    // 根据状态码获取枚举
+    // 根据状态码获取枚举（协议头中的状态码只有 1 个字节，按字节比较）
     public static ProtocolMessageStatusEnum getEnumByStatus(int status) {
         for (ProtocolMessageStatusEnum statusEnum : ProtocolMessageStatusEnum.values()) {
-            if (statusEnum.status == status) {
+            if ((byte) statusEnum.status == (byte) status) {
                 return statusEnum;
             }
         }
@@ -0,0 +1,145 @@
+package com.ff.proxy;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 异步调用存根，通过 ServiceProxyFactory.getAsyncProxy 获取
+ * 所有调用立即返回 CompletableFuture，结果由 TCP 响应处理器直接完成，不阻塞调用线程
+ * <p>
+ * 用法：
+ * <pre>
+ * AsyncServiceStub&lt;UserService&gt; stub = ServiceProxyFactory.getAsyncProxy(UserService.class);
+ * stub.call(userService -> userService.getUser(user)).thenAccept(...);
+ * stub.callAsync(userService -> userService.getUserAsync(user)).thenAccept(...);
+ * </pre>
+ *
+ * @param <T> 服务接口
+ */
+public class AsyncServiceStub<T> {
+
+    private final Class<T> serviceClass;
+
+    // 录制代理：只记录被调用的方法与参数，不发起真正的远程调用
+    private final T recorder;
+
+    // 当前线程最近一次录制到的调用
+    private final ThreadLocal<Invocation> recordedInvocation = new ThreadLocal<>();
+
+    // mock 模式下直接调用 mock 代理
+    private final T mockProxy;
+
+    AsyncServiceStub(Class<T> serviceClass, T mockProxy) {
+        this.serviceClass = serviceClass;
+        this.mockProxy = mockProxy;
+        this.recorder = (T) Proxy.newProxyInstance(
+                serviceClass.getClassLoader(),
+                new Class[]{serviceClass},
+                (proxy, method, args) -> {
+                    recordedInvocation.set(new Invocation(method, args));
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    /**
+     * 以接口方法引用的形式发起异步调用
+     * 返回 CompletableFuture 的方法请使用 callAsync，否则结果类型会多包一层
+     *
+     * @param invocation 对服务接口的一次调用，例如 userService -> userService.getUser(user)
+     * @param <R>        方法返回类型
+     * @return 调用结果
+     */
+    public <R> CompletableFuture<R> call(Function<T, R> invocation) {
+        if (mockProxy != null) {
+            return CompletableFuture.completedFuture(invocation.apply(mockProxy));
+        }
+        Invocation recorded = record(invocation);
+        if (recorded == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("未调用 " + serviceClass.getName() + " 的任何方法"));
+        }
+        if (CompletableFuture.class.isAssignableFrom(recorded.method().getReturnType())) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "方法 " + recorded.method().getName() + " 返回 CompletableFuture，请使用 callAsync 调用"));
+        }
+        return (CompletableFuture<R>) ServiceProxy.invokeAsync(recorded.method(), recorded.args());
+    }
+
+    /**
+     * 以接口方法引用的形式调用返回 CompletableFuture 的方法，结果不再多包一层
+     *
+     * @param invocation 对服务接口的一次调用，例如 userService -> userService.getUserAsync(user)
+     * @param <R>        方法返回的 CompletableFuture 的结果类型
+     * @return 调用结果
+     */
+    public <R> CompletableFuture<R> callAsync(Function<T, CompletableFuture<R>> invocation) {
+        if (mockProxy != null) {
+            CompletableFuture<R> result = invocation.apply(mockProxy);
+            return result != null ? result : CompletableFuture.completedFuture(null);
+        }
+        Invocation recorded = record(invocation);
+        if (recorded == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("未调用 " + serviceClass.getName() + " 的任何方法"));
+        }
+        return (CompletableFuture<R>) ServiceProxy.invokeAsync(recorded.method(), recorded.args());
+    }
+
+    // 在录制代理上执行调用，返回录制到的方法与参数，没有调用任何方法时返回 null
+    private Invocation record(Function<T, ?> invocation) {
+        invocation.apply(recorder);
+        Invocation recorded = recordedInvocation.get();
+        recordedInvocation.remove();
+        return recorded;
+    }
+
+    /**
+     * 通用异步调用：按方法名与参数类型发起调用
+     *
+     * @param methodName     方法名
+     * @param parameterTypes 方法参数类型
+     * @param args           参数
+     * @return 调用结果
+     */
+    public CompletableFuture<Object> invoke(String methodName, Class<?>[] parameterTypes, Object... args) {
+        Method method;
+        try {
+            method = serviceClass.getMethod(methodName, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (mockProxy != null) {
+            try {
+                return CompletableFuture.completedFuture(method.invoke(mockProxy, args));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return ServiceProxy.invokeAsync(method, args);
+    }
+
+    private static Object defaultValue(Class<?> returnType) {
+        if (!returnType.isPrimitive() || returnType == void.class) {
+            return null;
+        }
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == char.class) {
+            return (char) 0;
+        } else if (returnType == byte.class) {
+            return (byte) 0;
+        } else if (returnType == short.class) {
+            return (short) 0;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        } else if (returnType == float.class) {
+            return 0F;
+        }
+        return 0D;
+    }
+
+    private record Invocation(Method method, Object[] args) {
+    }
+}
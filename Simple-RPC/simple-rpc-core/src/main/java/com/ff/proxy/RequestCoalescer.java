@@ -0,0 +1,278 @@
+package com.ff.proxy;
+
+import cn.hutool.core.util.StrUtil;
+import com.ff.RpcApplication;
+import com.ff.config.CoalesceConfig;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 客户端请求合并（singleflight）
+ * 同一个方法、参数相等（Arrays.deepEquals）的调用在途时，后来的调用挂到在途调用上等待结果，不再重复发送；
+ * 在途调用结束后立即移除，之后的调用重新发送，因此不会返回过期的结果。
+ * 每个调用方拿到的都是结果 future 的副本，某个调用方取消或超时不会影响其他调用方
+ */
+public class RequestCoalescer {
+
+    // 无法估计规模的参数
+    static final long UNSIZABLE = Long.MAX_VALUE;
+
+    // 值对象字段的最大嵌套层数，超过时无法估计规模
+    private static final int MAX_DEPTH = 16;
+
+    // 不是值对象的类
+    private static final Field[] NOT_A_VALUE = new Field[0];
+
+    // 类 -> 值对象参与 equals 的字段
+    private static final ClassValue<Field[]> VALUE_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return valueFields(type);
+        }
+    };
+
+    // 开启合并的规则：服务名[#方法名]
+    private final Set<String> rules;
+
+    private final int maxKeySize;
+
+    private final int maxInFlightKeys;
+
+    // 方法 -> 是否开启合并
+    private final Map<Method, Boolean> enabledMethods = new ConcurrentHashMap<>();
+
+    // 在途调用
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlightKeys = new AtomicInteger();
+
+    public RequestCoalescer(CoalesceConfig coalesceConfig) {
+        this.rules = parseRules(coalesceConfig.getMethods());
+        this.maxKeySize = coalesceConfig.getMaxKeySize();
+        this.maxInFlightKeys = coalesceConfig.getMaxInFlightKeys();
+    }
+
+    public static RequestCoalescer getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 发起调用，可以合并时挂到参数相等的在途调用上
+     *
+     * @param method 调用的接口方法
+     * @param args   参数
+     * @param call   实际发起调用的方法
+     * @return 调用结果
+     */
+    public CompletableFuture<Object> call(Method method, Object[] args, Supplier<CompletableFuture<Object>> call) {
+        if (!isEnabled(method) || keySize(args, maxKeySize) > maxKeySize) {
+            return call.get();
+        }
+        Key key = new Key(method, args);
+        CompletableFuture<Object> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing.copy();
+        }
+        if (inFlightKeys.incrementAndGet() > maxInFlightKeys) {
+            inFlightKeys.decrementAndGet();
+            return call.get();
+        }
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            inFlightKeys.decrementAndGet();
+            return existing.copy();
+        }
+        CompletableFuture<Object> future;
+        try {
+            future = call.get();
+        } catch (Throwable e) {
+            // 包括 Error 在内都要经过下面的清理，否则合并键和在途计数不会释放
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, throwable) -> {
+            // 先移除再完成，结果返回之后到达的调用会重新发送
+            inFlight.remove(key, shared);
+            inFlightKeys.decrementAndGet();
+            if (throwable == null) {
+                shared.complete(result);
+            } else {
+                shared.completeExceptionally(throwable);
+            }
+        });
+        return shared.copy();
+    }
+
+    private boolean isEnabled(Method method) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+        Boolean enabled = enabledMethods.get(method);
+        if (enabled == null) {
+            String serviceName = method.getDeclaringClass().getName();
+            enabled = rules.contains(serviceName + "#" + method.getName()) || rules.contains(serviceName);
+            enabledMethods.put(method, enabled);
+        }
+        return enabled;
+    }
+
+    /**
+     * 参数规模：字符串按长度计算，数组、集合和 Map 按元素累加，数字、布尔、字符、枚举和 JDK 中的值类型（如 UUID、LocalDate）按 1 计算；
+     * 值对象（record，或重写了 equals 和 hashCode 的类，如 @Data DTO）按 1 加上各字段的规模计算；
+     * 按引用比较的对象参数相等时才会命中，合并没有意义，返回 UNSIZABLE。
+     * 累加超过 limit 时立即返回，不再遍历剩余部分
+     */
+    static long keySize(Object value, long limit) {
+        return keySize(value, limit, 0);
+    }
+
+    private static long keySize(Object value, long limit, int depth) {
+        if (value == null || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum<?>) {
+            return 1;
+        }
+        if (depth > MAX_DEPTH) {
+            return UNSIZABLE;
+        }
+        if (value instanceof CharSequence charSequence) {
+            return charSequence.length();
+        }
+        if (value instanceof Object[] array) {
+            return sumKeySize(Arrays.asList(array), 0, limit, depth);
+        }
+        if (value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        if (value instanceof Collection<?> collection) {
+            return sumKeySize(collection, 0, limit, depth);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return sumKeySize(map.values(), sumKeySize(map.keySet(), 0, limit, depth), limit, depth);
+        }
+        Field[] fields = VALUE_FIELDS.get(value.getClass());
+        if (fields == NOT_A_VALUE) {
+            return UNSIZABLE;
+        }
+        long size = 1;
+        try {
+            for (Field field : fields) {
+                size = addKeySize(size, keySize(field.get(value), limit, depth + 1));
+                if (size > limit) {
+                    return size;
+                }
+            }
+        } catch (IllegalAccessException e) {
+            return UNSIZABLE;
+        }
+        return size;
+    }
+
+    private static long sumKeySize(Collection<?> elements, long size, long limit, int depth) {
+        for (Object element : elements) {
+            if (size > limit) {
+                return size;
+            }
+            size = addKeySize(size, keySize(element, limit, depth + 1));
+        }
+        return size;
+    }
+
+    // 累加时不溢出，任意一部分无法估计时整体无法估计
+    private static long addKeySize(long size, long elementSize) {
+        return elementSize == UNSIZABLE || size >= UNSIZABLE - elementSize ? UNSIZABLE : size + elementSize;
+    }
+
+    // 值对象参与 equals 的字段：record 与重写了 equals、hashCode 的类取所有非静态、非 transient 字段
+    private static Field[] valueFields(Class<?> type) {
+        try {
+            if (!type.isRecord() && (type.getMethod("equals", Object.class).getDeclaringClass() == Object.class
+                    || type.getMethod("hashCode").getDeclaringClass() == Object.class)) {
+                return NOT_A_VALUE;
+            }
+            // JDK 中的值类型不反射访问内部字段
+            if (type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+                return new Field[0];
+            }
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        } catch (NoSuchMethodException | RuntimeException e) {
+            // 模块未开放等原因无法访问字段
+            return NOT_A_VALUE;
+        }
+    }
+
+    private static Set<String> parseRules(List<String> methods) {
+        Set<String> rules = new HashSet<>();
+        if (methods == null) {
+            return rules;
+        }
+        for (String rule : methods) {
+            if (StrUtil.isNotBlank(rule)) {
+                rules.add(rule.trim());
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * 合并键：方法（区分重载）和参数
+     */
+    private static final class Key {
+
+        private final Method method;
+
+        private final Object[] args;
+
+        private final int hash;
+
+        Key(Method method, Object[] args) {
+            this.method = method;
+            this.args = args == null ? new Object[0] : args;
+            this.hash = method.hashCode() * 31 + Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return hash == key.hash && method.equals(key.method) && Arrays.deepEquals(args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Holder {
+        private static final RequestCoalescer INSTANCE =
+                new RequestCoalescer(RpcApplication.getRpcConfig().getCoalesceConfig());
+    }
+}
@@ -2,20 +2,27 @@ package com.ff.proxy;
 
 import cn.hutool.core.collection.CollUtil;
 import com.ff.RpcApplication;
+import com.ff.RpcContext;
 import com.ff.config.RpcConfig;
 import com.ff.constant.RpcConstant;
+import com.ff.fault.circuitbreaker.CircuitBreaker;
+import com.ff.fault.circuitbreaker.CircuitBreakerFactory;
+import com.ff.fault.hedge.RequestHedger;
 import com.ff.fault.retry.RetryStrategy;
 import com.ff.fault.retry.RetryStrategyFactory;
 import com.ff.fault.tolerant.TolerantStrategy;
 import com.ff.fault.tolerant.TolerantStrategyFactory;
 import com.ff.loadbalancer.LoadBalancer;
 import com.ff.loadbalancer.LoadBalancerFactory;
+import com.ff.metrics.MethodMetrics;
+import com.ff.metrics.RpcMetrics;
 import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
 import com.ff.model.ServiceMetaInfo;
 import com.ff.registry.Registry;
 import com.ff.registry.RegistryFactory;
 import com.ff.server.tcp.VertxTcpClient;
+import io.vertx.core.Context;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationHandler;
@@ -23,6 +30,9 @@ import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 @Slf4j
 public class ServiceProxy implements InvocationHandler {
@@ -31,62 +41,148 @@ public class ServiceProxy implements InvocationHandler {
     // invoke 就是拦截之后具体的做法， 拦截之后就会把调用的接口、方法、类型参数、参数值给传过来，刚好符合我们的需求
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        CompletableFuture<Object> resultFuture = invokeAsync(method, args);
 
+        // 接口方法返回 CompletableFuture 时直接返回，由 TCP 响应处理器完成，不阻塞调用线程
+        if (CompletableFuture.class.isAssignableFrom(method.getReturnType())) {
+            return resultFuture;
+        }
+
+        // 同步调用会阻塞当前线程，在事件循环线程中阻塞会导致响应永远无法被处理
+        if (Context.isOnEventLoopThread()) {
+            throw new IllegalStateException("不能在 Vert.x 事件循环线程中发起同步 RPC 调用，请使用返回 CompletableFuture 的方法或异步代理");
+        }
+        try {
+            return resultFuture.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
 
+    /**
+     * 异步调用，开启了请求合并的方法在参数相等的调用在途时直接等待它的结果；
+     * 在调用线程上取走 RpcContext 中的附加信息，带附加信息的调用不合并
+     *
+     * @param method 调用的接口方法
+     * @param args   参数
+     * @return 调用结果（RpcResponse 中的 result）
+     */
+    static CompletableFuture<Object> invokeAsync(Method method, Object[] args) {
+        Map<String, String> attachments = RpcContext.takeAttachments();
+        if (attachments != null) {
+            return doInvokeAsync(method, args, attachments);
+        }
+        return RequestCoalescer.getInstance().call(method, args, () -> doInvokeAsync(method, args, null));
+    }
+
+    /**
+     * 异步调用：服务发现、负载均衡、重试、容错全部以非阻塞方式串联
+     *
+     * @param method      调用的接口方法
+     * @param args        参数
+     * @param attachments 调用附加信息，可以为 null
+     * @return 调用结果（RpcResponse 中的 result）
+     */
+    private static CompletableFuture<Object> doInvokeAsync(Method method, Object[] args, Map<String, String> attachments) {
+        RpcConfig rpcConfig = RpcApplication.getRpcConfig();
+        String serviceName = method.getDeclaringClass().getName();
         // 构建请求
         RpcRequest request = RpcRequest.builder()
-                .serviceName(method.getDeclaringClass().getName()) // 接口名称
+                .serviceName(serviceName) // 接口名称
                 .methodName(method.getName()) // 方法名
                 .parameterTypes(method.getParameterTypes())  // 方法参数类型
                 .parameters(args) // 参数
+                .attachments(attachments) // 附加信息
+                // 单向调用只对返回 void 的方法生效
+                .oneway(method.getReturnType() == void.class && rpcConfig.isOneway(serviceName, method.getName()))
                 .build();
 
+        // 调用指标：包含服务发现、负载均衡、重试和容错在内的完整耗时
+        MethodMetrics metrics = RpcMetrics.client(request.getServiceName(), request.getMethodName());
+        if (metrics != null) {
+            metrics.begin();
+        }
+        // 调用开始的时间，用于指标和故障转移的截止时间
+        long startNanos = System.nanoTime();
+        Map<String, Object> requestParams = new HashMap<>();
+        ServiceMetaInfo serviceMetaInfoLoadBalancer;
+        List<ServiceMetaInfo> services;
+        LoadBalancer loadBalancer;
+        CircuitBreaker circuitBreaker;
         try {
-            RpcConfig rpcConfig = RpcApplication.getRpcConfig();
             Registry registry = RegistryFactory.getInstance(rpcConfig.getRegistryConfig().getRegistry());
 
             ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
             serviceMetaInfo.setServiceName(method.getDeclaringClass().getName());
             serviceMetaInfo.setServiceVersion(RpcConstant.DEFAULT_SERVICE_VERSION);
-            List<ServiceMetaInfo> services = registry.getServices(serviceMetaInfo.getServiceKey());
+            services = registry.getServices(serviceMetaInfo.getServiceKey());
             if (CollUtil.isEmpty(services)) {
                 log.info("注册中心：{}，无法找到key：{} 的服务地址", method.getDeclaringClass().getName(), serviceMetaInfo.getServiceKey());
                 throw new RuntimeException("暂无服务地址");
             }
+            // 熔断：排除熔断中的节点
+            circuitBreaker = CircuitBreakerFactory.getInstance(rpcConfig.getCircuitBreaker());
+            services = circuitBreaker.filter(request.getServiceName(), request.getMethodName(), services);
+            if (services.isEmpty()) {
+                throw new RuntimeException("服务节点均已熔断: " + serviceMetaInfo.getServiceKey() + "#" + request.getMethodName());
+            }
             // 负载均衡算法
-            LoadBalancer instance = LoadBalancerFactory.getInstance(rpcConfig.getLoadBalancer());
-            Map<String, Object> requestParams = new HashMap<>();
+            loadBalancer = LoadBalancerFactory.getInstance(rpcConfig.getLoadBalancer());
             requestParams.put("methodName", request.getMethodName());
             requestParams.put("services", services); // 用于服务容错
             requestParams.put("request", request); // 用于服务容错使用
-            ServiceMetaInfo serviceMetaInfoLoadBalancer = instance.select(requestParams, services);
+            serviceMetaInfoLoadBalancer = loadBalancer.select(requestParams, services);
+            requestParams.put("selectedService", serviceMetaInfoLoadBalancer); // 故障转移时排除
+            requestParams.put("startNanos", startNanos); // 故障转移共用调用的超时时间
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            if (metrics != null) {
+                metrics.end(startNanos, System.nanoTime(), false);
+            }
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
 
-            // 发送请求 serviceMetaInfoFirst.getServiceAddress() -> URL
-            // 取消其他的服务器发送功能-暂时只能通过Vert.x进行发送
+        // 发送请求 serviceMetaInfoFirst.getServiceAddress() -> URL
+        // 取消其他的服务器发送功能-暂时只能通过Vert.x进行发送
 //            byte[] result = rpcServer.sendPost(serviceMetaInfoFirst.getServiceAddress(), bytes);
 
-            // 重试机制
-            try {
-                RetryStrategy retryStrategy = RetryStrategyFactory.getInstance(RpcApplication.getRpcConfig().getRetryStrategy());
-                // 进行重试
-                RpcResponse rpcResponse = retryStrategy.retry(() ->
-                        VertxTcpClient.sendPost(request, serviceMetaInfoLoadBalancer, 5)
-                );
-                return rpcResponse.getResult();
-            } catch (Exception e) {
-                // 容错机制
-                TolerantStrategy tolerantStrategy = TolerantStrategyFactory.getInstance(RpcApplication.getRpcConfig().getTolerantStrategy());
-                try {
-                    return tolerantStrategy.tolerant(requestParams, e);
-                } catch (Exception exception) {
-                    log.error(e.getMessage(), e);
-                    throw new RuntimeException("调用失败！");
-                }
-            }
-            // 反序列化
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            throw new RuntimeException(e);
+        // 服务级、方法级超时时间
+        long timeoutMillis = rpcConfig.getTimeout(request.getServiceName(), request.getMethodName());
+
+        // 重试机制
+        RetryStrategy retryStrategy = RetryStrategyFactory.getInstance(rpcConfig.getRetryStrategy());
+        // 每次尝试都经过熔断器，节点熔断后剩余的重试直接失败，不再等待超时；开启了对冲的方法慢时向另一个节点发送对冲请求
+        RequestHedger requestHedger = RequestHedger.getInstance();
+        List<ServiceMetaInfo> availableServices = services;
+        CompletableFuture<Object> resultFuture = retryStrategy.retryAsync(() ->
+                        requestHedger.call(request, serviceMetaInfoLoadBalancer, availableServices, requestParams,
+                                loadBalancer, circuitBreaker, timeoutMillis,
+                                (node, nodeTimeoutMillis) -> VertxTcpClient.sendAsync(request, node, nodeTimeoutMillis))
+                )
+                .exceptionallyCompose(throwable -> {
+                    // 容错机制
+                    Exception e = unwrap(throwable);
+                    TolerantStrategy tolerantStrategy = TolerantStrategyFactory.getInstance(rpcConfig.getTolerantStrategy());
+                    return tolerantStrategy.tolerantAsync(requestParams, e)
+                            .exceptionallyCompose(exception -> {
+                                log.error(e.getMessage(), e);
+                                return CompletableFuture.failedFuture(new RuntimeException("调用失败！"));
+                            });
+                })
+                .thenApply(rpcResponse -> rpcResponse == null ? null : rpcResponse.getResult());
+        if (metrics != null) {
+            long callStartNanos = startNanos;
+            resultFuture.whenComplete((result, throwable) ->
+                    metrics.end(callStartNanos, System.nanoTime(), throwable == null));
+        }
+        return resultFuture;
+    }
+
+    private static Exception unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
     }
 }
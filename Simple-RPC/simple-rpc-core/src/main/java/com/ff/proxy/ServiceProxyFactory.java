@@ -1,11 +1,14 @@
 package com.ff.proxy;
 
 import com.ff.RpcApplication;
+import com.ff.serializer.ServiceTypes;
 
 import java.lang.reflect.Proxy;
 
 public class ServiceProxyFactory {
     public static <T> T getProxy(Class<T> serviceClass) {
+        // 接口方法的参数类型、返回值类型允许序列化器按类型名解析
+        ServiceTypes.registerService(serviceClass);
 
         // 如果是 mock 类型则直接返回默认值
         if (RpcApplication.getRpcConfig().isMock()) {
@@ -19,6 +22,15 @@ public class ServiceProxyFactory {
                 new ServiceProxy()); // 代理逻辑的处理器，实现 InvocationHandler 接口
     }
 
+    // 获取异步调用存根，所有调用都返回 CompletableFuture
+    public static <T> AsyncServiceStub<T> getAsyncProxy(Class<T> serviceClass) {
+        ServiceTypes.registerService(serviceClass);
+        if (RpcApplication.getRpcConfig().isMock()) {
+            return new AsyncServiceStub<>(serviceClass, getMockProxy(serviceClass));
+        }
+        return new AsyncServiceStub<>(serviceClass, null);
+    }
+
     public static <T> T getMockProxy(Class<T> serviceClass) {
         return (T) Proxy.newProxyInstance(
                 serviceClass.getClassLoader(),
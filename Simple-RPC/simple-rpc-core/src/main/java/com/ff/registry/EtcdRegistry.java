@@ -89,6 +89,11 @@ public class EtcdRegistry implements Registry {
         // 创建一个 30 秒的租约
         long leaseId = leaseClient.grant(30).get().getID();
 
+        // 记录注册时间，用于消费端计算预热权重（节点重新注册时保留首次注册的时间）
+        if (serviceMetaInfo.getRegisterTime() == null) {
+            serviceMetaInfo.setRegisterTime(System.currentTimeMillis());
+        }
+
         // 拼接 etcd 中的服务键名
         String registryKey = ETCD_ROOT_PATH + serviceMetaInfo.getServiceNodeKey();
         ByteSequence key = ByteSequence.from(registryKey, StandardCharsets.UTF_8);
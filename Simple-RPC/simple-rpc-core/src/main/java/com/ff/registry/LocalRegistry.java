@@ -1,25 +1,175 @@
 package com.ff.registry;
 
+import com.ff.model.MethodDictionary;
+import com.ff.protocol.ProtocolConstant;
+import com.ff.serializer.ServiceTypes;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class LocalRegistry {
 
-    // 服务注册存储， 本地存储实现类， consumer 和 provider 都能使用
-    public static final Map<String, Class<?>> map = new ConcurrentHashMap<>();
+    // 服务注册存储， 本地存储服务实例（单例），consumer 和 provider 都能使用
+    public static final Map<String, Object> map = new ConcurrentHashMap<>();
+
+    // 分发表：服务名 -> 方法名 -> 同名方法（重载）的调用器，注册时生成
+    private static final Map<String, Map<String, MethodInvoker[]>> invokerMap = new ConcurrentHashMap<>();
+
+    // 方法签名 -> 方法 id，同一签名重复注册时沿用原来的 id
+    private static final Map<String, Integer> methodIdMap = new HashMap<>();
+
+    // 方法 id -> 调用器，下标即方法 id，注册、删除时整体替换
+    private static volatile MethodInvoker[] invokersById = new MethodInvoker[0];
+
+    // 下发给客户端的方法 id 字典，懒加载
+    private static volatile MethodDictionary methodDictionary;
 
-    // 服务注册
+    // 服务注册，实现类只在注册时实例化一次
     public static void register(String serviceName, Class<?> implClass) {
-        map.put(serviceName, implClass);
+        Object instance;
+        try {
+            instance = implClass.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException("服务实现类实例化失败: " + implClass.getName(), e);
+        }
+        register(serviceName, instance);
     }
 
-    // 获取服务
-    public static Class<?> get(String serviceName) {
+    // 服务注册，直接使用已创建好的服务实例
+    public static synchronized void register(String serviceName, Object instance) {
+        Map<String, List<MethodInvoker>> invokersByName = new HashMap<>();
+        MethodInvoker[] newInvokersById = removeInvokers(invokersById, serviceName);
+        // 本次注册已经填入的方法 id
+        BitSet registeredIds = new BitSet();
+        for (Method method : instance.getClass().getMethods()) {
+            // Object 上的方法、静态方法不对外暴露
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            // 方法的参数类型、返回值类型允许序列化器按类型名解析
+            ServiceTypes.registerMethod(method);
+            int methodId = methodIdMap.computeIfAbsent(signature(serviceName, method), key -> methodIdMap.size());
+            MethodInvoker invoker = new MethodInvoker(methodId, serviceName, instance, method);
+            if (methodId >= newInvokersById.length) {
+                newInvokersById = Arrays.copyOf(newInvokersById, Math.max(methodId + 1, newInvokersById.length * 2));
+            }
+            // 桥接方法与实际方法签名相同时，保留实际方法
+            if (!registeredIds.get(methodId) || newInvokersById[methodId].getMethod().isBridge()) {
+                newInvokersById[methodId] = invoker;
+                registeredIds.set(methodId);
+            }
+            invokersByName.computeIfAbsent(method.getName(), key -> new ArrayList<>()).add(invoker);
+        }
+        Map<String, MethodInvoker[]> methodInvokers = new HashMap<>();
+        invokersByName.forEach((methodName, invokers) -> {
+            // 参数类型相同时优先匹配实际方法，而不是编译器生成的桥接方法
+            invokers.sort(Comparator.comparing(invoker -> invoker.getMethod().isBridge()));
+            methodInvokers.put(methodName, invokers.toArray(new MethodInvoker[0]));
+        });
+        invokerMap.put(serviceName, methodInvokers);
+        invokersById = newInvokersById;
+        methodDictionary = null;
+        map.put(serviceName, instance);
+    }
+
+    // 获取服务实例
+    public static Object get(String serviceName) {
         return map.get(serviceName);
     }
 
+    /**
+     * 获取服务方法的调用器
+     *
+     * @param serviceName    服务名
+     * @param methodName     方法名
+     * @param parameterTypes 参数类型
+     * @return 调用器，服务或方法不存在时返回 null
+     */
+    public static MethodInvoker getInvoker(String serviceName, String methodName, Class<?>[] parameterTypes) {
+        Map<String, MethodInvoker[]> methodInvokers = invokerMap.get(serviceName);
+        if (methodInvokers == null) {
+            return null;
+        }
+        MethodInvoker[] invokers = methodInvokers.get(methodName);
+        if (invokers == null) {
+            return null;
+        }
+        // 绝大多数方法没有重载，数组中只有一个元素
+        for (MethodInvoker invoker : invokers) {
+            if (Arrays.equals(invoker.getParameterTypes(), parameterTypes)
+                    || (parameterTypes == null && invoker.getParameterTypes().length == 0)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据方法 id 获取调用器
+     *
+     * @return 调用器，方法 id 不存在或服务已删除时返回 null
+     */
+    public static MethodInvoker getInvoker(int methodId) {
+        MethodInvoker[] invokers = invokersById;
+        return methodId >= 0 && methodId < invokers.length ? invokers[methodId] : null;
+    }
+
+    /**
+     * 获取当前所有已注册方法的方法 id 字典
+     */
+    public static MethodDictionary getMethodDictionary() {
+        MethodDictionary dictionary = methodDictionary;
+        if (dictionary == null) {
+            dictionary = new MethodDictionary();
+            dictionary.setProtocolVersion(ProtocolConstant.PROTOCOL_VERSION);
+            for (MethodInvoker invoker : invokersById) {
+                if (invoker != null) {
+                    dictionary.getEntries().add(new MethodDictionary.Entry(invoker.getMethodId(),
+                            invoker.getServiceName(), invoker.getMethod().getName(), invoker.getParameterTypes()));
+                }
+            }
+            methodDictionary = dictionary;
+        }
+        return dictionary;
+    }
+
     // 删除服务
-    public static void delete(String serviceName){
+    public static synchronized void delete(String serviceName){
+        invokersById = removeInvokers(invokersById, serviceName);
+        methodDictionary = null;
+        invokerMap.remove(serviceName);
         map.remove(serviceName);
     }
+
+    // 复制一份方法 id 表，并去掉指定服务的方法
+    private static MethodInvoker[] removeInvokers(MethodInvoker[] invokers, String serviceName) {
+        MethodInvoker[] newInvokers = invokers.clone();
+        for (int i = 0; i < newInvokers.length; i++) {
+            if (newInvokers[i] != null && newInvokers[i].getServiceName().equals(serviceName)) {
+                newInvokers[i] = null;
+            }
+        }
+        return newInvokers;
+    }
+
+    // 方法签名：服务名#方法名(参数类型,...)
+    private static String signature(String serviceName, Method method) {
+        StringBuilder signature = new StringBuilder(serviceName).append('#').append(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(parameterTypes[i].getName());
+        }
+        return signature.append(')').toString();
+    }
 }
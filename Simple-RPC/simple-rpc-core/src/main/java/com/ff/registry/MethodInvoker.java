@@ -0,0 +1,84 @@
+package com.ff.registry;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 预编译的服务方法调用器
+ * 注册服务时为每个方法生成一次：MethodHandle 绑定服务实例并展开参数数组，
+ * 调用时不再需要 getMethod 查找，也不需要反射调用时的访问检查和参数包装
+ */
+public class MethodInvoker {
+
+    // 统一的调用签名：(Object[]) -> Object
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    // 方法 id，同一方法签名在进程内保持不变
+    @Getter
+    private final int methodId;
+
+    @Getter
+    private final String serviceName;
+
+    @Getter
+    private final Method method;
+
+    @Getter
+    private final Class<?>[] parameterTypes;
+
+    // 带泛型信息的参数类型（如 List<User>），供 JSON 等需要完整类型的序列化器使用
+    @Getter
+    private final Type[] genericParameterTypes;
+
+    // 带泛型信息的返回值类型，返回 CompletableFuture<T> 时为 T
+    @Getter
+    private final Type resultType;
+
+    private final MethodHandle methodHandle;
+
+    MethodInvoker(int methodId, String serviceName, Object instance, Method method) {
+        this.methodId = methodId;
+        this.serviceName = serviceName;
+        this.method = method;
+        this.parameterTypes = method.getParameterTypes();
+        this.genericParameterTypes = method.getGenericParameterTypes();
+        this.resultType = resolveResultType(method);
+        try {
+            // 实现类可能不是 public 的（例如内部类）
+            method.setAccessible(true);
+            this.methodHandle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(instance)
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(INVOKER_TYPE);
+        } catch (Exception e) {
+            throw new RuntimeException("生成服务方法调用器失败: " + method, e);
+        }
+    }
+
+    /**
+     * 调用服务方法，服务方法抛出的异常原样抛出（不会被包装为 InvocationTargetException）
+     *
+     * @param args 方法参数，无参方法可以为 null
+     * @return 方法返回值
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        return (Object) methodHandle.invokeExact(args);
+    }
+
+    // 异步方法的实际结果类型是 CompletableFuture 的泛型参数
+    private static Type resolveResultType(Method method) {
+        Type returnType = method.getGenericReturnType();
+        if (CompletableFuture.class.isAssignableFrom(method.getReturnType())) {
+            return returnType instanceof ParameterizedType parameterizedType
+                    ? parameterizedType.getActualTypeArguments()[0] : Object.class;
+        }
+        return returnType;
+    }
+}
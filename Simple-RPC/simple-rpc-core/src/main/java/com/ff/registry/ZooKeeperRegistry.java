@@ -78,6 +78,11 @@ public class ZooKeeperRegistry implements Registry {
 
     @Override
     public void registry(ServiceMetaInfo serviceMetaInfo) throws Exception {
+        // 记录注册时间，用于消费端计算预热权重（节点重新注册时保留首次注册的时间）
+        if (serviceMetaInfo.getRegisterTime() == null) {
+            serviceMetaInfo.setRegisterTime(System.currentTimeMillis());
+        }
+
         // 注册到 zk 里
         serviceDiscovery.registerService(buildServiceInstance(serviceMetaInfo));
 
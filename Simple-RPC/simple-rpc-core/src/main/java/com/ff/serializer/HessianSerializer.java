@@ -6,6 +6,8 @@ import com.caucho.hessian.io.HessianOutput;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * 基于 Hessian 的序列化实现类
@@ -51,4 +53,17 @@ public class HessianSerializer implements Serializer {
         // 读取对象并强制转换为指定类型
         return (T) his.readObject();
     }
+
+    @Override
+    public <T> void serialize(T object, OutputStream outputStream) throws IOException {
+        // HessianOutput 直接写入目标输出流
+        HessianOutput hos = new HessianOutput(outputStream);
+        hos.writeObject(object);
+        hos.flush();
+    }
+
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> classType) throws IOException {
+        return (T) new HessianInput(inputStream).readObject();
+    }
 }
@@ -25,4 +25,20 @@ public class JdkSerializer implements Serializer {
             throw new IOException("Class not found during deserialization", e);
         }
     }
+
+    @Override
+    public <T> void serialize(T object, OutputStream outputStream) throws IOException {
+        ObjectOutputStream objectOutput = new ObjectOutputStream(outputStream);
+        objectOutput.writeObject(object);
+        objectOutput.flush();
+    }
+
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> classType) throws IOException {
+        try {
+            return (T) new ObjectInputStream(inputStream).readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Class not found during deserialization", e);
+        }
+    }
 }
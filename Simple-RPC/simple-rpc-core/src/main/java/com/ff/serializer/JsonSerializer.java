@@ -1,30 +1,71 @@
 package com.ff.serializer;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
+import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * 基于 Jackson 实现的 JSON 序列化器
  *
  * 问题说明：
  * JSON 序列化/反序列化存在泛型类型擦除的问题，特别是 List<User> 或 Object 类型字段。
- * 在反序列化时，由于泛型信息丢失，Jackson 默认会将对象解析为 LinkedHashMap 或 ArrayList，
- * 无法还原为原始业务对象，因此需要进行手动类型转换处理。
+ * 如果先按 Object 解析，Jackson 会将对象解析为 LinkedHashMap 或 ArrayList，之后再 convertValue 转换一遍，
+ * 相当于每次调用做两遍完整的解析、绑定，而且 List<User> 中的元素仍然是 LinkedHashMap。
  *
- * 示例：
- * {
- *   "id": 123,
- *   "name": "Tom"
- * }
- * 被识别为 Map 而不是 User 类型，需要额外处理恢复原始类型。
+ * 处理方式：
+ * RpcRequest、RpcResponse 使用自定义的流式读写，一遍解析直接绑定到目标类型：
+ * 1. 请求：服务名、方法名、参数类型（或方法 id）写在参数之前，读到参数时先找到服务端注册的调用器，
+ *    按方法声明的泛型参数类型（如 List<User>）逐个绑定参数
+ * 2. 响应：服务端把方法声明的泛型返回值类型以 resultType 字段写在 result 之前，客户端按该类型直接绑定 result
+ * 字段顺序不符合预期（例如其他语言的调用方）时，先把参数或结果缓存为 token，读完整个对象后再绑定。
  */
 public class JsonSerializer implements Serializer {
 
     // ObjectMapper 是线程安全的，推荐使用单例，避免频繁创建带来的性能开销
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = createObjectMapper();
+
+    private static final TypeFactory typeFactory = objectMapper.getTypeFactory();
+
+    private static final JavaType OBJECT_TYPE = typeFactory.constructType(Object.class);
+
+    // 方法 -> 泛型参数类型
+    private static final Map<Method, JavaType[]> parameterTypeCache = new ConcurrentHashMap<>();
+
+    // 声明的返回值类型 -> 类型描述（如 java.util.List<com.ff.User>）
+    private static final Map<Type, String> resultTypeNameCache = new ConcurrentHashMap<>();
+
+    // 类型描述 -> 返回值类型，只包含 ServiceTypes 登记过的类型，不按对端发送的类型名创建
+    private static final Map<String, JavaType> resultTypeCache = new ConcurrentHashMap<>();
+
+    // resultTypeCache 对应的 ServiceTypes 版本
+    private static volatile int resultTypeVersion = -1;
 
     /**
      * 将对象序列化为字节数组
@@ -48,68 +89,294 @@ public class JsonSerializer implements Serializer {
      */
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> classType) throws IOException {
-        // 基础反序列化
-        T obj = objectMapper.readValue(bytes, classType);
+        return objectMapper.readValue(bytes, classType);
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream outputStream) throws IOException {
+        objectMapper.writeValue(outputStream, object);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> classType) throws IOException {
+        return objectMapper.readValue(inputStream, classType);
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        SimpleModule module = new SimpleModule("ff-rpc");
+        module.setMixInAnnotation(RpcRequest.class, RpcRequestMixin.class);
+        module.addDeserializer(RpcRequest.class, new RpcRequestDeserializer());
+        module.addSerializer(RpcResponse.class, new RpcResponseSerializer());
+        module.addDeserializer(RpcResponse.class, new RpcResponseDeserializer());
+        return new ObjectMapper().registerModule(module);
+    }
+
+    /**
+     * 请求字段顺序：先写定位方法所需的字段，最后写参数
+     */
+    @JsonPropertyOrder({"methodId", "serviceName", "methodName", "serviceVersion", "parameterTypes", "parameters"})
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonIgnoreProperties({"attachments", "oneway"})
+    private abstract static class RpcRequestMixin {
+    }
+
+    /**
+     * 流式读取 RpcRequest，参数按调用方法声明的泛型类型直接绑定
+     */
+    private static class RpcRequestDeserializer extends StdDeserializer<RpcRequest> {
 
-        // 针对 RpcRequest/RpcResponse 做特殊处理，解决泛型擦除的问题
-        if (obj instanceof RpcResponse) {
-            return handlerResponse((RpcResponse) obj, classType);
+        RpcRequestDeserializer() {
+            super(RpcRequest.class);
         }
-        if (obj instanceof RpcRequest) {
-            return handlerRequest((RpcRequest) obj, classType);
+
+        @Override
+        public RpcRequest deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            RpcRequest request = new RpcRequest();
+            TokenBuffer bufferedParameters = null;
+            JsonToken token = p.currentToken() == JsonToken.START_OBJECT ? p.nextToken() : p.currentToken();
+            for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+                String field = p.currentName();
+                JsonToken valueToken = p.nextToken();
+                switch (field) {
+                    case "serviceName" -> request.setServiceName(p.getValueAsString());
+                    case "methodName" -> request.setMethodName(p.getValueAsString());
+                    case "serviceVersion" -> request.setServiceVersion(p.getValueAsString());
+                    case "methodId" -> request.setMethodId(valueToken == JsonToken.VALUE_NULL ? null : p.getIntValue());
+                    case "parameterTypes" -> request.setParameterTypes(readParameterTypes(p));
+                    case "parameters" -> {
+                        if (valueToken == JsonToken.VALUE_NULL) {
+                            request.setParameters(null);
+                            break;
+                        }
+                        JavaType[] types = resolveParameterTypes(request);
+                        if (types == null) {
+                            // 定位方法的字段还没读到，先缓存参数
+                            bufferedParameters = ctxt.bufferAsCopyOfValue(p);
+                        } else {
+                            request.setParameters(readParameters(p, ctxt, types));
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            if (bufferedParameters != null) {
+                JavaType[] types = resolveParameterTypes(request);
+                try (JsonParser bufferedParser = bufferedParameters.asParser(p.getCodec())) {
+                    bufferedParser.nextToken();
+                    request.setParameters(readParameters(bufferedParser, ctxt, types == null ? new JavaType[0] : types));
+                }
+            }
+            return request;
+        }
+
+        private Class<?>[] readParameterTypes(JsonParser p) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            List<Class<?>> parameterTypes = new ArrayList<>();
+            for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+                parameterTypes.add(findClass(p.getValueAsString()));
+            }
+            return parameterTypes.toArray(new Class<?>[0]);
+        }
+
+        private Object[] readParameters(JsonParser p, DeserializationContext ctxt, JavaType[] types) throws IOException {
+            Object[] parameters = new Object[types.length];
+            int index = 0;
+            for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+                JavaType type = index < types.length ? types[index] : OBJECT_TYPE;
+                Object value = token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, type);
+                if (index == parameters.length) {
+                    parameters = Arrays.copyOf(parameters, index + 1);
+                }
+                parameters[index++] = value;
+            }
+            return index == parameters.length ? parameters : Arrays.copyOf(parameters, index);
+        }
+
+        /**
+         * 优先使用服务端注册的调用器中带泛型的参数类型，其次使用请求中携带的参数类型
+         *
+         * @return 参数类型，定位方法所需的字段还没读到时返回 null
+         */
+        private JavaType[] resolveParameterTypes(RpcRequest request) {
+            MethodInvoker invoker = null;
+            if (request.getMethodId() != null) {
+                invoker = LocalRegistry.getInvoker(request.getMethodId());
+            } else if (request.getServiceName() != null && request.getMethodName() != null && request.getParameterTypes() != null) {
+                invoker = LocalRegistry.getInvoker(request.getServiceName(), request.getMethodName(), request.getParameterTypes());
+            }
+            if (invoker != null) {
+                return parameterTypeCache.computeIfAbsent(invoker.getMethod(),
+                        method -> constructTypes(method.getGenericParameterTypes()));
+            }
+            return request.getParameterTypes() == null ? null : constructTypes(request.getParameterTypes());
+        }
+
+        private static JavaType[] constructTypes(Type[] types) {
+            JavaType[] javaTypes = new JavaType[types.length];
+            for (int i = 0; i < types.length; i++) {
+                javaTypes[i] = typeFactory.constructType(types[i]);
+            }
+            return javaTypes;
         }
-        return obj;
     }
 
     /**
-     * 特殊处理 RpcRequest 的反序列化，修复参数 Object[] 中元素被解析为 LinkedHashMap 的问题
-     *
-     * @param rpcRequest 初步反序列化后的对象
-     * @param classType  目标类型（RpcRequest.class）
-     * @return 处理完泛型后的对象
-     * @throws IOException 转换失败时抛出
+     * 写出 RpcResponse，resultType 写在 result 之前
      */
-    private <T> T handlerRequest(RpcRequest rpcRequest, Class<T> classType) throws IOException {
-        Class<?>[] parameterTypes = rpcRequest.getParameterTypes(); // 每个参数声明的类型
-        Object[] parameters = rpcRequest.getParameters();           // 实际反序列化的值
-
-        for (int i = 0; i < parameterTypes.length; i++) {
-            Class<?> parameterType = parameterTypes[i];
-            Object paramValue = parameters[i];
-
-            // 如果类型不一致（通常是 LinkedHashMap），则手动转换成声明的类型
-            if (paramValue != null && !parameterType.isAssignableFrom(paramValue.getClass())) {
-                try {
-                    parameters[i] = objectMapper.convertValue(paramValue, parameterType);
-                } catch (IllegalArgumentException e) {
-                    throw new IOException("参数类型转换失败: " + paramValue + " -> " + parameterType, e);
-                }
+    private static class RpcResponseSerializer extends StdSerializer<RpcResponse> {
+
+        RpcResponseSerializer() {
+            super(RpcResponse.class);
+        }
+
+        @Override
+        public void serialize(RpcResponse response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(response);
+            Object result = response.getResult();
+            if (result != null) {
+                gen.writeStringField("resultType", resultTypeName(response.getResultType(), result));
+            }
+            if (response.getParameterType() != null) {
+                provider.defaultSerializeField("parameterType", response.getParameterType(), gen);
+            }
+            if (response.getMessage() != null) {
+                gen.writeStringField("message", response.getMessage());
+            }
+            if (response.getException() != null) {
+                provider.defaultSerializeField("exception", response.getException(), gen);
+            }
+            if (result != null) {
+                provider.defaultSerializeField("result", result, gen);
+            }
+            gen.writeEndObject();
+        }
+
+        /**
+         * 优先使用方法声明的泛型返回值类型；声明为 Object、接口或抽象类（集合、Map 除外）时无法直接绑定，使用实际类型
+         */
+        private String resultTypeName(Type declaredType, Object result) {
+            if (declaredType == null) {
+                return result.getClass().getName();
             }
+            String name = resultTypeNameCache.computeIfAbsent(declaredType, RpcResponseSerializer::canonicalName);
+            return name.isEmpty() ? result.getClass().getName() : name;
         }
 
-        return classType.cast(rpcRequest);
+        // 无法直接绑定的类型返回空字符串
+        private static String canonicalName(Type type) {
+            JavaType javaType = typeFactory.constructType(type);
+            if (javaType.isJavaLangObject() || (javaType.isAbstract() && !javaType.isContainerType())) {
+                return "";
+            }
+            return javaType.toCanonical();
+        }
     }
 
     /**
-     * 特殊处理 RpcResponse 的反序列化，修复 result 字段中 Object 类型泛型丢失问题
-     *
-     * @param rpcResponse 初步反序列化后的对象
-     * @param classType   目标类型（RpcResponse.class）
-     * @return 处理完泛型后的对象
-     * @throws IOException 转换失败时抛出
+     * 按类名查找参数类型，只接受服务接口中声明过的类型，不对对端发送的类名调用 Class.forName
+     */
+    private static Class<?> findClass(String className) throws IOException {
+        Class<?> type = ServiceTypes.findClass(className);
+        if (type == null) {
+            throw new IOException("参数类型不在允许的范围内: " + className);
+        }
+        return type;
+    }
+
+    /**
+     * 按类型描述查找返回值类型，只接受服务接口中声明过的类型，不对对端发送的类型描述调用 constructFromCanonical
+     */
+    private static JavaType findResultType(String canonicalName) throws IOException {
+        JavaType type = resultTypeCache.get(canonicalName);
+        if (type == null && resultTypeVersion != ServiceTypes.version()) {
+            indexResultTypes();
+            type = resultTypeCache.get(canonicalName);
+        }
+        if (type == null) {
+            throw new IOException("返回值类型不在允许的范围内: " + canonicalName);
+        }
+        return type;
+    }
+
+    // 登记的类型有变化时，按服务端写出 resultType 的方式重新建立类型描述索引
+    private static synchronized void indexResultTypes() {
+        int version = ServiceTypes.version();
+        if (resultTypeVersion == version) {
+            return;
+        }
+        for (Type type : ServiceTypes.types()) {
+            JavaType javaType = typeFactory.constructType(type);
+            resultTypeCache.putIfAbsent(javaType.toCanonical(), javaType);
+            if (type instanceof Class<?> clazz) {
+                // 声明为 Object 或抽象类型时服务端写出的是实际类名
+                resultTypeCache.putIfAbsent(clazz.getName(), javaType);
+            }
+        }
+        resultTypeVersion = version;
+    }
+
+    /**
+     * 流式读取 RpcResponse，result 按 resultType 直接绑定
      */
-    private <T> T handlerResponse(RpcResponse rpcResponse, Class<T> classType) throws IOException {
-        Object rawResult = rpcResponse.getResult();
-        Class<?> resultType = rpcResponse.getParameterType(); // 真实结果的类型
-
-        try {
-            // 将 result 从 LinkedHashMap 转换为实际类型（如 User、List<Order>）
-            Object realResult = objectMapper.convertValue(rawResult, resultType);
-            rpcResponse.setResult(realResult);
-        } catch (IllegalArgumentException e) {
-            throw new IOException("返回值类型转换失败: " + rawResult + " -> " + resultType, e);
-        }
-        // 返回泛型结果 <T> rpcResponse
-        return classType.cast(rpcResponse);
+    private static class RpcResponseDeserializer extends StdDeserializer<RpcResponse> {
+
+        RpcResponseDeserializer() {
+            super(RpcResponse.class);
+        }
+
+        @Override
+        public RpcResponse deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            RpcResponse response = new RpcResponse();
+            JavaType resultType = null;
+            TokenBuffer bufferedResult = null;
+            JsonToken token = p.currentToken() == JsonToken.START_OBJECT ? p.nextToken() : p.currentToken();
+            for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+                String field = p.currentName();
+                JsonToken valueToken = p.nextToken();
+                if (valueToken == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "resultType" -> {
+                        resultType = findResultType(p.getValueAsString());
+                        response.setResultType(resultType);
+                    }
+                    case "parameterType" -> {
+                        response.setParameterType(findClass(p.getValueAsString()));
+                        if (resultType == null) {
+                            resultType = typeFactory.constructType(response.getParameterType());
+                        }
+                    }
+                    case "message" -> response.setMessage(p.getValueAsString());
+                    case "exception" -> response.setException(ctxt.readValue(p, Exception.class));
+                    case "result" -> {
+                        if (resultType == null) {
+                            // 类型还没读到，先缓存结果
+                            bufferedResult = ctxt.bufferAsCopyOfValue(p);
+                        } else {
+                            response.setResult(readResult(p, ctxt, resultType));
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            if (bufferedResult != null) {
+                try (JsonParser bufferedParser = bufferedResult.asParser(p.getCodec())) {
+                    bufferedParser.nextToken();
+                    response.setResult(readResult(bufferedParser, ctxt, resultType == null ? OBJECT_TYPE : resultType));
+                }
+            }
+            return response;
+        }
+
+        private Object readResult(JsonParser p, DeserializationContext ctxt, JavaType resultType) throws IOException {
+            try {
+                return ctxt.readValue(p, resultType);
+            } catch (IOException e) {
+                throw new IOException("返回值类型转换失败: " + resultType, e);
+            }
+        }
     }
 }
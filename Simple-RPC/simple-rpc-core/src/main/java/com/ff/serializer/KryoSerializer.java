@@ -3,29 +3,114 @@ package com.ff.serializer;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import com.ff.RpcApplication;
+import com.ff.config.RpcConfig;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import org.objenesis.strategy.StdInstantiatorStrategy;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /*
  * 基于 Kryo 的序列化实现类
- * Kryo 是一种高性能的 Java 序列化框架，但它本身线程不安全，因此通过 ThreadLocal 保证每个线程一个实例。
- * 实际上就是将数据进行序列化存放到 ThreadLocal 中，反序列化的时候再通过 ThreadLocal中进行读取并且反序列化
+ * Kryo 是一种高性能的 Java 序列化框架，但它本身线程不安全，因此通过 Pool 借出、归还 Kryo 实例，
+ * Output、Input 及其内部缓冲区同样池化复用，避免每次调用都重新分配（虚拟线程下 ThreadLocal 无法复用实例）。
+ *
+ * 类注册：内置类型（RpcRequest、RpcResponse、常用 JDK 类型）和配置项 rpc.kryoRegistrations 中的类
+ * 按固定顺序注册为固定的整数 id，序列化结果中只写入 id 而不是全限定类名。
+ * 消费者和提供者必须使用相同的 rpc.kryoRegistrations 配置（顺序也要一致）。
  */
 public class KryoSerializer implements Serializer {
 
+    // 流式读写时 Kryo 内部缓冲区大小
+    private static final int STREAM_BUFFER_SIZE = 1024;
+
+    // 超过该大小的 Output 缓冲区不再放回池中，避免长期占用大块内存
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    // 池中最多保留的实例个数
+    private static final int POOL_CAPACITY = 64;
+
+    // 内置类型的起始注册 id（Kryo 默认占用 0~9 注册基本类型和 String）
+    private static final int BUILT_IN_REGISTRATION_ID_START = 20;
+
+    // 配置项中用户类型的起始注册 id
+    private static final int USER_REGISTRATION_ID_START = 100;
+
     /**
-     * 使用 ThreadLocal 保存 Kryo 实例，确保每个线程拥有独立的 Kryo 对象，避免线程安全问题
+     * 内置注册类型，id 按下标递增，只能在末尾追加，不能调整顺序，否则新旧版本之间无法互通
      */
-    private static final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        // 允许动态注册类，不需要提前注册所有待序列化的类
-        kryo.setRegistrationRequired(false);
-        // 设置类加载器，避免某些环境下（如应用服务器）类加载冲突
-        kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
-        return kryo;
-    });
+    private static final Class<?>[] BUILT_IN_REGISTRATIONS = {
+            RpcRequest.class, RpcResponse.class,
+            Object[].class, Class.class, Class[].class, String[].class,
+            byte[].class, int[].class, long[].class,
+            ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class,
+            HashSet.class, LinkedHashSet.class, TreeSet.class,
+            BigDecimal.class, BigInteger.class, Date.class,
+            LocalDate.class, LocalDateTime.class, Instant.class
+    };
+
+    // 用户注册的类名，为 null 时从全局配置中读取
+    private volatile List<String> registrations;
+
+    // 是否要求所有类都必须注册，为 null 时从全局配置中读取
+    private volatile Boolean registrationRequired;
+
+    private final Pool<Kryo> kryoPool = new Pool<Kryo>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Kryo create() {
+            return createKryo();
+        }
+    };
+
+    private final Pool<Output> outputPool = new Pool<Output>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Output create() {
+            return new Output(STREAM_BUFFER_SIZE, -1);
+        }
+    };
+
+    private final Pool<Input> inputPool = new Pool<Input>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Input create() {
+            return new Input(STREAM_BUFFER_SIZE);
+        }
+    };
+
+    // SPI 加载使用，注册列表从全局配置中读取
+    public KryoSerializer() {
+    }
+
+    /**
+     * 指定注册列表，不读取全局配置
+     *
+     * @param registrations        需要注册的类的全限定名
+     * @param registrationRequired 是否要求所有类都必须注册
+     */
+    public KryoSerializer(List<String> registrations, boolean registrationRequired) {
+        this.registrations = registrations == null ? Collections.emptyList() : registrations;
+        this.registrationRequired = registrationRequired;
+    }
 
     /**
      * 将对象序列化为字节数组
@@ -41,13 +126,16 @@ public class KryoSerializer implements Serializer {
             throw new IllegalArgumentException("Object to serialize cannot be null.");
         }
 
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             Output output = new Output(byteArrayOutputStream)) {
-
-            // 从 ThreadLocal 中获取 Kryo 实例，进行对象写入
-            kryoThreadLocal.get().writeObject(output, object);
-            output.flush(); // 确保数据完全写入输出流
-            return byteArrayOutputStream.toByteArray();
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            // 没有输出流时 Output 在内部缓冲区中写入，缓冲区不够时自动扩容
+            output.setOutputStream(null);
+            kryo.writeObject(output, object);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+            kryoPool.free(kryo);
         }
     }
 
@@ -67,12 +155,103 @@ public class KryoSerializer implements Serializer {
             throw new IllegalArgumentException("Bytes and classType cannot be null.");
         }
 
-        // 使用 try-with-resources 自动关闭流资源
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-             Input input = new Input(byteArrayInputStream)) {
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        // 直接读取传入的字节数组，用完后换回 Input 自己的缓冲区
+        byte[] ownBuffer = input.getBuffer();
+        try {
+            input.setBuffer(bytes);
+            return kryo.readObject(input, classType);
+        } finally {
+            input.setBuffer(ownBuffer);
+            inputPool.free(input);
+            kryoPool.free(kryo);
+        }
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream outputStream) throws IOException {
+        if (object == null) {
+            throw new IllegalArgumentException("Object to serialize cannot be null.");
+        }
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            output.setOutputStream(outputStream);
+            kryo.writeObject(output, object);
+            output.flush(); // 不关闭，输出流由调用方管理
+        } finally {
+            output.setOutputStream(null);
+            freeOutput(output);
+            kryoPool.free(kryo);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> classType) throws IOException {
+        if (inputStream == null || classType == null) {
+            throw new IllegalArgumentException("InputStream and classType cannot be null.");
+        }
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setInputStream(inputStream);
+            return kryo.readObject(input, classType);
+        } finally {
+            input.setInputStream(null);
+            inputPool.free(input);
+            kryoPool.free(kryo);
+        }
+    }
+
+    // 缓冲区扩容过大的 Output 换回默认大小的缓冲区后再归还
+    private void freeOutput(Output output) {
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+            output.setBuffer(new byte[STREAM_BUFFER_SIZE], -1);
+        }
+        outputPool.free(output);
+    }
+
+    private Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        // 默认允许序列化未注册的类（写入全限定类名），可通过配置要求所有类都必须注册
+        kryo.setRegistrationRequired(isRegistrationRequired());
+        // 设置类加载器，避免某些环境下（如应用服务器）类加载冲突
+        kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+        // 优先使用无参构造器，没有无参构造器的类（如部分 DTO、不可变对象）通过 Objenesis 创建
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+
+        for (int i = 0; i < BUILT_IN_REGISTRATIONS.length; i++) {
+            kryo.register(BUILT_IN_REGISTRATIONS[i], BUILT_IN_REGISTRATION_ID_START + i);
+        }
+        List<String> classNames = getRegistrations();
+        for (int i = 0; i < classNames.size(); i++) {
+            kryo.register(loadClass(classNames.get(i).trim()), USER_REGISTRATION_ID_START + i);
+        }
+        return kryo;
+    }
+
+    private List<String> getRegistrations() {
+        if (registrations == null) {
+            List<String> configured = RpcApplication.getRpcConfig().getKryoRegistrations();
+            registrations = configured == null ? Collections.emptyList() : configured;
+        }
+        return registrations;
+    }
+
+    private boolean isRegistrationRequired() {
+        if (registrationRequired == null) {
+            RpcConfig rpcConfig = RpcApplication.getRpcConfig();
+            registrationRequired = rpcConfig.isKryoRegistrationRequired();
+        }
+        return registrationRequired;
+    }
 
-            // 从 ThreadLocal 中获取 Kryo 实例，进行对象读取
-            return kryoThreadLocal.get().readObject(input, classType);
+    private Class<?> loadClass(String className) {
+        try {
+            return Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Kryo 注册类不存在: " + className, e);
         }
     }
 }
@@ -1,10 +1,28 @@
 package com.ff.serializer;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface Serializer {
 
     <T> byte[] serialize(T object) throws IOException;  // 序列化
 
     <T> T deserialize(byte[] bytes,Class<T> classType) throws IOException; // 反序列化
+
+    /**
+     * 流式序列化：直接写入输出流（例如出站 Buffer），避免先生成 byte[] 再拷贝
+     * 默认实现退化为 serialize 后整体写入，具体序列化器可以覆盖
+     */
+    default <T> void serialize(T object, OutputStream outputStream) throws IOException {
+        outputStream.write(serialize(object));
+    }
+
+    /**
+     * 流式反序列化：直接从输入流（例如入站 Buffer 的切片）读取，避免先拷贝出 byte[]
+     * 默认实现退化为读出全部字节后反序列化，具体序列化器可以覆盖
+     */
+    default <T> T deserialize(InputStream inputStream, Class<T> classType) throws IOException {
+        return deserialize(inputStream.readAllBytes(), classType);
+    }
 }
@@ -0,0 +1,123 @@
+package com.ff.serializer;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 允许按类型名解析的类型
+ * 对端发送的参数类型名、返回值类型名只在这里查找，不会对任意类名调用 Class.forName：
+ * 提供者注册的服务方法、消费者创建代理的服务接口中声明的参数类型和返回值类型（包括泛型参数中出现的类型），
+ * 以及常用的 JDK 类型。登记的数量只随服务接口的方法数增长，按类型名建立的缓存因此也是有界的。
+ * 方法声明为 Object 或抽象类型、实际返回其他类型时，需要通过 register(Class) 额外登记实际类型
+ */
+public final class ServiceTypes {
+
+    // 类名 -> 类
+    private static final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    // 登记过的类型（包括泛型类型），用于构建序列化器自己的类型名索引
+    private static final Set<Type> types = ConcurrentHashMap.newKeySet();
+
+    // 每次登记到新类型时递增，序列化器据此判断索引是否需要更新
+    private static final AtomicInteger version = new AtomicInteger();
+
+    static {
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, short.class, char.class, int.class, long.class,
+                float.class, double.class, void.class, Boolean.class, Byte.class, Short.class, Character.class,
+                Integer.class, Long.class, Float.class, Double.class, Void.class, String.class, Object.class,
+                BigDecimal.class, BigInteger.class, List.class, ArrayList.class, Map.class, HashMap.class,
+                LinkedHashMap.class, Set.class, HashSet.class, Collection.class}) {
+            register(type);
+        }
+    }
+
+    private ServiceTypes() {
+    }
+
+    /**
+     * 登记服务接口中所有方法的参数类型和返回值类型
+     */
+    public static void registerService(Class<?> serviceInterface) {
+        for (Method method : serviceInterface.getMethods()) {
+            registerMethod(method);
+        }
+    }
+
+    /**
+     * 登记方法的参数类型和返回值类型
+     */
+    public static void registerMethod(Method method) {
+        for (Type type : method.getGenericParameterTypes()) {
+            register(type);
+        }
+        register(method.getGenericReturnType());
+    }
+
+    /**
+     * 登记一个类型及其中出现的所有类型（泛型参数、数组元素类型、上下界）
+     */
+    public static void register(Type type) {
+        if (type == null || !types.add(type)) {
+            return;
+        }
+        if (type instanceof Class<?> clazz) {
+            classes.put(clazz.getName(), clazz);
+            if (clazz.isArray()) {
+                register(clazz.getComponentType());
+            }
+        } else if (type instanceof ParameterizedType parameterizedType) {
+            register(parameterizedType.getRawType());
+            for (Type argument : parameterizedType.getActualTypeArguments()) {
+                register(argument);
+            }
+        } else if (type instanceof GenericArrayType genericArrayType) {
+            register(genericArrayType.getGenericComponentType());
+        } else if (type instanceof WildcardType wildcardType) {
+            for (Type bound : wildcardType.getUpperBounds()) {
+                register(bound);
+            }
+            for (Type bound : wildcardType.getLowerBounds()) {
+                register(bound);
+            }
+        } else if (type instanceof TypeVariable<?> typeVariable) {
+            for (Type bound : typeVariable.getBounds()) {
+                register(bound);
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * 按类名查找登记过的类，没有登记时返回 null
+     */
+    public static Class<?> findClass(String className) {
+        return classes.get(className);
+    }
+
+    /**
+     * 登记过的所有类型
+     */
+    public static Set<Type> types() {
+        return types;
+    }
+
+    public static int version() {
+        return version.get();
+    }
+}
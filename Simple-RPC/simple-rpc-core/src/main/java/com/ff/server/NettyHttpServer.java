@@ -4,6 +4,7 @@ import com.ff.RpcApplication;
 import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
 import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
 import com.ff.serializer.Serializer;
 import com.ff.serializer.SerializerFactory;
 import io.netty.bootstrap.ServerBootstrap;
@@ -17,7 +18,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
 import java.net.URL;
 
@@ -66,14 +66,18 @@ public class NettyHttpServer implements RpcServer {
                                         // 反序列化为 RpcRequest 对象
                                         RpcRequest rpcRequest = serializer.deserialize(requestData, RpcRequest.class);
 
-                                        // 从本地注册中心获取实现类，并通过反射调用方法
-                                        Class<?> implClass = LocalRegistry.get(rpcRequest.getServiceName());
-                                        Method method = implClass.getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
-                                        Object result = method.invoke(implClass.getDeclaredConstructor().newInstance(), rpcRequest.getParameters());
+                                        // 从本地注册中心获取注册时生成的调用器并调用方法
+                                        MethodInvoker invoker = LocalRegistry.getInvoker(rpcRequest.getServiceName(),
+                                                rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
+                                        if (invoker == null) {
+                                            throw new NoSuchMethodException("服务方法不存在: " + rpcRequest.getServiceName() + "#" + rpcRequest.getMethodName());
+                                        }
+                                        Object result = invoker.invoke(rpcRequest.getParameters());
 
                                         // 构建响应对象
                                         RpcResponse rpcResponse = new RpcResponse();
                                         rpcResponse.setResult(result);
+                                        rpcResponse.setResultType(invoker.getResultType());
 
                                         // 序列化响应数据
                                         byte[] responseData = serializer.serialize(rpcResponse);
@@ -89,7 +93,7 @@ public class NettyHttpServer implements RpcServer {
 
                                         // 返回响应
                                         ctx.writeAndFlush(response);
-                                    } catch (Exception e) {
+                                    } catch (Throwable e) {
                                         e.printStackTrace();
                                         ctx.close(); // 异常时关闭连接
                                     }
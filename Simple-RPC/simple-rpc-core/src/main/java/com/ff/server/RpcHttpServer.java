@@ -4,6 +4,7 @@ import com.ff.RpcApplication;
 import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
 import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
 import com.ff.serializer.Serializer;
 import com.ff.serializer.SerializerFactory;
 import com.sun.net.httpserver.HttpExchange;
@@ -11,7 +12,6 @@ import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.*;
-import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 
 /**
@@ -103,19 +103,22 @@ public class RpcHttpServer implements RpcServer {
                 // 反序列化请求体为 RpcRequest 对象
                 RpcRequest rpcRequest = serializer.deserialize(requestBytes, RpcRequest.class);
 
-                // 根据服务名从注册中心获取实现类
-                Class<?> implClass = LocalRegistry.get(rpcRequest.getServiceName());
-                // 获取指定方法
-                Method method = implClass.getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
-                // 创建实例并执行方法
-                Object result = method.invoke(implClass.getDeclaredConstructor().newInstance(), rpcRequest.getParameters());
+                // 根据服务名、方法签名从注册中心获取调用器
+                MethodInvoker invoker = LocalRegistry.getInvoker(rpcRequest.getServiceName(),
+                        rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
+                if (invoker == null) {
+                    throw new NoSuchMethodException("服务方法不存在: " + rpcRequest.getServiceName() + "#" + rpcRequest.getMethodName());
+                }
+                // 在单例服务实例上执行方法
+                Object result = invoker.invoke(rpcRequest.getParameters());
 
                 // 设置返回结果
                 rpcResponse.setResult(result);
-            } catch (Exception e) {
+                rpcResponse.setResultType(invoker.getResultType());
+            } catch (Throwable e) {
                 e.printStackTrace();
                 // 异常设置进响应中
-                rpcResponse.setException(e);
+                rpcResponse.setException(e instanceof Exception ? (Exception) e : new RuntimeException(e));
             }
 
             // 将响应对象序列化并发送回客户端
@@ -0,0 +1,13 @@
+package com.ff.server;
+
+/**
+ * 服务端业务执行模型（服务方法在哪类线程上执行）
+ */
+public interface ServerExecutionModel {
+    // 直接在 Vert.x 事件循环上执行，适合耗时极短、不会阻塞的服务方法
+    String INLINE = "inline";
+    // 有界的平台线程池
+    String WORKER = "worker";
+    // 每个请求一个 Java 21 虚拟线程
+    String VIRTUAL = "virtual";
+}
@@ -0,0 +1,99 @@
+package com.ff.server;
+
+import com.ff.config.ServerExecutionConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务端请求执行器
+ * 按配置的执行模型决定服务方法在哪里执行，并限制排队深度：
+ * inline 直接在调用线程（事件循环）执行；worker 交给有界平台线程池；virtual 每个请求一个虚拟线程。
+ * 线程池队列已满或并发数达到上限时抛出 RejectedExecutionException，由调用方返回服务端繁忙
+ */
+@Slf4j
+public class ServerRequestExecutor {
+
+    private final String mode;
+
+    // worker / virtual 模式下的执行器，inline 模式为 null
+    private final ExecutorService executorService;
+
+    // virtual 模式下的并发许可
+    private final Semaphore permits;
+
+    public ServerRequestExecutor(ServerExecutionConfig config) {
+        this.mode = config.getMode();
+        switch (mode) {
+            case ServerExecutionModel.INLINE -> {
+                executorService = null;
+                permits = null;
+            }
+            case ServerExecutionModel.VIRTUAL -> {
+                executorService = Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("rpc-virtual-", 0).factory());
+                permits = new Semaphore(Math.max(1, config.getMaxConcurrentRequests()));
+            }
+            case ServerExecutionModel.WORKER -> {
+                int threads = Math.max(1, config.getWorkerThreads());
+                AtomicInteger threadIndex = new AtomicInteger();
+                executorService = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "rpc-worker-" + threadIndex.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        new ThreadPoolExecutor.AbortPolicy());
+                permits = null;
+            }
+            default -> throw new IllegalArgumentException("不支持的服务端执行模型: " + mode);
+        }
+        log.info("服务端执行模型: {}", mode);
+    }
+
+    /**
+     * 执行一个请求
+     *
+     * @throws RejectedExecutionException 线程池队列已满或并发数达到上限
+     */
+    public void execute(Runnable task) {
+        if (executorService == null) {
+            task.run();
+            return;
+        }
+        if (permits == null) {
+            executorService.execute(task);
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("服务端并发请求数已达上限");
+        }
+        try {
+            executorService.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * 关闭执行器
+     */
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+}
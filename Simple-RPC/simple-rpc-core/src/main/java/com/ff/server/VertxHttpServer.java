@@ -6,6 +6,7 @@ import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
 import com.ff.model.ServiceMetaInfo;
 import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
 import com.ff.registry.Registry;
 import com.ff.registry.RegistryFactory;
 import com.ff.serializer.Serializer;
@@ -15,7 +16,6 @@ import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.web.client.WebClient;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -66,9 +66,13 @@ public class VertxHttpServer implements RpcServer {
 //                        result = method.invoke(implClass.getDeclaredConstructor().newInstance(), rpcRequest.getParameters());
 //                    }
 //                    else {
-                        Class<?> implClass = LocalRegistry.get(rpcRequest.getServiceName());
-                        Method method = implClass.getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
-                        result = method.invoke(implClass.getDeclaredConstructor().newInstance(), rpcRequest.getParameters());
+                        MethodInvoker invoker = LocalRegistry.getInvoker(rpcRequest.getServiceName(),
+                                rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
+                        if (invoker == null) {
+                            throw new NoSuchMethodException("服务方法不存在: " + rpcRequest.getServiceName() + "#" + rpcRequest.getMethodName());
+                        }
+                        result = invoker.invoke(rpcRequest.getParameters());
+                        rpcResponse.setResultType(invoker.getResultType());
 //                    }
 
                     // 设置调用结果
@@ -80,7 +84,7 @@ public class VertxHttpServer implements RpcServer {
                             .putHeader("content-type", "application/octet-stream")
                             .end(Buffer.buffer(responseBytes));
 
-                } catch (Exception e) {
+                } catch (Throwable e) {
                     // 处理异常并返回 500 状态码
                     request.response().setStatusCode(500).end("Server Error: " + e.getMessage());
                 }
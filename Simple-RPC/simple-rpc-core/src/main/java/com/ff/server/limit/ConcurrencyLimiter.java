@@ -0,0 +1,46 @@
+package com.ff.server.limit;
+
+import com.ff.config.ConcurrencyLimitConfig;
+import com.ff.metrics.RpcMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端并发限制器，为每个服务方法维护一个自适应并发限制
+ */
+public class ConcurrencyLimiter {
+
+    private final ConcurrencyLimitConfig config;
+
+    // 服务名 -> 方法名 -> 并发限制，两级查找避免每次请求拼接字符串
+    private final Map<String, Map<String, GradientConcurrencyLimit>> limits = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiter(ConcurrencyLimitConfig config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    /**
+     * 获取服务方法的并发限制，第一次调用时创建
+     * 按方法名区分，与调用指标的标签一致：同名的重载方法共用一个并发限制
+     */
+    public GradientConcurrencyLimit get(String serviceName, String methodName) {
+        Map<String, GradientConcurrencyLimit> methods = limits.get(serviceName);
+        if (methods == null) {
+            methods = limits.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        }
+        GradientConcurrencyLimit limit = methods.get(methodName);
+        if (limit == null) {
+            limit = methods.computeIfAbsent(methodName, key -> {
+                GradientConcurrencyLimit created = new GradientConcurrencyLimit(config);
+                RpcMetrics.registerConcurrencyLimit(serviceName, methodName, created);
+                return created;
+            });
+        }
+        return limit;
+    }
+}
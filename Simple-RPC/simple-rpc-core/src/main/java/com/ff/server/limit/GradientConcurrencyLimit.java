@@ -0,0 +1,121 @@
+package com.ff.server.limit;
+
+import com.ff.config.ConcurrencyLimitConfig;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个服务方法的自适应并发限制（梯度算法，思路与 Netflix concurrency-limits 的 Gradient2 相同）
+ * 分别维护短期和长期的延迟指数平均，梯度 = 容忍度 × 长期延迟 / 短期延迟，限制在 [0.5, 1] 之间：
+ * 延迟没有明显升高时梯度为 1，限制按 sqrt(limit) 逐步增大；排队导致延迟升高时梯度小于 1，限制按比例减小。
+ * 获取许可只做一次原子自增；调整限制由结束的请求顺带完成，同一时刻只有一个线程调整，其他线程的样本直接丢弃
+ */
+public class GradientConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double rttTolerance;
+
+    private final double smoothing;
+
+    private final double shortAlpha;
+
+    private final double longAlpha;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // 因超过并发限制被拒绝的请求数
+    private final LongAdder rejected = new LongAdder();
+
+    // 当前的并发限制，获取许可时读取
+    private volatile int limit;
+
+    // 以下字段只在持有 updating 时读写
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private double estimatedLimit;
+
+    private double shortRttNanos;
+
+    private double longRttNanos;
+
+    public GradientConcurrencyLimit(ConcurrencyLimitConfig config) {
+        this.minLimit = Math.max(1, config.getMinLimit());
+        this.maxLimit = Math.max(minLimit, config.getMaxLimit());
+        this.rttTolerance = Math.max(1.0, config.getRttTolerance());
+        this.smoothing = Math.min(1.0, Math.max(0.01, config.getSmoothing()));
+        this.shortAlpha = 2.0 / (Math.max(1, config.getShortWindow()) + 1);
+        this.longAlpha = 2.0 / (Math.max(1, config.getLongWindow()) + 1);
+        this.estimatedLimit = Math.min(maxLimit, Math.max(minLimit, config.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 获取一个执行许可，达到并发限制时返回 false
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > limit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 归还许可，并用本次请求的延迟调整并发限制
+     *
+     * @param rttNanos 请求从到达到响应的耗时（纳秒），包含排队时间
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (rttNanos <= 0 || !updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            update(rttNanos, inFlightBefore);
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    private void update(long rttNanos, int inFlightBefore) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * shortAlpha;
+        longRttNanos += (rttNanos - longRttNanos) * longAlpha;
+        // 负载下降后长期基线明显高于当前延迟，让基线较快地跟上，否则限制会长时间偏大
+        if (longRttNanos > shortRttNanos * 2) {
+            longRttNanos *= 0.95;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        // 并发数远小于限制时无法判断限制是否够用，不增大限制；但延迟升高仍然说明过载，照常减小
+        boolean underused = inFlightBefore < estimatedLimit / 2;
+        if (underused && gradient >= 1.0) {
+            return;
+        }
+        double newLimit = estimatedLimit * gradient + (underused ? 0 : Math.sqrt(estimatedLimit));
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,109 @@
+package com.ff.server.tcp;
+
+import com.ff.utils.TimerUtils;
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetSocket;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并写（flush consolidation）
+ * 业务线程编码好的帧先进入队列，由连接所在的事件循环在一个 tick 内把队列中的帧拼成一次 socket.write，
+ * 高并发下大量小请求共用一次写出（一次系统调用）；
+ * 单批最大字节数、最大帧数和最多额外等待时间都可以配置
+ */
+public class CoalescingWriter {
+
+    private final NetSocket socket;
+
+    // 连接所属的事件循环
+    private final Context context;
+
+    private final int maxBatchBytes;
+
+    private final int maxBatchFrames;
+
+    // 最多额外等待时间（毫秒），0 表示在下一个事件循环 tick 立即写出
+    private final long maxFlushDelayMillis;
+
+    // 待写出的帧
+    private final Queue<Buffer> queue = new ConcurrentLinkedQueue<>();
+
+    // 队列中待写出的字节数
+    private final AtomicInteger pendingBytes = new AtomicInteger();
+
+    // 是否已经安排了写出任务
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // 等待定时器期间是否已经安排了提前写出，攒够一批后只安排一次
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+
+    // 实际调用 socket.write 的次数
+    private final AtomicLong socketWrites = new AtomicLong();
+
+    public CoalescingWriter(NetSocket socket, Context context, int maxBatchBytes, int maxBatchFrames, long maxFlushDelayMillis) {
+        this.socket = socket;
+        this.context = context;
+        this.maxBatchBytes = Math.max(1, maxBatchBytes);
+        this.maxBatchFrames = Math.max(1, maxBatchFrames);
+        this.maxFlushDelayMillis = Math.max(0, maxFlushDelayMillis);
+    }
+
+    /**
+     * 写入一帧，可以在任意线程调用
+     */
+    public void write(Buffer frame) {
+        queue.offer(frame);
+        int bytes = pendingBytes.addAndGet(frame.length());
+        if (flushScheduled.compareAndSet(false, true)) {
+            if (maxFlushDelayMillis == 0) {
+                context.runOnContext(v -> flush());
+            } else {
+                TimerUtils.newTimeout(() -> context.runOnContext(v -> flush()), maxFlushDelayMillis);
+            }
+        } else if (maxFlushDelayMillis > 0 && bytes >= maxBatchBytes && earlyFlushScheduled.compareAndSet(false, true)) {
+            // 等待期间攒够了一批，不再等待定时器
+            context.runOnContext(v -> flush());
+        }
+    }
+
+    /**
+     * 在事件循环中把队列中的帧分批写出
+     */
+    private void flush() {
+        // 先清除标记，之后入队的帧会重新安排写出
+        flushScheduled.set(false);
+        earlyFlushScheduled.set(false);
+        Buffer frame;
+        while ((frame = queue.poll()) != null) {
+            Buffer batch = frame;
+            int batchBytes = frame.length();
+            int batchFrames = 1;
+            if (batchBytes < maxBatchBytes) {
+                Buffer next;
+                while (batchFrames < maxBatchFrames && batchBytes < maxBatchBytes
+                        && (next = queue.poll()) != null) {
+                    if (batchFrames == 1) {
+                        batch = Buffer.buffer(Math.min(maxBatchBytes, batchBytes * 4 + next.length()))
+                                .appendBuffer(frame);
+                    }
+                    batch.appendBuffer(next);
+                    batchBytes += next.length();
+                    batchFrames++;
+                }
+            }
+            pendingBytes.addAndGet(-batchBytes);
+            socketWrites.incrementAndGet();
+            socket.write(batch);
+        }
+    }
+
+    public long getSocketWriteCount() {
+        return socketWrites.get();
+    }
+}
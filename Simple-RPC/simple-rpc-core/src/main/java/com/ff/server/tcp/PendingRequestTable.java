@@ -0,0 +1,104 @@
+package com.ff.server.tcp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 连接内的在途请求表（无锁）
+ * requestId 由连接内的计数器递增生成，槽位下标 = requestId & mask；
+ * 注册与移除都只是对槽位做一次 CAS，没有全局共享的 Map，也不需要对 long 装箱
+ */
+public class PendingRequestTable {
+
+    private final AtomicReferenceArray<RpcResponseFuture> slots;
+
+    private final int mask;
+
+    // 连接内的 requestId 计数器
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    // 在途请求数
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param capacity 最大在途请求数，会向上取整为 2 的幂
+     */
+    public PendingRequestTable(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(tableSize);
+        this.mask = tableSize - 1;
+    }
+
+    /**
+     * 注册在途请求，并为其分配 requestId
+     *
+     * @return 分配到的 requestId，表已满时返回 -1
+     */
+    public long register(RpcResponseFuture future) {
+        for (int i = 0; i <= mask; i++) {
+            long requestId = idGenerator.getAndIncrement();
+            int index = (int) (requestId & mask);
+            // 槽位被仍未返回的旧请求占用时，跳过该 id
+            if (slots.get(index) != null) {
+                continue;
+            }
+            future.requestId = requestId;
+            if (slots.compareAndSet(index, null, future)) {
+                size.incrementAndGet();
+                return requestId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 根据响应中的 requestId 取出在途请求
+     *
+     * @return 对应的 future，已超时或未知的 requestId 返回 null
+     */
+    public RpcResponseFuture remove(long requestId) {
+        int index = (int) (requestId & mask);
+        RpcResponseFuture future = slots.get(index);
+        if (future == null || future.requestId != requestId) {
+            return null;
+        }
+        if (slots.compareAndSet(index, future, null)) {
+            size.decrementAndGet();
+            return future;
+        }
+        return null;
+    }
+
+    /**
+     * 移除指定的在途请求（超时、取消时调用）
+     */
+    public boolean remove(RpcResponseFuture future) {
+        long requestId = future.requestId;
+        if (requestId < 0) {
+            return false;
+        }
+        if (slots.compareAndSet((int) (requestId & mask), future, null)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 让所有在途请求失败（连接关闭时调用）
+     */
+    public void failAll(Throwable cause) {
+        for (int i = 0; i <= mask; i++) {
+            RpcResponseFuture future = slots.getAndSet(i, null);
+            if (future != null) {
+                size.decrementAndGet();
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,107 @@
+package com.ff.server.tcp;
+
+import com.ff.loadbalancer.ProviderStats;
+import com.ff.metrics.MethodMetrics;
+import com.ff.model.RpcResponse;
+import io.netty.util.Timeout;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 在途请求的响应 future
+ * 自身携带连接内分配的 requestId、所属连接以及超时定时器，直接作为 PendingRequestTable 的槽位元素，
+ * 响应分发路径上不需要额外的包装对象，也不需要对 requestId 装箱
+ */
+public class RpcResponseFuture extends CompletableFuture<RpcResponse> {
+
+    // 连接内的请求 id，注册到 PendingRequestTable 时分配（通过槽位的 CAS 发布）
+    long requestId = -1;
+
+    // 发送该请求的连接
+    private volatile TcpConnection connection;
+
+    // 超时定时器
+    private volatile Timeout timeout;
+
+    // 调用指标，未开启指标时为 null
+    MethodMetrics metrics;
+
+    // 发起请求的时间（System.nanoTime），到开始编码为止计入 queue 阶段
+    long startNanos;
+
+    // 请求编码完成的时间（System.nanoTime），用于计算网络耗时
+    long sentNanos;
+
+    // 请求编码的耗时（纳秒），收到响应后与解码耗时一起计入 serialize 阶段
+    long encodeNanos;
+
+    // 请求发往的服务节点的统计（在途请求数、平均响应时间），未使用依赖统计的负载均衡器时为 null
+    ProviderStats providerStats;
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    void setConnection(TcpConnection connection) {
+        this.connection = connection;
+    }
+
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean complete(RpcResponse value) {
+        boolean completed = super.complete(value);
+        cancelTimeout();
+        if (completed) {
+            recordProviderStats(true);
+        }
+        return completed;
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        boolean completed = super.completeExceptionally(ex);
+        cancelTimeout();
+        // 超时、取消等异常结束时，释放连接上的槽位
+        releasePending();
+        if (completed) {
+            recordProviderStats(false);
+        }
+        return completed;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        cancelTimeout();
+        releasePending();
+        // 被主动取消（例如对冲请求中较慢的一个）不是节点的错误，已经等待的时间作为响应时间的下限计入
+        if (cancelled) {
+            recordProviderStats(true);
+        }
+        return cancelled;
+    }
+
+    private void recordProviderStats(boolean success) {
+        ProviderStats stats = providerStats;
+        if (stats != null) {
+            stats.end(System.nanoTime() - startNanos, success);
+        }
+    }
+
+    private void cancelTimeout() {
+        Timeout current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void releasePending() {
+        TcpConnection current = connection;
+        if (current != null) {
+            current.removePending(this);
+        }
+    }
+}
@@ -3,56 +3,54 @@ package com.ff.server.tcp;
 import com.ff.protocol.ProtocolConstant;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.parsetools.RecordParser;
 
 /**
- * 装饰者模式（使用 recordParser 对原有的 buffer 处理能力进行增强）
+ * 装饰者模式（对原有的 buffer 处理能力进行增强，解决粘包拆包问题）
+ * 按消息头中的 bodyLength 切分完整的帧，完整的帧以切片（slice）的形式交给下游，不拷贝；
+ * 跨越多次读取的半包在同一个 Buffer 上追加后续数据，只有帧边界之后的剩余部分会被拷贝一次
  */
 public class TcpBufferHandlerWrapper implements Handler<Buffer> {
 
-    private final RecordParser recordParser;
+    private final Handler<Buffer> bufferHandler;
+
+    // 上一次读取剩下的半包，没有时为 null
+    private Buffer pending;
 
     // 对构造器传入的 bufferHandler 进行强化
     public TcpBufferHandlerWrapper(Handler<Buffer> bufferHandler) {
-        recordParser = initRecordParser(bufferHandler);
+        this.bufferHandler = bufferHandler;
     }
 
     @Override
     public void handle(Buffer buffer) {
-        recordParser.handle(buffer);
-    }
-
-    private RecordParser initRecordParser(Handler<Buffer> bufferHandler) {
-        // 构造 parser
-        RecordParser parser = RecordParser.newFixed(ProtocolConstant.MESSAGE_HEADER_LENGTH);
-
-        parser.setOutput(new Handler<Buffer>() {
-            // 初始化
-            int size = -1;
-            // 一次完整的读取（头 + 体）
-            Buffer resultBuffer = Buffer.buffer();
-
-            @Override
-            public void handle(Buffer buffer) {
-                if (-1 == size) {
-                    // 读取消息体长度
-                    size = buffer.getInt(13);
-                    parser.fixedSizeMode(size);
-                    // 写入头信息到结果
-                    resultBuffer.appendBuffer(buffer);
-                } else {
-                    // 写入体信息到结果
-                    resultBuffer.appendBuffer(buffer);
-                    // 已拼接为完整 Buffer，执行处理
-                    bufferHandler.handle(resultBuffer);
-                    // 重置一轮
-                    parser.fixedSizeMode(ProtocolConstant.MESSAGE_HEADER_LENGTH);
-                    size = -1;
-                    resultBuffer = Buffer.buffer();
-                }
+        // Vert.x 交给 handler 的 Buffer 是独立的堆内存拷贝，切片可以安全地交给其他线程
+        Buffer current = buffer;
+        if (pending != null) {
+            current = pending.appendBuffer(buffer);
+            pending = null;
+        }
+        int position = 0;
+        int length = current.length();
+        while (length - position >= ProtocolConstant.MESSAGE_HEADER_LENGTH) {
+            // 读取消息体长度
+            int bodyLength = current.getInt(position + 13);
+            if (bodyLength < 0) {
+                throw new IllegalStateException("消息体长度错误: " + bodyLength);
             }
-        });
-
-        return parser;
+            int frameLength = ProtocolConstant.MESSAGE_HEADER_LENGTH + bodyLength;
+            if (length - position < frameLength) {
+                break;
+            }
+            // 已是完整的一帧（头 + 体），执行处理
+            bufferHandler.handle(current.slice(position, position + frameLength));
+            position += frameLength;
+        }
+        // 保存半包，等待后续数据：没有切出过帧时没有切片引用 current，直接在它后面继续追加（扩容按倍数增长，
+        // 分多次到达的大帧总拷贝量与帧大小成正比）；切出过帧时只拷贝帧边界之后的剩余部分
+        if (position == 0) {
+            pending = current;
+        } else if (position < length) {
+            pending = current.getBuffer(position, length);
+        }
     }
 }
@@ -0,0 +1,287 @@
+package com.ff.server.tcp;
+
+import com.ff.config.ConnectionPoolConfig;
+import com.ff.constant.RpcConstant;
+import com.ff.exception.RpcException;
+import com.ff.metrics.MethodMetrics;
+import com.ff.metrics.RpcMetrics;
+import com.ff.metrics.RpcPhase;
+import com.ff.model.MethodDictionary;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.protocol.*;
+import com.ff.utils.TimerUtils;
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetSocket;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 客户端长连接（多路复用）
+ * 一条 TCP 连接上可以同时存在多个在途请求，通过 requestId 将响应与请求对应起来；
+ * 粘包拆包处理器 TcpBufferHandlerWrapper 只在连接建立时安装一次
+ */
+@Slf4j
+public class TcpConnection {
+
+    // 连接所属的服务节点（host:port）
+    private final String endpoint;
+
+    private final NetSocket socket;
+
+    // 当前连接上的在途请求，requestId 由连接内计数器生成
+    private final PendingRequestTable pendingRequests;
+
+    // 合并写，未开启时为 null，直接写 socket
+    private final CoalescingWriter writer;
+
+    // 与服务端协商的方法 id 字典，协商完成前或服务端不支持时为 null
+    private volatile MethodDictionary methodDictionary;
+
+    // 与服务端协商的协议版本号，握手完成前使用 v1
+    private volatile byte protocolVersion = ProtocolConstant.PROTOCOL_VERSION_1;
+
+    private final ConnectionPoolConfig config;
+
+    // 连接是否可用
+    private volatile boolean active = true;
+
+    // 最近一次读写时间，用于空闲回收
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    /**
+     * 在已建立的连接上创建 TcpConnection：安装响应处理器并发起握手
+     *
+     * @param endpoint 服务节点（host:port）
+     * @param socket   已建立的连接
+     * @param context  连接所属的事件循环
+     * @param config   连接池配置
+     */
+    public static TcpConnection open(String endpoint, NetSocket socket, Context context, ConnectionPoolConfig config) {
+        TcpConnection connection = new TcpConnection(endpoint, socket, context, config);
+        connection.start();
+        return connection;
+    }
+
+    private TcpConnection(String endpoint, NetSocket socket, Context context, ConnectionPoolConfig config) {
+        this.endpoint = endpoint;
+        this.socket = socket;
+        this.config = config;
+        this.pendingRequests = new PendingRequestTable(config.getMaxPendingRequestsPerConnection());
+        this.writer = Boolean.TRUE.equals(config.getWriteCoalescing())
+                ? new CoalescingWriter(socket, context, config.getMaxWriteBatchBytes(),
+                config.getMaxWriteBatchFrames(), config.getMaxFlushDelay())
+                : null;
+    }
+
+    // 构造完成后再安装处理器，避免未初始化完的对象被事件循环回调
+    private void start() {
+        // 处理响应，解决响应时的粘包拆包问题（每个连接只安装一次）
+        socket.handler(new TcpBufferHandlerWrapper(this::handleResponse));
+        socket.closeHandler(v -> close(new IOException("连接已关闭: " + endpoint)));
+        socket.exceptionHandler(e -> {
+            log.error("连接异常 endpoint={}", endpoint, e);
+            close(e);
+        });
+        handshake(config.getHandshakeTimeout());
+    }
+
+    /**
+     * 连接握手：协商协议版本号和方法 id 字典
+     * 以请求保留服务名的普通请求（v1 帧）发送，旧版本服务端会按服务不存在返回，此时继续使用 v1 帧和完整的请求格式；
+     * 握手完成前发送的请求同样使用 v1 帧和完整格式
+     */
+    private void handshake(long timeoutMillis) {
+        RpcRequest handshakeRequest = new RpcRequest();
+        handshakeRequest.setServiceName(RpcConstant.HANDSHAKE_SERVICE_NAME);
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION_1);
+        // 字典中包含 Class 信息，固定使用 JDK 序列化，与业务配置的序列化器无关
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JDK.getKey());
+        header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+
+        RpcResponseFuture handshakeFuture = new RpcResponseFuture();
+        handshakeFuture.setTimeout(TimerUtils.newTimeout(() -> handshakeFuture.completeExceptionally(
+                new TimeoutException("方法 id 字典握手超时: " + endpoint)), timeoutMillis));
+        handshakeFuture.whenComplete((response, throwable) -> {
+            if (throwable == null && response != null && response.getResult() instanceof MethodDictionary dictionary) {
+                protocolVersion = (byte) Math.max(ProtocolConstant.PROTOCOL_VERSION_1,
+                        Math.min(dictionary.getProtocolVersion(), ProtocolConstant.PROTOCOL_VERSION));
+                if (Boolean.TRUE.equals(config.getMethodDictionary())) {
+                    methodDictionary = dictionary;
+                }
+                log.info("与 {} 握手成功，协议版本 v{}，共 {} 个方法", endpoint, protocolVersion, dictionary.getEntries().size());
+            } else {
+                log.info("服务端 {} 不支持握手，使用 v1 帧和完整请求格式", endpoint);
+            }
+        });
+        send(new ProtocolMessage<>(header, handshakeRequest), handshakeFuture);
+    }
+
+    /**
+     * 发送请求，由连接分配 requestId，请求的结果通过 responseFuture 返回
+     *
+     * @param protocolMessage 请求消息
+     * @param responseFuture  响应 future
+     */
+    public void send(ProtocolMessage<RpcRequest> protocolMessage, RpcResponseFuture responseFuture) {
+        if (!active) {
+            responseFuture.completeExceptionally(new IOException("连接不可用: " + endpoint));
+            return;
+        }
+        ProtocolMessage.Header header = protocolMessage.getHeader();
+        // 按协商的版本发送，v1 帧不携带扩展区
+        byte version = protocolVersion;
+        header.setVersion(version);
+        boolean oneway = false;
+        if (version == ProtocolConstant.PROTOCOL_VERSION_2) {
+            oneway = header.hasFlag(ProtocolConstant.FLAG_ONEWAY);
+            if (Boolean.TRUE.equals(config.getCompression())) {
+                header.addFlag(ProtocolConstant.FLAG_COMPRESSED);
+            }
+        }
+        // 先绑定连接，保证超时等异常结束时能释放槽位
+        responseFuture.setConnection(this);
+        // 单向请求没有响应，不占用在途请求槽位
+        long requestId = oneway ? 0 : pendingRequests.register(responseFuture);
+        if (requestId < 0) {
+            responseFuture.completeExceptionally(new RuntimeException("连接在途请求过多: " + endpoint));
+            return;
+        }
+        // 注册期间已经超时
+        if (responseFuture.isDone()) {
+            pendingRequests.remove(responseFuture);
+            return;
+        }
+        header.setRequestId(requestId);
+        protocolMessage = compact(protocolMessage);
+        lastActiveTime = System.currentTimeMillis();
+        // 编码并发送请求
+        try {
+            MethodMetrics metrics = responseFuture.metrics;
+            long encodeStart = metrics != null ? System.nanoTime() : 0;
+            Buffer encodeBuffer = ProtocolMessageEncoder.encode(protocolMessage);
+            if (metrics != null) {
+                // 获取连接、分配 requestId 的耗时
+                metrics.recordPhase(RpcPhase.QUEUE, encodeStart - responseFuture.startNanos);
+                responseFuture.sentNanos = System.nanoTime();
+                responseFuture.encodeNanos = responseFuture.sentNanos - encodeStart;
+            }
+            if (writer != null) {
+                writer.write(encodeBuffer);
+            } else {
+                socket.write(encodeBuffer);
+            }
+            if (oneway) {
+                responseFuture.complete(null);
+            }
+        } catch (Exception e) {
+            responseFuture.completeExceptionally(new RuntimeException("协议消息编码错误", e));
+        }
+    }
+
+    /**
+     * 协商过方法 id 字典时，把请求替换为只携带方法 id 和参数的精简请求；
+     * 原请求对象不做修改（重试时可能被发往其他连接）
+     */
+    private ProtocolMessage<RpcRequest> compact(ProtocolMessage<RpcRequest> protocolMessage) {
+        MethodDictionary dictionary = methodDictionary;
+        RpcRequest request = protocolMessage.getBody();
+        if (dictionary == null || request.getMethodId() != null) {
+            return protocolMessage;
+        }
+        int methodId = dictionary.getMethodId(request.getServiceName(), request.getMethodName(), request.getParameterTypes());
+        if (methodId < 0) {
+            return protocolMessage;
+        }
+        RpcRequest compactRequest = new RpcRequest();
+        compactRequest.setServiceVersion(null);
+        compactRequest.setMethodId(methodId);
+        compactRequest.setParameters(request.getParameters());
+        return new ProtocolMessage<>(protocolMessage.getHeader(), compactRequest);
+    }
+
+    /**
+     * 移除在途请求（超时、取消时调用）
+     */
+    public void removePending(RpcResponseFuture responseFuture) {
+        pendingRequests.remove(responseFuture);
+    }
+
+    private void handleResponse(Buffer buffer) {
+        lastActiveTime = System.currentTimeMillis();
+        try {
+            long decodeStart = RpcMetrics.isEnabled() ? System.nanoTime() : 0;
+            ProtocolMessage<RpcResponse> rpcResponseProtocolMessage =
+                    (ProtocolMessage<RpcResponse>) ProtocolMessageDecoder.decode(buffer);
+            long respId = rpcResponseProtocolMessage.getHeader().getRequestId();
+            RpcResponseFuture future = pendingRequests.remove(respId);
+            if (future == null) {
+                log.warn("收到未知或超时的响应 requestId={}", respId);
+                return;
+            }
+            MethodMetrics metrics = future.metrics;
+            if (metrics != null) {
+                metrics.recordPhase(RpcPhase.NETWORK, decodeStart - future.sentNanos);
+                metrics.recordPhase(RpcPhase.SERIALIZE, future.encodeNanos + System.nanoTime() - decodeStart);
+            }
+            ProtocolMessageStatusEnum status =
+                    ProtocolMessageStatusEnum.getEnumByStatus(rpcResponseProtocolMessage.getHeader().getStatus());
+            if (status == null || status == ProtocolMessageStatusEnum.OK) {
+                future.complete(rpcResponseProtocolMessage.getBody());
+            } else {
+                // 服务端拒绝或处理失败
+                RpcResponse body = rpcResponseProtocolMessage.getBody();
+                future.completeExceptionally(new RpcException(status, body != null ? body.getMessage() : status.getText()));
+            }
+        } catch (Exception e) {
+            log.error("协议消息解码错误", e);
+        }
+    }
+
+    /**
+     * 关闭连接，并让所有在途请求失败
+     */
+    public void close(Throwable cause) {
+        if (!active) {
+            return;
+        }
+        active = false;
+        socket.close();
+        pendingRequests.failAll(cause);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * 实际写 socket 的次数（未开启合并写时返回 -1）
+     */
+    public long getSocketWriteCount() {
+        return writer != null ? writer.getSocketWriteCount() : -1;
+    }
+
+    /**
+     * 握手协商的协议版本号，握手完成前为 v1
+     */
+    public byte getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public long getLastActiveTime() {
+        return lastActiveTime;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
@@ -0,0 +1,209 @@
+package com.ff.server.tcp;
+
+import com.ff.config.ConnectionPoolConfig;
+import com.ff.model.ServiceMetaInfo;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetClientOptions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 客户端 TCP 连接池
+ * 按服务节点（host:port）维护固定数量的长连接槽位，请求在槽位之间轮询复用；
+ * 连接断开后槽位被清空，下一次获取时自动重连；空闲连接定期回收，
+ * 所有槽位都已清空的服务节点（例如已从注册中心下线）随之移除
+ */
+@Slf4j
+public class TcpConnectionPool {
+
+    private final Vertx vertx;
+
+    private final NetClient netClient;
+
+    private final ConnectionPoolConfig config;
+
+    // 已移除的服务节点的槽位占位，获取到它时重新创建该节点的连接槽位
+    private static final CompletableFuture<TcpConnection> RETIRED = new CompletableFuture<>();
+
+    // 服务节点 -> 该节点的连接槽位
+    private final Map<String, EndpointPool> endpointPools = new ConcurrentHashMap<>();
+
+    public TcpConnectionPool(Vertx vertx, ConnectionPoolConfig config) {
+        this.vertx = vertx;
+        this.config = config;
+        this.netClient = vertx.createNetClient(new NetClientOptions()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setTcpNoDelay(true)
+                .setTcpKeepAlive(true));
+        // 定期回收空闲连接
+        long checkInterval = Math.max(1000L, config.getIdleTimeout() / 2);
+        vertx.setPeriodic(checkInterval, id -> evictIdleConnections());
+    }
+
+    /**
+     * 获取指定服务节点的一条可用连接
+     */
+    public CompletableFuture<TcpConnection> acquire(ServiceMetaInfo serviceMetaInfo) {
+        String endpoint = serviceMetaInfo.getServiceHost() + ":" + serviceMetaInfo.getServicePort();
+        while (true) {
+            EndpointPool endpointPool = endpointPools.computeIfAbsent(endpoint,
+                    key -> new EndpointPool(serviceMetaInfo.getServiceHost(), serviceMetaInfo.getServicePort()));
+            CompletableFuture<TcpConnection> connection = endpointPool.acquire();
+            if (connection != null) {
+                return connection;
+            }
+            // 槽位正在被空闲回收移除，等它从 endpointPools 中删除后重新创建
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    public void close() {
+        for (EndpointPool endpointPool : endpointPools.values()) {
+            endpointPool.closeAll();
+        }
+        endpointPools.clear();
+        netClient.close();
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, EndpointPool> entry : endpointPools.entrySet()) {
+            EndpointPool endpointPool = entry.getValue();
+            endpointPool.evictIdle(now);
+            if (endpointPool.retire()) {
+                endpointPools.remove(entry.getKey(), endpointPool);
+            }
+        }
+    }
+
+    /**
+     * 连接池中的服务节点数
+     */
+    public int getEndpointCount() {
+        return endpointPools.size();
+    }
+
+    /**
+     * 单个服务节点的连接槽位
+     */
+    private class EndpointPool {
+
+        private final String host;
+
+        private final int port;
+
+        // 每个槽位保存一个（可能仍在建立中的）连接
+        private final AtomicReferenceArray<CompletableFuture<TcpConnection>> slots;
+
+        // 轮询下标
+        private final AtomicInteger nextSlot = new AtomicInteger(0);
+
+        EndpointPool(String host, int port) {
+            this.host = host;
+            this.port = port;
+            this.slots = new AtomicReferenceArray<>(Math.max(1, config.getMaxConnectionsPerEndpoint()));
+        }
+
+        // 获取一个槽位上的连接，槽位已被移除时返回 null
+        CompletableFuture<TcpConnection> acquire() {
+            int index = Math.floorMod(nextSlot.getAndIncrement(), slots.length());
+            while (true) {
+                CompletableFuture<TcpConnection> current = slots.get(index);
+                if (current == RETIRED) {
+                    return null;
+                }
+                if (current != null && !isBroken(current)) {
+                    return current;
+                }
+                // 槽位为空或连接已断开，由竞争成功的线程负责重连，其余线程复用同一个 future
+                CompletableFuture<TcpConnection> connecting = new CompletableFuture<>();
+                if (slots.compareAndSet(index, current, connecting)) {
+                    connect(connecting, index, 0);
+                    return connecting;
+                }
+            }
+        }
+
+        private boolean isBroken(CompletableFuture<TcpConnection> future) {
+            if (!future.isDone()) {
+                return false;
+            }
+            if (future.isCompletedExceptionally()) {
+                return true;
+            }
+            return !future.join().isActive();
+        }
+
+        private void connect(CompletableFuture<TcpConnection> connecting, int index, int attempt) {
+            netClient.connect(port, host, result -> {
+                if (result.succeeded()) {
+                    // 连接回调运行在该连接所属的事件循环上
+                    TcpConnection connection = TcpConnection.open(host + ":" + port, result.result(),
+                            vertx.getOrCreateContext(), config);
+                    connecting.complete(connection);
+                    return;
+                }
+                if (attempt < config.getReconnectAttempts()) {
+                    log.warn("连接 {}:{} 失败，第 {} 次重连", host, port, attempt + 1);
+                    vertx.setTimer(config.getReconnectInterval() * (attempt + 1),
+                            id -> connect(connecting, index, attempt + 1));
+                    return;
+                }
+                // 重连失败，清空槽位，下一次获取时重新尝试
+                slots.compareAndSet(index, connecting, null);
+                connecting.completeExceptionally(new IOException("Failed to connect to TCP server " + host + ":" + port, result.cause()));
+            });
+        }
+
+        void evictIdle(long now) {
+            for (int i = 0; i < slots.length(); i++) {
+                CompletableFuture<TcpConnection> current = slots.get(i);
+                if (current == null || !current.isDone() || current.isCompletedExceptionally()) {
+                    continue;
+                }
+                TcpConnection connection = current.join();
+                boolean idle = connection.getPendingCount() == 0
+                        && now - connection.getLastActiveTime() > config.getIdleTimeout();
+                if ((!connection.isActive() || idle) && slots.compareAndSet(i, current, null)) {
+                    log.info("回收空闲连接 {}", connection.getEndpoint());
+                    connection.close(new IOException("连接空闲回收: " + connection.getEndpoint()));
+                }
+            }
+        }
+
+        /**
+         * 所有槽位都为空时全部置为 RETIRED，之后不会再建立新连接，可以从 endpointPools 中移除；
+         * 有槽位仍在使用时恢复已置换的槽位并返回 false
+         */
+        boolean retire() {
+            for (int i = 0; i < slots.length(); i++) {
+                if (!slots.compareAndSet(i, null, RETIRED)) {
+                    for (int j = 0; j < i; j++) {
+                        slots.set(j, null);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void closeAll() {
+            for (int i = 0; i < slots.length(); i++) {
+                CompletableFuture<TcpConnection> current = slots.getAndSet(i, null);
+                if (current != null) {
+                    current.thenAccept(connection -> connection.close(new IOException("连接池已关闭")));
+                }
+            }
+        }
+    }
+}
@@ -1,61 +1,253 @@
 package com.ff.server.tcp;
 
+import com.ff.RpcContext;
+import com.ff.constant.RpcConstant;
+import com.ff.metrics.MethodMetrics;
+import com.ff.metrics.RpcMetrics;
+import com.ff.metrics.RpcPhase;
 import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
+import com.ff.protocol.ProtocolConstant;
 import com.ff.protocol.ProtocolMessage;
 import com.ff.protocol.ProtocolMessageDecoder;
 import com.ff.protocol.ProtocolMessageEncoder;
+import com.ff.protocol.ProtocolMessageStatusEnum;
 import com.ff.protocol.ProtocolMessageTypeEnum;
 import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
+import com.ff.server.ServerRequestExecutor;
+import com.ff.server.limit.ConcurrencyLimiter;
+import com.ff.server.limit.GradientConcurrencyLimit;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class TcpServerHandler implements Handler<NetSocket> {
+
+    // 服务方法的执行器（事件循环、平台线程池或虚拟线程）
+    private final ServerRequestExecutor requestExecutor;
+
+    // 按服务方法的并发限制，未开启时为 null
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public TcpServerHandler(ServerRequestExecutor requestExecutor, ConcurrencyLimiter concurrencyLimiter) {
+        this.requestExecutor = requestExecutor;
+        this.concurrencyLimiter = concurrencyLimiter != null && concurrencyLimiter.isEnabled() ? concurrencyLimiter : null;
+    }
+
     @Override
     public void handle(NetSocket netSocket) {
-        // 处理连接
-        netSocket.handler(buffer -> {
-            // 接受请求，并且解码
-            ProtocolMessage<RpcRequest> protocolMessage;
+        // 处理连接，同一连接上可能连续到达多个请求，需要先解决粘包拆包问题
+        netSocket.handler(new TcpBufferHandlerWrapper(buffer -> {
+            ProtocolMessage.Header requestHeader = ProtocolMessageDecoder.decodeHeader(buffer);
+            // 心跳直接在事件循环上应答
+            if (requestHeader.getType() == ProtocolMessageTypeEnum.HEART_BEAT.getType()) {
+                writeHeartbeat(netSocket, requestHeader);
+                return;
+            }
+            long receivedNanos = System.nanoTime();
+            // 解码、调用、编码都交给执行器，事件循环只负责拆包
             try {
-                protocolMessage = (ProtocolMessage<RpcRequest>) ProtocolMessageDecoder.decode(buffer);
-            } catch (IOException e) {
-                throw new RuntimeException("协议解析失败");
+                requestExecutor.execute(() -> handleRequest(netSocket, buffer, requestHeader, receivedNanos));
+            } catch (RejectedExecutionException e) {
+                // 执行器已满，不反序列化请求体，直接按请求头返回服务端繁忙
+                RpcMetrics.recordServerRejected();
+                requestHeader.setStatus((byte) ProtocolMessageStatusEnum.SERVER_BUSY.getStatus());
+                RpcResponse response = new RpcResponse();
+                response.setMessage("服务端繁忙，请求被拒绝");
+                writeResponse(netSocket, requestHeader, response);
             }
-            RpcRequest request = protocolMessage.getBody();
-            // 构造响应请求
+        }));
+    }
+
+    private void handleRequest(NetSocket netSocket, Buffer buffer, ProtocolMessage.Header requestHeader,
+                               long receivedNanos) {
+        // 接受请求，并且解码（开启指标时记录各阶段的时间点）
+        long startNanos = RpcMetrics.isEnabled() ? System.nanoTime() : 0;
+        ProtocolMessage<RpcRequest> protocolMessage;
+        try {
+            protocolMessage = (ProtocolMessage<RpcRequest>) ProtocolMessageDecoder.decode(buffer);
+        } catch (IOException | RuntimeException e) {
+            // 请求体无法解析时按已解析的请求头响应，客户端不必等到超时
+            log.error("协议解析失败 requestId={}", requestHeader.getRequestId(), e);
+            requestHeader.setStatus((byte) ProtocolMessageStatusEnum.BAD_REQUEST.getStatus());
             RpcResponse response = new RpcResponse();
-            try {
-                // 获取要调用的类
-                Class<?> implClass = LocalRegistry.get(request.getServiceName());
-                Method method = implClass.getMethod(request.getMethodName(), request.getParameterTypes());
-                Object result = method.invoke(implClass, request.getParameters());
-                response.setResult(result);
+            response.setMessage("协议解析失败: " + e.getMessage());
+            writeResponse(netSocket, requestHeader, response);
+            return;
+        }
+        long decodedNanos = startNanos != 0 ? System.nanoTime() : 0;
+        ProtocolMessage.Header header = protocolMessage.getHeader();
+        // v2 请求携带相对截止时间，排队期间已经超过截止时间的请求不再执行，直接响应超时让客户端释放等待
+        long deadline = header.getDeadline();
+        if (deadline > 0 && System.nanoTime() - receivedNanos >= TimeUnit.MILLISECONDS.toNanos(deadline)) {
+            log.warn("请求已超过截止时间，放弃执行 requestId={}, deadline={}ms", header.getRequestId(), deadline);
+            header.setStatus((byte) ProtocolMessageStatusEnum.DEADLINE_EXCEEDED.getStatus());
+            RpcResponse response = new RpcResponse();
+            response.setMessage("请求排队超过截止时间，未执行");
+            writeResponse(netSocket, header, response);
+            return;
+        }
+        RpcRequest request = protocolMessage.getBody();
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getStatus());
+        // 构造响应请求
+        RpcResponse response = new RpcResponse();
+        // 调用指标，在找到调用器之后才能确定所属的方法
+        MethodMetrics metrics = null;
+        long executedNanos = 0;
+        // 获得的并发许可，请求结束时归还
+        GradientConcurrencyLimit concurrencyLimit = null;
+        try {
+            // 方法 id 字典握手
+            if (RpcConstant.HANDSHAKE_SERVICE_NAME.equals(request.getServiceName())) {
+                response.setResult(LocalRegistry.getMethodDictionary());
                 response.setMessage("success");
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-                response.setMessage(e.getMessage());
-                response.setException(e);
+                writeResponse(netSocket, header, response);
+                return;
             }
-
-            // 进行编码，发送
-            ProtocolMessage.Header header = protocolMessage.getHeader();
-            header.setType((byte) ProtocolMessageTypeEnum.RESPONSE.getType());
-            ProtocolMessage<RpcResponse> rpcResponseProtocolMessage = new ProtocolMessage<>(header, response);
+            // 获取注册时生成的调用器
+            MethodInvoker invoker = resolveInvoker(request);
+            response.setResultType(invoker.getResultType());
+            // 超过方法的并发限制时立即拒绝，不执行服务方法，客户端可以直接转移到其他节点
+            if (concurrencyLimiter != null) {
+                GradientConcurrencyLimit methodLimit =
+                        concurrencyLimiter.get(invoker.getServiceName(), invoker.getMethod().getName());
+                if (!methodLimit.tryAcquire()) {
+                    header.setStatus((byte) ProtocolMessageStatusEnum.LIMIT_EXCEEDED.getStatus());
+                    response.setMessage("超过服务方法的并发限制，请求被拒绝");
+                    writeResponse(netSocket, header, response);
+                    return;
+                }
+                concurrencyLimit = methodLimit;
+            }
+            if (startNanos != 0) {
+                metrics = RpcMetrics.server(invoker.getServiceName(), invoker.getMethod().getName());
+            }
+            if (metrics != null) {
+                metrics.begin();
+                metrics.recordPhase(RpcPhase.QUEUE, startNanos - receivedNanos);
+            }
+            // 服务方法执行期间可以通过 RpcContext 读取请求携带的附加信息
+            RpcContext.setReceivedAttachments(header.getAttachments());
+            Object result;
             try {
-                // 对响应体进行编码
-                Buffer encode = ProtocolMessageEncoder.encode(rpcResponseProtocolMessage);
-                netSocket.write(encode);
-            } catch (Exception e) {
-                throw new RuntimeException("协议编码解析出错");
+                result = invoker.invoke(request.getParameters());
+            } finally {
+                RpcContext.setReceivedAttachments(null);
+            }
+            // 服务方法返回 CompletableFuture 时，等其完成后再响应，不占用执行线程
+            if (result instanceof CompletableFuture<?> resultFuture) {
+                MethodMetrics asyncMetrics = metrics;
+                GradientConcurrencyLimit asyncConcurrencyLimit = concurrencyLimit;
+                resultFuture.whenComplete((value, throwable) -> {
+                    long asyncExecutedNanos = asyncMetrics != null ? System.nanoTime() : 0;
+                    if (asyncConcurrencyLimit != null) {
+                        asyncConcurrencyLimit.release(System.nanoTime() - receivedNanos);
+                    }
+                    if (throwable == null) {
+                        response.setResult(value);
+                        response.setMessage("success");
+                    } else {
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause() : throwable;
+                        log.error(cause.getMessage(), cause);
+                        response.setMessage(cause.getMessage());
+                        response.setException(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                    }
+                    writeResponse(netSocket, header, response, asyncMetrics,
+                            receivedNanos, startNanos, decodedNanos, asyncExecutedNanos);
+                });
+                return;
+            }
+            executedNanos = metrics != null ? System.nanoTime() : 0;
+            response.setResult(result);
+            response.setMessage("success");
+        } catch (Throwable e) {
+            log.error(e.getMessage(), e);
+            response.setMessage(e.getMessage());
+            response.setException(e instanceof Exception ? (Exception) e : new RuntimeException(e));
+            if (metrics != null) {
+                executedNanos = System.nanoTime();
+            }
+        }
+        // 并发限制按请求从到达到执行完成的耗时调整，排队时间变长时限制随之减小
+        if (concurrencyLimit != null) {
+            concurrencyLimit.release(System.nanoTime() - receivedNanos);
+        }
+
+        writeResponse(netSocket, header, response, metrics, receivedNanos, startNanos, decodedNanos, executedNanos);
+    }
+
+    // 根据方法 id 或服务名、方法名、参数类型查找调用器
+    private MethodInvoker resolveInvoker(RpcRequest request) throws NoSuchMethodException {
+        Integer methodId = request.getMethodId();
+        if (methodId == null) {
+            MethodInvoker invoker = LocalRegistry.getInvoker(request.getServiceName(),
+                    request.getMethodName(), request.getParameterTypes());
+            if (invoker == null) {
+                throw new NoSuchMethodException("服务方法不存在: " + request.getServiceName() + "#" + request.getMethodName());
             }
+            return invoker;
+        }
+        MethodInvoker invoker = LocalRegistry.getInvoker(methodId);
+        if (invoker == null) {
+            throw new NoSuchMethodException("方法 id 不存在: " + methodId);
+        }
+        // 补全精简请求中省略的信息
+        request.setServiceName(invoker.getServiceName());
+        request.setMethodName(invoker.getMethod().getName());
+        request.setParameterTypes(invoker.getParameterTypes());
+        return invoker;
+    }
+
+    // 心跳应答，沿用请求的版本号和 requestId，没有消息体
+    private void writeHeartbeat(NetSocket netSocket, ProtocolMessage.Header header) {
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getStatus());
+        header.setDeadline(0);
+        header.setAttachments(null);
+        netSocket.write(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, null)));
+    }
+
+    /**
+     * 响应并记录调用指标，各时间点复用已经取过的 System.nanoTime：
+     * execute 为查找调用器并执行服务方法的耗时，serialize 为请求解码与响应编码（含写入连接缓冲区）的耗时之和，
+     * 总耗时从事件循环收到请求帧开始计算
+     */
+    private void writeResponse(NetSocket netSocket, ProtocolMessage.Header header, RpcResponse response,
+                               MethodMetrics metrics, long receivedNanos, long startNanos,
+                               long decodedNanos, long executedNanos) {
+        writeResponse(netSocket, header, response);
+        if (metrics != null) {
+            long writtenNanos = System.nanoTime();
+            metrics.recordPhase(RpcPhase.EXECUTE, executedNanos - decodedNanos);
+            metrics.recordPhase(RpcPhase.SERIALIZE, (decodedNanos - startNanos) + (writtenNanos - executedNanos));
+            metrics.end(receivedNanos, writtenNanos, response.getException() == null);
+        }
+    }
 
-        });
+    // 进行编码，发送（按请求的协议版本响应，单向请求不响应）
+    private void writeResponse(NetSocket netSocket, ProtocolMessage.Header header, RpcResponse response) {
+        if (header.hasFlag(ProtocolConstant.FLAG_ONEWAY)) {
+            return;
+        }
+        header.setType((byte) ProtocolMessageTypeEnum.RESPONSE.getType());
+        header.setDeadline(0);
+        header.setAttachments(null);
+        ProtocolMessage<RpcResponse> rpcResponseProtocolMessage = new ProtocolMessage<>(header, response);
+        try {
+            // 对响应体进行编码
+            Buffer encode = ProtocolMessageEncoder.encode(rpcResponseProtocolMessage);
+            netSocket.write(encode);
+        } catch (Exception e) {
+            throw new RuntimeException("协议编码解析出错");
+        }
     }
 }
@@ -1,112 +1,109 @@
 package com.ff.server.tcp;
 
-import cn.hutool.core.util.IdUtil;
 import com.ff.RpcApplication;
+import com.ff.loadbalancer.ProviderStats;
+import com.ff.metrics.RpcMetrics;
 import com.ff.model.RpcRequest;
 import com.ff.model.RpcResponse;
 import com.ff.model.ServiceMetaInfo;
 import com.ff.protocol.*;
+import com.ff.utils.TimerUtils;
 import io.vertx.core.Vertx;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.net.NetClient;
-import io.vertx.core.net.NetSocket;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
-import java.util.Map;
 import java.util.concurrent.*;
 
 /**
  * Vertx TCP 请求客户端（支持多请求并发安全、requestId 校验、超时处理）
+ * 请求通过连接池中的长连接发送，同一连接上的多个请求通过 requestId 区分
  */
 @Slf4j
 public class VertxTcpClient {
 
     private static final Vertx vertx = Vertx.vertx();
-    private static final NetClient netClient = vertx.createNetClient();
 
-    // 全局 map 保存 requestId -> CompletableFuture
-    private static final Map<Long, CompletableFuture<RpcResponse>> pendingRequests = new ConcurrentHashMap<>();
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    // 按服务节点维护的长连接池
+    private static final TcpConnectionPool connectionPool =
+            new TcpConnectionPool(vertx, RpcApplication.getRpcConfig().getConnectionPoolConfig());
 
     /**
-     * 发送请求
+     * 发送请求（同步阻塞等待）
      *
      * @param rpcRequest
      * @param serviceMetaInfo
-     * @param timeoutSeconds 超时时间（秒）
+     * @param timeoutMillis 超时时间（毫秒）
      * @return
      * @throws InterruptedException
      * @throws ExecutionException
      * @throws TimeoutException
      */
-    public static RpcResponse sendPost(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long timeoutSeconds)
+    public static RpcResponse sendPost(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long timeoutMillis)
             throws InterruptedException, ExecutionException, TimeoutException {
+        // 超时由时间轮负责完成 future，这里多等一小段时间兜底
+        return sendAsync(rpcRequest, serviceMetaInfo, timeoutMillis)
+                .get(timeoutMillis + 1000, TimeUnit.MILLISECONDS); // 阻塞等待
+    }
 
-        CompletableFuture<RpcResponse> responseFuture = new CompletableFuture<>();
-
-        netClient.connect(serviceMetaInfo.getServicePort(), serviceMetaInfo.getServiceHost(),
-                result -> {
-                    if (!result.succeeded()) {
-                        responseFuture.completeExceptionally(new RuntimeException("Failed to connect to TCP server"));
-                        return;
-                    }
-                    NetSocket socket = result.result();
-
-                    // 构造请求消息
-                    ProtocolMessage<RpcRequest> protocolMessage = new ProtocolMessage<>();
-                    ProtocolMessage.Header header = new ProtocolMessage.Header();
-                    header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
-                    header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
-                    header.setSerializer((byte) ProtocolMessageSerializerEnum
-                            .getEnumByValue(RpcApplication.getRpcConfig().getSerializer()).getKey());
-                    header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+    /**
+     * 异步发送请求，响应由 TCP 响应处理器直接完成 future，不阻塞任何线程
+     *
+     * @param rpcRequest
+     * @param serviceMetaInfo
+     * @param timeoutMillis 超时时间（毫秒），从发起请求开始计时（包含建立连接的时间）
+     * @return 响应 future
+     */
+    public static CompletableFuture<RpcResponse> sendAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long timeoutMillis) {
 
-                    // 生成全局 requestId
-                    long requestId = IdUtil.getSnowflakeNextId();
-                    header.setRequestId(requestId);
-                    protocolMessage.setHeader(header);
-                    protocolMessage.setBody(rpcRequest);
+        RpcResponseFuture responseFuture = new RpcResponseFuture();
+        long startNanos = System.nanoTime();
+        // 调用指标，连接发送和收到响应时按阶段记录耗时
+        responseFuture.metrics = RpcMetrics.client(rpcRequest.getServiceName(), rpcRequest.getMethodName());
+        responseFuture.startNanos = startNanos;
+        // 负载均衡器使用的节点统计
+        if (ProviderStats.isTracking()) {
+            ProviderStats providerStats = ProviderStats.get(serviceMetaInfo);
+            providerStats.begin();
+            responseFuture.providerStats = providerStats;
+        }
 
-                    // 将 requestId 与 future 关联
-                    pendingRequests.put(requestId, responseFuture);
+        // 超时处理：时间轮定时器，响应到达后立即取消，不会在定时队列中堆积
+        responseFuture.setTimeout(TimerUtils.newTimeout(() -> responseFuture.completeExceptionally(
+                new TimeoutException("请求超时: " + rpcRequest.getServiceName() + "#" + rpcRequest.getMethodName()
+                        + ", timeout=" + timeoutMillis + "ms")), timeoutMillis));
 
-                    // 超时处理
-                    scheduler.schedule(() -> {
-                        CompletableFuture<RpcResponse> removed = pendingRequests.remove(requestId);
-                        if (removed != null) {
-                            removed.completeExceptionally(new TimeoutException("请求超时: " + requestId));
-                        }
-                    }, timeoutSeconds, TimeUnit.SECONDS);
+        connectionPool.acquire(serviceMetaInfo).whenComplete((connection, throwable) -> {
+            if (throwable != null) {
+                responseFuture.completeExceptionally(new RuntimeException("Failed to connect to TCP server", throwable));
+                return;
+            }
+            // 建立连接期间已经超时
+            if (responseFuture.isDone()) {
+                return;
+            }
 
-                    // 编码并发送请求
-                    try {
-                        Buffer encodeBuffer = ProtocolMessageEncoder.encode(protocolMessage);
-                        socket.write(encodeBuffer);
-                    } catch (Exception e) {
-                        responseFuture.completeExceptionally(new RuntimeException("协议消息编码错误", e));
-                        pendingRequests.remove(requestId);
-                    }
+            // 构造请求消息
+            ProtocolMessage<RpcRequest> protocolMessage = new ProtocolMessage<>();
+            ProtocolMessage.Header header = new ProtocolMessage.Header();
+            header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+            header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+            header.setSerializer((byte) ProtocolMessageSerializerEnum
+                    .getEnumByValue(RpcApplication.getRpcConfig().getSerializer()).getKey());
+            header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+            // 剩余的超时时间作为相对截止时间（v2 帧），服务端不再执行排队期间已超时的请求
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            header.setDeadline(Math.max(1, timeoutMillis - elapsedMillis));
+            // 调用附加信息和单向标记同样只在 v2 帧中发送
+            header.setAttachments(rpcRequest.getAttachments());
+            if (rpcRequest.isOneway()) {
+                header.addFlag(ProtocolConstant.FLAG_ONEWAY);
+            }
+            protocolMessage.setHeader(header);
+            protocolMessage.setBody(rpcRequest);
 
-                    // 处理响应,解决响应时的粘包拆包问题
-                    TcpBufferHandlerWrapper tcpBufferHandlerWrapper = new TcpBufferHandlerWrapper(buffer ->{
-                        try {
-                            ProtocolMessage<RpcResponse> rpcResponseProtocolMessage =
-                                    (ProtocolMessage<RpcResponse>) ProtocolMessageDecoder.decode(buffer);
-                            long respId = rpcResponseProtocolMessage.getHeader().getRequestId();
-                            CompletableFuture<RpcResponse> future = pendingRequests.remove(respId);
-                            if (future != null) {
-                                future.complete(rpcResponseProtocolMessage.getBody());
-                            } else {
-                                log.warn("收到未知或超时的响应 requestId={}", respId);
-                            }
-                        } catch (IOException e) {
-                            log.error("协议消息解码错误", e);
-                        }
-                    });
-                    socket.handler(tcpBufferHandlerWrapper);
-                });
+            // 由连接分配 requestId，编码并通过长连接发送请求
+            connection.send(protocolMessage, responseFuture);
+        });
 
-        return responseFuture.get(timeoutSeconds + 1, TimeUnit.SECONDS); // 阻塞等待
+        return responseFuture;
     }
 }
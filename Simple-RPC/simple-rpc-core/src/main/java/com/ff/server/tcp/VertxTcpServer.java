@@ -1,6 +1,9 @@
 package com.ff.server.tcp;
 
+import com.ff.RpcApplication;
 import com.ff.server.RpcServer;
+import com.ff.server.ServerRequestExecutor;
+import com.ff.server.limit.ConcurrencyLimiter;
 import io.vertx.core.Vertx;
 import io.vertx.core.net.NetServer;
 import lombok.extern.slf4j.Slf4j;
@@ -16,8 +19,13 @@ public class VertxTcpServer implements RpcServer {
         // 创建 TCP 服务器
         NetServer server = vertx.createNetServer();
 
-        // 处理请求
-        server.connectHandler(new TcpServerHandler());
+        // 处理请求，服务方法按配置的执行模型执行
+        ServerRequestExecutor requestExecutor =
+                new ServerRequestExecutor(RpcApplication.getRpcConfig().getServerExecutionConfig());
+        // 按服务方法的自适应并发限制，超过限制的请求直接拒绝
+        ConcurrencyLimiter concurrencyLimiter =
+                new ConcurrencyLimiter(RpcApplication.getRpcConfig().getConcurrencyLimitConfig());
+        server.connectHandler(new TcpServerHandler(requestExecutor, concurrencyLimiter));
 
         // 启动 TCP 服务器并监听指定端口
         server.listen(port, result -> {
@@ -101,12 +101,12 @@ public class SpiLoader {
                 constructor.setAccessible(true);  // 设置为可访问
                 Object instance = constructor.newInstance(); // 实例化对象
                 instanceCache.put(implClassName, instance); // 缓存实例
+                log.info("实例化类型：{}", implClassName);
             } catch (Exception e) {
                 String errorMsg = String.format("%s 类实例化失败", implClassName);
                 throw new RuntimeException(errorMsg, e); // 如果实例化失败，抛出异常
             }
         }
-        log.info("实例化类型：{}", implClassName);
         return (T) instanceCache.get(implClassName); // 返回实例
     }
 
@@ -134,6 +134,10 @@ public class SpiLoader {
                 try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(resource.openStream()))) {
                     String line;
                     while ((line = bufferedReader.readLine()) != null) {
+                        // 跳过空行（合并多个模块的配置文件时会产生空行）
+                        if (line.isBlank()) {
+                            continue;
+                        }
                         // 每行格式为 key=className
                         String[] strArray = line.split("=");
                         if (strArray.length == 2) {
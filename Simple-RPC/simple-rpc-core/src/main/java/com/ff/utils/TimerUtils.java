@@ -0,0 +1,54 @@
+package com.ff.utils;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ 全局时间轮定时器，用于请求超时等大量、短生命周期且通常会被取消的定时任务。
+ 时间轮的添加、取消都是 O(1)，被取消的任务不会在队列中堆积，
+ 刻度为 1 毫秒，支持毫秒级的超时时间
+ */
+public class TimerUtils {
+
+    // 时间轮刻度（毫秒）
+    private static final long TICK_DURATION_MILLIS = 1L;
+
+    // 时间轮槽位数
+    private static final int TICKS_PER_WHEEL = 4096;
+
+    private static final Timer TIMER = new HashedWheelTimer(
+            runnable -> {
+                Thread thread = new Thread(runnable, "rpc-timer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    /**
+     * 添加一个定时任务
+     *
+     * @param task        到期执行的任务（在定时器线程中执行，不能阻塞）
+     * @param delayMillis 延迟时间（毫秒）
+     * @return 可以用来取消任务的句柄
+     */
+    public static Timeout newTimeout(Runnable task, long delayMillis) {
+        return TIMER.newTimeout(timeout -> task.run(), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 添加一个定时任务，到期后交给指定的线程池执行，定时器线程只负责提交
+     * 用于到期后要选择节点、编码、发送请求等不能在定时器线程中执行的任务
+     *
+     * @param task        到期执行的任务
+     * @param delayMillis 延迟时间（毫秒）
+     * @param executor    执行任务的线程池
+     * @return 可以用来取消任务的句柄
+     */
+    public static Timeout newTimeout(Runnable task, long delayMillis, Executor executor) {
+        return TIMER.newTimeout(timeout -> executor.execute(task), delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
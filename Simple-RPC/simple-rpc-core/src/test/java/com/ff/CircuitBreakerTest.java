@@ -0,0 +1,139 @@
+package com.ff;
+
+import com.ff.config.CircuitBreakerConfig;
+import com.ff.fault.circuitbreaker.CircuitBreaker;
+import com.ff.fault.circuitbreaker.SlidingWindowCircuitBreaker;
+import com.ff.metrics.RpcMetrics;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CircuitBreakerTest {
+
+    private static final String SERVICE_NAME = "com.ff.CircuitService";
+
+    @Test
+    public void testOpenHalfOpenAndClose() throws InterruptedException {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setOpenMillis(100L);
+        config.setHalfOpenCalls(2);
+        CircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker(config);
+        RpcRequest request = RpcRequest.builder().serviceName(SERVICE_NAME).methodName("call").build();
+        ServiceMetaInfo failing = node("10.8.0.1");
+        ServiceMetaInfo healthy = node("10.8.0.2");
+        List<ServiceMetaInfo> services = List.of(failing, healthy);
+
+        // 连续失败达到最小调用数后熔断，之后的调用不再发出
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(circuitBreaker.call(request, failing, CircuitBreakerTest::failure).isCompletedExceptionally());
+        }
+        AtomicInteger sent = new AtomicInteger();
+        Assert.assertTrue(circuitBreaker.call(request, failing, () -> {
+            sent.incrementAndGet();
+            return success();
+        }).isCompletedExceptionally());
+        Assert.assertEquals(0, sent.get());
+        List<ServiceMetaInfo> available = circuitBreaker.filter(SERVICE_NAME, "call", services);
+        Assert.assertEquals(List.of(healthy), available);
+        // 状态不变时返回同一个列表对象，其他方法不受影响
+        Assert.assertSame(available, circuitBreaker.filter(SERVICE_NAME, "call", services));
+        Assert.assertSame(services, circuitBreaker.filter(SERVICE_NAME, "other", services));
+        Assert.assertTrue(RpcMetrics.scrape().contains("rpc_circuit_breaker_state{service=\"" + SERVICE_NAME
+                + "\",method=\"call\",node=\"10.8.0.1:8080\"} 1"));
+
+        // 熔断时间过后半开，只放行两个探测请求
+        Thread.sleep(150);
+        Assert.assertEquals(services, circuitBreaker.filter(SERVICE_NAME, "call", services));
+        CompletableFuture<RpcResponse> firstProbe = new CompletableFuture<>();
+        CompletableFuture<RpcResponse> secondProbe = new CompletableFuture<>();
+        Assert.assertFalse(circuitBreaker.call(request, failing, () -> firstProbe).isDone());
+        Assert.assertFalse(circuitBreaker.call(request, failing, () -> secondProbe).isDone());
+        Assert.assertTrue(circuitBreaker.call(request, failing, CircuitBreakerTest::success).isCompletedExceptionally());
+        Assert.assertEquals(List.of(healthy), circuitBreaker.filter(SERVICE_NAME, "call", services));
+
+        // 探测全部成功后恢复
+        firstProbe.complete(new RpcResponse());
+        secondProbe.complete(new RpcResponse());
+        Assert.assertSame(services, circuitBreaker.filter(SERVICE_NAME, "call", services));
+        Assert.assertFalse(circuitBreaker.call(request, failing, CircuitBreakerTest::success).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCancelledProbeMakesNodeAvailableAgain() throws InterruptedException {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(2);
+        config.setOpenMillis(50L);
+        config.setHalfOpenCalls(1);
+        CircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker(config);
+        RpcRequest request = RpcRequest.builder().serviceName(SERVICE_NAME).methodName("probe").build();
+        ServiceMetaInfo only = node("10.8.0.3");
+        List<ServiceMetaInfo> services = List.of(only);
+
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.call(request, only, CircuitBreakerTest::failure);
+        }
+        Assert.assertTrue(circuitBreaker.filter(SERVICE_NAME, "probe", services).isEmpty());
+
+        // 半开后唯一的探测名额被占用，节点被排除
+        Thread.sleep(80);
+        CompletableFuture<RpcResponse> probe = new CompletableFuture<>();
+        Assert.assertFalse(circuitBreaker.call(request, only, () -> probe).isDone());
+        Assert.assertTrue(circuitBreaker.filter(SERVICE_NAME, "probe", services).isEmpty());
+
+        // 探测被取消（例如对冲请求中较慢的一个）后名额归还，节点重新可选
+        probe.cancel(false);
+        Assert.assertSame(services, circuitBreaker.filter(SERVICE_NAME, "probe", services));
+        Assert.assertFalse(circuitBreaker.call(request, only, CircuitBreakerTest::success).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFailedProbeReopensForFullPeriod() throws InterruptedException {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(2);
+        config.setOpenMillis(200L);
+        config.setHalfOpenCalls(2);
+        CircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker(config);
+        RpcRequest request = RpcRequest.builder().serviceName(SERVICE_NAME).methodName("reopen").build();
+        ServiceMetaInfo only = node("10.8.0.4");
+        List<ServiceMetaInfo> services = List.of(only);
+
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.call(request, only, CircuitBreakerTest::failure);
+        }
+        Thread.sleep(250);
+
+        // 探测失败后重新熔断，按新的打开时间计算熔断时间，剩下的探测名额不再放行
+        Assert.assertTrue(circuitBreaker.call(request, only, CircuitBreakerTest::failure).isCompletedExceptionally());
+        AtomicInteger sent = new AtomicInteger();
+        Assert.assertTrue(circuitBreaker.call(request, only, () -> {
+            sent.incrementAndGet();
+            return success();
+        }).isCompletedExceptionally());
+        Assert.assertEquals(0, sent.get());
+        Assert.assertTrue(circuitBreaker.filter(SERVICE_NAME, "reopen", services).isEmpty());
+    }
+
+    private static CompletableFuture<RpcResponse> success() {
+        return CompletableFuture.completedFuture(new RpcResponse());
+    }
+
+    private static CompletableFuture<RpcResponse> failure() {
+        return CompletableFuture.failedFuture(new RuntimeException("连接失败"));
+    }
+
+    private static ServiceMetaInfo node(String host) {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName(SERVICE_NAME);
+        serviceMetaInfo.setServiceHost(host);
+        serviceMetaInfo.setServicePort(8080);
+        return serviceMetaInfo;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ff;
+
+import com.ff.config.ConcurrencyLimitConfig;
+import com.ff.protocol.ProtocolMessageStatusEnum;
+import com.ff.server.limit.GradientConcurrencyLimit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimitTest {
+
+    @Test
+    public void testRejectsOverLimit() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(10);
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(config);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(limit.tryAcquire());
+        }
+        Assert.assertFalse(limit.tryAcquire());
+        Assert.assertEquals(1, limit.getRejected());
+        Assert.assertEquals(10, limit.getInFlight());
+        // 拒绝状态与其他状态码在 1 个字节内不冲突
+        Assert.assertEquals(ProtocolMessageStatusEnum.LIMIT_EXCEEDED,
+                ProtocolMessageStatusEnum.getEnumByStatus((byte) ProtocolMessageStatusEnum.LIMIT_EXCEEDED.getStatus()));
+    }
+
+    @Test
+    public void testLimitFollowsLatency() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(20);
+        config.setMinLimit(5);
+        config.setMaxLimit(200);
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(config);
+
+        // 并发数打满且延迟平稳时逐步增大限制
+        runSaturated(limit, 200, TimeUnit.MILLISECONDS.toNanos(1));
+        int grown = limit.getLimit();
+        Assert.assertTrue(grown > 20);
+
+        // 延迟突然升高到基线的数倍时减小限制（持续升高后长期基线会跟上，限制不会一直减小）
+        runSaturated(limit, 1, TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertTrue(limit.getLimit() < grown);
+    }
+
+    @Test
+    public void testLimitDecreasesAtLowConcurrency() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(100);
+        config.setMinLimit(5);
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(config);
+
+        // 并发数远小于限制时延迟平稳，限制不增大
+        runSerial(limit, 200, TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertEquals(100, limit.getLimit());
+
+        // 并发数低但延迟升高到基线的数倍，限制仍然减小
+        runSerial(limit, 10, TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertTrue(limit.getLimit() < 100);
+    }
+
+    // 每次只有一个请求在途
+    private static void runSerial(GradientConcurrencyLimit limit, int requests, long rttNanos) {
+        for (int i = 0; i < requests; i++) {
+            Assert.assertTrue(limit.tryAcquire());
+            limit.release(rttNanos);
+        }
+    }
+
+    // 每轮占满当前限制的许可，再以给定延迟全部归还
+    private static void runSaturated(GradientConcurrencyLimit limit, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.ff;
+
+import com.ff.config.RpcConfig;
+import com.ff.fault.tolerant.FailOverTolerantStrategy;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.utils.TimerUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FailoverTest {
+
+    private static final String SERVICE_NAME = "com.ff.common.service.UserService";
+
+    @Test
+    public void testSkipsTriedNodes() throws Exception {
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082), service(8083));
+        List<ServiceMetaInfo> sent = new ArrayList<>();
+        RpcResponse response = new RpcResponse();
+        FailOverTolerantStrategy strategy = new FailOverTolerantStrategy(rpcConfig(3), (request, node, timeoutMillis) -> {
+            sent.add(node);
+            // 第一个转移的节点也失败，第二个成功
+            return sent.size() == 1
+                    ? CompletableFuture.failedFuture(new RuntimeException("连接失败"))
+                    : CompletableFuture.completedFuture(response);
+        });
+
+        Map<String, Object> context = context(services, services.get(0), System.nanoTime());
+        Assert.assertSame(response, strategy.tolerantAsync(context, new RuntimeException("连接失败"))
+                .get(5, TimeUnit.SECONDS));
+        // 第一次调用的节点不再被选中，转移过的节点也不会重复选中
+        Assert.assertEquals(2, sent.size());
+        Assert.assertFalse(sent.contains(services.get(0)));
+        Assert.assertNotEquals(sent.get(0), sent.get(1));
+    }
+
+    @Test
+    public void testStopsAfterMaxAttempts() throws Exception {
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082), service(8083));
+        List<ServiceMetaInfo> sent = new ArrayList<>();
+        FailOverTolerantStrategy strategy = new FailOverTolerantStrategy(rpcConfig(2), (request, node, timeoutMillis) -> {
+            sent.add(node);
+            return CompletableFuture.failedFuture(new RuntimeException("连接失败"));
+        });
+
+        assertFails(strategy.tolerantAsync(context(services, services.get(0), System.nanoTime()),
+                new RuntimeException("连接失败")));
+        // 总尝试次数包含第一次调用
+        Assert.assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void testFailsWhenAllNodesTried() throws Exception {
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082));
+        List<ServiceMetaInfo> sent = new ArrayList<>();
+        FailOverTolerantStrategy strategy = new FailOverTolerantStrategy(rpcConfig(3), (request, node, timeoutMillis) -> {
+            sent.add(node);
+            return CompletableFuture.completedFuture(new RpcResponse());
+        });
+
+        // 另一个节点已经发过对冲请求
+        Map<String, Object> context = context(services, services.get(0), System.nanoTime());
+        context.put("hedgedServices", new ArrayList<>(List.of(services.get(1))));
+        assertFails(strategy.tolerantAsync(context, new RuntimeException("连接失败")));
+        Assert.assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void testStopsAtCallerDeadline() throws Exception {
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082));
+        List<ServiceMetaInfo> sent = new ArrayList<>();
+        RpcConfig rpcConfig = rpcConfig(3);
+        FailOverTolerantStrategy strategy = new FailOverTolerantStrategy(rpcConfig, (request, node, timeoutMillis) -> {
+            sent.add(node);
+            return CompletableFuture.completedFuture(new RpcResponse());
+        });
+
+        // 调用开始的时间已经超过超时时间
+        long timeoutMillis = rpcConfig.getTimeout(SERVICE_NAME, "getUser");
+        long startNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(timeoutMillis + 1);
+        Throwable cause = assertFails(strategy.tolerantAsync(context(services, services.get(0), startNanos),
+                new RuntimeException("连接失败")));
+        Assert.assertTrue(cause instanceof TimeoutException);
+        Assert.assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void testFailoverDoesNotRunOnTimer() throws Exception {
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082), service(8083));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        RpcResponse response = new RpcResponse();
+        AtomicInteger sent = new AtomicInteger();
+        FailOverTolerantStrategy strategy = new FailOverTolerantStrategy(rpcConfig(3), (request, node, timeoutMillis) -> {
+            threads.add(Thread.currentThread().getName());
+            if (sent.incrementAndGet() > 1) {
+                return CompletableFuture.completedFuture(response);
+            }
+            // 第一个转移的节点超时，由定时器线程完成 future
+            CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+            TimerUtils.newTimeout(() -> future.completeExceptionally(new TimeoutException("请求超时")), 10);
+            return future;
+        });
+
+        Map<String, Object> context = context(services, services.get(0), System.nanoTime());
+        Assert.assertSame(response, strategy.tolerantAsync(context, new RuntimeException("连接失败"))
+                .get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, sent.get());
+        // 超时后的下一次尝试不在定时器线程中执行
+        Assert.assertFalse(threads.contains("rpc-timer"));
+    }
+
+    // 返回最终失败的原因
+    private static Throwable assertFails(CompletableFuture<RpcResponse> result) throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause().getCause();
+        }
+    }
+
+    private static RpcConfig rpcConfig(int failoverMaxAttempts) {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.setFailoverMaxAttempts(failoverMaxAttempts);
+        return rpcConfig;
+    }
+
+    private static Map<String, Object> context(List<ServiceMetaInfo> services, ServiceMetaInfo selected, long startNanos) {
+        Map<String, Object> context = new HashMap<>();
+        context.put("methodName", "getUser");
+        context.put("services", services);
+        context.put("request", RpcRequest.builder().serviceName(SERVICE_NAME).methodName("getUser").build());
+        context.put("selectedService", selected);
+        context.put("startNanos", startNanos);
+        return context;
+    }
+
+    private static ServiceMetaInfo service(int port) {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName(SERVICE_NAME);
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(port);
+        return serviceMetaInfo;
+    }
+}
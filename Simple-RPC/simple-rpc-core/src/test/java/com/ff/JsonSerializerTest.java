@@ -0,0 +1,111 @@
+package com.ff;
+
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
+import com.ff.serializer.JsonSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class JsonSerializerTest {
+
+    public static class Item {
+        public String name;
+        public int count;
+    }
+
+    public interface ItemService {
+        List<Item> merge(List<Item> items, Map<String, Item> index);
+    }
+
+    public static class ItemServiceImpl implements ItemService {
+        @Override
+        public List<Item> merge(List<Item> items, Map<String, Item> index) {
+            return items;
+        }
+    }
+
+    @Test
+    public void testGenericTypes() throws Throwable {
+        String serviceName = ItemService.class.getName();
+        LocalRegistry.register(serviceName, ItemServiceImpl.class);
+        Class<?>[] parameterTypes = {List.class, Map.class};
+        MethodInvoker invoker = LocalRegistry.getInvoker(serviceName, "merge", parameterTypes);
+        JsonSerializer serializer = new JsonSerializer();
+
+        Item item = new Item();
+        item.name = "apple";
+        item.count = 3;
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(serviceName);
+        request.setMethodName("merge");
+        request.setParameterTypes(parameterTypes);
+        request.setParameters(new Object[]{Arrays.asList(item), Map.of("apple", item)});
+
+        // 参数按方法声明的泛型类型绑定，而不是 LinkedHashMap
+        RpcRequest decodedRequest = serializer.deserialize(serializer.serialize(request), RpcRequest.class);
+        List<?> items = (List<?>) decodedRequest.getParameters()[0];
+        Map<?, ?> index = (Map<?, ?>) decodedRequest.getParameters()[1];
+        Assert.assertEquals("apple", ((Item) items.get(0)).name);
+        Assert.assertEquals(3, ((Item) index.get("apple")).count);
+
+        // 参数写在定位方法的字段之前时也能正确绑定
+        String reordered = "{\"parameters\":[[{\"name\":\"pear\",\"count\":1}],{}],\"methodId\":" + invoker.getMethodId() + "}";
+        decodedRequest = serializer.deserialize(reordered.getBytes(StandardCharsets.UTF_8), RpcRequest.class);
+        Assert.assertEquals("pear", ((Item) ((List<?>) decodedRequest.getParameters()[0]).get(0)).name);
+
+        // 返回值按服务端写出的泛型返回值类型绑定
+        RpcResponse response = new RpcResponse();
+        response.setResult(invoker.invoke(decodedRequest.getParameters()));
+        response.setResultType(invoker.getResultType());
+        RpcResponse decodedResponse = serializer.deserialize(serializer.serialize(response), RpcResponse.class);
+        Assert.assertEquals("pear", ((Item) ((List<?>) decodedResponse.getResult()).get(0)).name);
+
+        LocalRegistry.delete(serviceName);
+    }
+
+    @Test
+    public void testSkipsHeaderFields() throws Exception {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("x");
+        request.setMethodName("y");
+        request.setAttachments(Map.of("traceId", "trace-1"));
+        request.setOneway(true);
+        // 附加信息和单向标记在 v2 帧的扩展区传输，不写入消息体
+        String json = new String(new JsonSerializer().serialize(request), StandardCharsets.UTF_8);
+        Assert.assertFalse(json.contains("attachments"));
+        Assert.assertFalse(json.contains("oneway"));
+    }
+
+    @Test
+    public void testRejectsUndeclaredTypeNames() throws Exception {
+        JsonSerializer serializer = new JsonSerializer();
+        // 对端发送的类型名没有在服务接口中声明过时直接拒绝，不加载该类
+        String request = "{\"serviceName\":\"x\",\"methodName\":\"y\",\"parameterTypes\":[\"java.lang.ProcessBuilder\"],\"parameters\":[[]]}";
+        assertRejected(serializer, request, RpcRequest.class);
+        String response = "{\"resultType\":\"java.util.List<javax.naming.InitialContext>\",\"result\":[]}";
+        assertRejected(serializer, response, RpcResponse.class);
+        assertRejected(serializer, "{\"parameterType\":\"java.lang.Runtime\"}", RpcResponse.class);
+
+        // 声明过的类型和常用 JDK 类型可以解析
+        RpcResponse decoded = serializer.deserialize(
+                "{\"resultType\":\"java.lang.String\",\"result\":\"ok\"}".getBytes(StandardCharsets.UTF_8), RpcResponse.class);
+        Assert.assertEquals("ok", decoded.getResult());
+    }
+
+    private static void assertRejected(JsonSerializer serializer, String json, Class<?> type) {
+        try {
+            serializer.deserialize(json.getBytes(StandardCharsets.UTF_8), type);
+            Assert.fail("未声明的类型不应被解析: " + json);
+        } catch (IOException e) {
+            Assert.assertTrue(String.valueOf(e.getMessage()).contains("允许的范围"));
+        }
+    }
+}
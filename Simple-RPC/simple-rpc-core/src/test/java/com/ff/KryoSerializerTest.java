@@ -0,0 +1,56 @@
+package com.ff;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.ff.model.RpcRequest;
+import com.ff.serializer.KryoSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+public class KryoSerializerTest {
+
+    // 没有无参构造器的 DTO
+    public static class Point {
+        private final int x;
+        private final int y;
+
+        public Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    @Test
+    public void testRegistration() throws Exception {
+        KryoSerializer registered = new KryoSerializer(Collections.singletonList(Point.class.getName()), true);
+        KryoSerializer unregistered = new KryoSerializer(Collections.emptyList(), false);
+
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.ff.PointService");
+        request.setMethodName("move");
+        request.setParameterTypes(new Class[]{Point.class});
+        request.setParameters(new Object[]{new Point(1, 2)});
+
+        byte[] bytes = registered.serialize(request);
+        RpcRequest result = registered.deserialize(bytes, RpcRequest.class);
+        Point point = (Point) result.getParameters()[0];
+        Assert.assertEquals(1, point.x);
+        Assert.assertEquals(2, point.y);
+        // 注册后只写入类 id，不再写入类名
+        Assert.assertTrue(bytes.length < unregistered.serialize(request).length);
+
+        // 流式读写与字节数组读写结果一致
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        registered.serialize(request, outputStream);
+        Assert.assertArrayEquals(bytes, outputStream.toByteArray());
+        result = registered.deserialize(new ByteArrayInputStream(bytes), RpcRequest.class);
+        Assert.assertEquals("move", result.getMethodName());
+
+        // 要求注册时，未注册的类直接失败
+        KryoSerializer strict = new KryoSerializer(Collections.emptyList(), true);
+        Assert.assertThrows(KryoException.class, () -> strict.serialize(request));
+    }
+}
@@ -0,0 +1,46 @@
+package com.ff;
+
+import com.ff.metrics.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 ~ 10000 微秒各记录一次
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(10000, snapshot.getCount());
+        // 分桶的相对误差不超过 1/32
+        assertClose(10_000_000, snapshot.getMax());
+        assertClose(5_000_500, (long) snapshot.getMean());
+        assertClose(5_000_000, snapshot.getValueAtPercentile(50));
+        assertClose(9_900_000, snapshot.getValueAtPercentile(99));
+        assertClose(9_990_000, snapshot.getValueAtPercentile(99.9));
+        Assert.assertEquals(snapshot.getMax(), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallAndOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(3, snapshot.getCount());
+        // 小于 64 的值精确记录
+        Assert.assertEquals(0, snapshot.getValueAtPercentile(10));
+        Assert.assertEquals(3, snapshot.getValueAtPercentile(50));
+        // 超出范围的值按最大可记录值记录
+        Assert.assertEquals((1L << 40) - 1, snapshot.getMax());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 32);
+    }
+}
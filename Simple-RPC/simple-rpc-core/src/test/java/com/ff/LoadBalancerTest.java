@@ -0,0 +1,215 @@
+package com.ff;
+
+import com.ff.loadbalancer.ConsistentHashLoadBalancer;
+import com.ff.loadbalancer.LoadBalancer;
+import com.ff.loadbalancer.P2cEwmaLoadBalancer;
+import com.ff.loadbalancer.ProviderStats;
+import com.ff.loadbalancer.RoundRobinLoadBalancer;
+import com.ff.loadbalancer.WeightedRoundRobinLoadBalancer;
+import com.ff.model.RpcRequest;
+import com.ff.model.ServiceMetaInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class LoadBalancerTest {
+
+    @Test
+    public void testP2cAvoidsSlowProvider() {
+        LoadBalancer loadBalancer = new P2cEwmaLoadBalancer();
+        List<ServiceMetaInfo> services = services("10.1.0.", 2);
+        // 第一个节点响应 50ms，第二个节点响应 1ms
+        record(services.get(0), TimeUnit.MILLISECONDS.toNanos(50));
+        record(services.get(1), TimeUnit.MILLISECONDS.toNanos(1));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(services.get(1), loadBalancer.select(new HashMap<>(), services));
+        }
+    }
+
+    @Test
+    public void testP2cPrefersFewerInFlightWithoutSamples() {
+        LoadBalancer loadBalancer = new P2cEwmaLoadBalancer();
+        List<ServiceMetaInfo> services = services("10.2.0.", 2);
+        ProviderStats.get(services.get(0)).begin();
+        Map<String, Object> requestParams = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(services.get(1), loadBalancer.select(requestParams, services));
+        }
+    }
+
+    @Test
+    public void testConsistentHashIsStickyByArgument() {
+        LoadBalancer loadBalancer = new ConsistentHashLoadBalancer(new int[]{0});
+        List<ServiceMetaInfo> services = services("10.3.0.", 4);
+        Set<ServiceMetaInfo> selected = new HashSet<>();
+        for (int userId = 0; userId < 200; userId++) {
+            ServiceMetaInfo first = loadBalancer.select(hashParams(services, userId), services);
+            // 同一个参数总是落到同一个节点，节点列表换成内容相同的新列表也一样
+            Assert.assertSame(first, loadBalancer.select(hashParams(services, userId), services));
+            Assert.assertEquals(first, loadBalancer.select(hashParams(services, userId), new ArrayList<>(services)));
+            selected.add(first);
+        }
+        // 不同参数分散到所有节点
+        Assert.assertEquals(4, selected.size());
+    }
+
+    @Test
+    public void testConsistentHashRemapsOnlyRemovedProvider() {
+        LoadBalancer loadBalancer = new ConsistentHashLoadBalancer(new int[]{0});
+        List<ServiceMetaInfo> services = services("10.4.0.", 5);
+        List<ServiceMetaInfo> before = new ArrayList<>();
+        for (int userId = 0; userId < 500; userId++) {
+            before.add(loadBalancer.select(hashParams(services, userId), services));
+        }
+        ServiceMetaInfo removed = services.get(2);
+        List<ServiceMetaInfo> remaining = new ArrayList<>(services);
+        remaining.remove(removed);
+        for (int userId = 0; userId < 500; userId++) {
+            ServiceMetaInfo after = loadBalancer.select(hashParams(remaining, userId), remaining);
+            Assert.assertNotEquals(removed, after);
+            if (!before.get(userId).equals(removed)) {
+                Assert.assertEquals(before.get(userId), after);
+            }
+        }
+    }
+
+    @Test
+    public void testConsistentHashReusedRingReturnsCurrentNodes() {
+        LoadBalancer loadBalancer = new ConsistentHashLoadBalancer(new int[]{0});
+        List<ServiceMetaInfo> services = services("10.9.0.", 4);
+        List<ServiceMetaInfo> before = new ArrayList<>();
+        for (int userId = 0; userId < 200; userId++) {
+            before.add(loadBalancer.select(hashParams(services, userId), services));
+        }
+        // 排除一个节点的子列表不影响完整列表的选择结果
+        List<ServiceMetaInfo> subset = new ArrayList<>(services.subList(1, 4));
+        for (int userId = 0; userId < 200; userId++) {
+            Assert.assertNotSame(services.get(0), loadBalancer.select(hashParams(subset, userId), subset));
+            Assert.assertSame(before.get(userId), loadBalancer.select(hashParams(services, userId), services));
+        }
+        // 注册中心重新拉取的节点对象（顺序不同、元数据更新）替换环上原来的对象
+        List<ServiceMetaInfo> refreshed = services("10.9.0.", 4);
+        refreshed.forEach(serviceMetaInfo -> serviceMetaInfo.setWeight(50));
+        Collections.reverse(refreshed);
+        for (int userId = 0; userId < 200; userId++) {
+            ServiceMetaInfo selected = loadBalancer.select(hashParams(refreshed, userId), refreshed);
+            Assert.assertEquals(before.get(userId).getServiceHost(), selected.getServiceHost());
+            Assert.assertTrue(refreshed.stream().anyMatch(serviceMetaInfo -> serviceMetaInfo == selected));
+        }
+    }
+
+    @Test
+    public void testWeightedRoundRobinIsSmoothAndProportional() {
+        List<ServiceMetaInfo> services = services("10.5.0.", 3);
+        services.get(0).setWeight(5);
+        services.get(1).setWeight(1);
+        services.get(2).setWeight(1);
+        // 与 nginx 相同的平滑序列：a a b a c a a，轮询负载均衡器在权重不同时也使用同样的序列
+        int[] expected = {0, 0, 1, 0, 2, 0, 0};
+        Map<String, Object> requestParams = new HashMap<>();
+        for (LoadBalancer loadBalancer : List.of(new WeightedRoundRobinLoadBalancer(), new RoundRobinLoadBalancer())) {
+            for (int round = 0; round < 3; round++) {
+                for (int index : expected) {
+                    Assert.assertSame(services.get(index), loadBalancer.select(requestParams, services));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWeightedRoundRobinSkipsZeroWeightAfterMembershipChange() {
+        LoadBalancer loadBalancer = new WeightedRoundRobinLoadBalancer();
+        List<ServiceMetaInfo> services = services("10.6.0.", 2);
+        services.get(0).setWeight(300);
+        services.get(1).setWeight(100);
+        Map<String, Object> requestParams = new HashMap<>();
+        Map<ServiceMetaInfo, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            counts.merge(loadBalancer.select(requestParams, services), 1, Integer::sum);
+        }
+        Assert.assertEquals(300, (int) counts.get(services.get(0)));
+        Assert.assertEquals(100, (int) counts.get(services.get(1)));
+
+        // 注册中心推送的新列表中第一个节点权重置 0（下线前摘流）
+        List<ServiceMetaInfo> updated = services("10.6.0.", 3);
+        updated.get(0).setWeight(0);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNotEquals(updated.get(0), loadBalancer.select(requestParams, updated));
+        }
+    }
+
+    @Test
+    public void testWarmupRampsNewProviderWeight() {
+        List<ServiceMetaInfo> services = services("10.7.0.", 2);
+        // 第二个节点 30 秒前注册，预热时间 60 秒，有效权重约为一半
+        services.get(1).setRegisterTime(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(30));
+        services.get(1).setWarmup((int) TimeUnit.SECONDS.toMillis(60));
+        Map<String, Object> requestParams = new HashMap<>();
+        for (LoadBalancer loadBalancer : List.of(new WeightedRoundRobinLoadBalancer(), new RoundRobinLoadBalancer())) {
+            Map<ServiceMetaInfo, Integer> counts = new HashMap<>();
+            for (int i = 0; i < 1500; i++) {
+                counts.merge(loadBalancer.select(requestParams, services), 1, Integer::sum);
+            }
+            Assert.assertEquals(1000, counts.get(services.get(0)), 20);
+            Assert.assertEquals(500, counts.get(services.get(1)), 20);
+        }
+
+        // 刚注册的节点只分到极少的流量，预热结束后恢复完整权重
+        services.get(1).setRegisterTime(System.currentTimeMillis());
+        LoadBalancer loadBalancer = new WeightedRoundRobinLoadBalancer();
+        int warming = 0;
+        for (int i = 0; i < 1010; i++) {
+            if (loadBalancer.select(requestParams, services) == services.get(1)) {
+                warming++;
+            }
+        }
+        Assert.assertTrue(warming <= 20);
+        services.get(1).setRegisterTime(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(60));
+        int warmed = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (loadBalancer.select(requestParams, services) == services.get(1)) {
+                warmed++;
+            }
+        }
+        Assert.assertEquals(500, warmed, 10);
+    }
+
+    private static Map<String, Object> hashParams(List<ServiceMetaInfo> services, Object argument) {
+        RpcRequest request = RpcRequest.builder()
+                .serviceName("com.ff.TestService")
+                .methodName("getUser")
+                .parameters(new Object[]{argument})
+                .build();
+        Map<String, Object> requestParams = new HashMap<>();
+        requestParams.put("methodName", request.getMethodName());
+        requestParams.put("services", services);
+        requestParams.put("request", request);
+        return requestParams;
+    }
+
+    private static void record(ServiceMetaInfo serviceMetaInfo, long rttNanos) {
+        ProviderStats stats = ProviderStats.get(serviceMetaInfo);
+        stats.begin();
+        stats.end(rttNanos, true);
+    }
+
+    private static List<ServiceMetaInfo> services(String hostPrefix, int count) {
+        List<ServiceMetaInfo> services = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName("com.ff.TestService");
+            serviceMetaInfo.setServiceHost(hostPrefix + (i + 1));
+            serviceMetaInfo.setServicePort(8080);
+            services.add(serviceMetaInfo);
+        }
+        return services;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ff;
+
+import com.ff.registry.LocalRegistry;
+import com.ff.registry.MethodInvoker;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LocalRegistryTest {
+
+    public interface GreetService {
+        String greet(String name);
+
+        String greet(String name, int times);
+
+        String fail();
+    }
+
+    public static class GreetServiceImpl implements GreetService {
+        @Override
+        public String greet(String name) {
+            return "hello " + name;
+        }
+
+        @Override
+        public String greet(String name, int times) {
+            return "hello " + name + " x" + times;
+        }
+
+        @Override
+        public String fail() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    @Test
+    public void testInvoker() throws Throwable {
+        String serviceName = GreetService.class.getName();
+        LocalRegistry.register(serviceName, GreetServiceImpl.class);
+
+        // 按参数类型区分重载方法
+        MethodInvoker single = LocalRegistry.getInvoker(serviceName, "greet", new Class[]{String.class});
+        MethodInvoker multiple = LocalRegistry.getInvoker(serviceName, "greet", new Class[]{String.class, int.class});
+        Assert.assertEquals("hello ff", single.invoke(new Object[]{"ff"}));
+        Assert.assertEquals("hello ff x2", multiple.invoke(new Object[]{"ff", 2}));
+        Assert.assertNull(LocalRegistry.getInvoker(serviceName, "greet", new Class[]{Integer.class}));
+
+        // 服务方法抛出的异常原样抛出，无参方法的参数可以为 null
+        MethodInvoker fail = LocalRegistry.getInvoker(serviceName, "fail", null);
+        Assert.assertThrows(IllegalStateException.class, () -> fail.invoke(null));
+
+        // 方法 id 字典与按 id 查找
+        Assert.assertSame(multiple, LocalRegistry.getInvoker(multiple.getMethodId()));
+        Assert.assertEquals(multiple.getMethodId(), LocalRegistry.getMethodDictionary()
+                .getMethodId(serviceName, "greet", new Class[]{String.class, int.class}));
+
+        LocalRegistry.delete(serviceName);
+        Assert.assertNull(LocalRegistry.getInvoker(multiple.getMethodId()));
+        Assert.assertNull(LocalRegistry.getInvoker(serviceName, "fail", null));
+    }
+}
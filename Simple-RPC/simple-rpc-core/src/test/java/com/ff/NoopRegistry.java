@@ -0,0 +1,51 @@
+package com.ff;
+
+import com.ff.config.RegistryConfig;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.registry.Registry;
+
+import java.util.List;
+
+/**
+ * 空的注册中心，需要初始化全局配置的测试不依赖外部的 etcd
+ * 通过测试目录下的自定义 SPI 注册，key 为 noop；默认发现不到任何节点，测试可以通过 setServices 指定
+ */
+public class NoopRegistry implements Registry {
+
+    public static final String KEY = "noop";
+
+    private static volatile List<ServiceMetaInfo> services = List.of();
+
+    public static void setServices(List<ServiceMetaInfo> services) {
+        NoopRegistry.services = services;
+    }
+
+    @Override
+    public void init(RegistryConfig registryConfig) {
+    }
+
+    @Override
+    public void registry(ServiceMetaInfo serviceMetaInfo) {
+    }
+
+    @Override
+    public List<ServiceMetaInfo> getServices(String serviceKey) {
+        return services;
+    }
+
+    @Override
+    public void unRegistry(ServiceMetaInfo serviceMetaInfo) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public void heartbeat() {
+    }
+
+    @Override
+    public void watch(String serviceNodeKey) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.ff;
+
+import com.ff.server.tcp.PendingRequestTable;
+import com.ff.server.tcp.RpcResponseFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PendingRequestTableTest {
+
+    @Test
+    public void testRegisterAndRemove() {
+        PendingRequestTable table = new PendingRequestTable(4);
+        RpcResponseFuture first = new RpcResponseFuture();
+        RpcResponseFuture second = new RpcResponseFuture();
+        long firstId = table.register(first);
+        long secondId = table.register(second);
+        Assert.assertNotEquals(firstId, secondId);
+        Assert.assertEquals(2, table.size());
+
+        // 按 requestId 取出
+        Assert.assertSame(first, table.remove(firstId));
+        // 重复或未知的 requestId 返回 null
+        Assert.assertNull(table.remove(firstId));
+        Assert.assertNull(table.remove(secondId + 4));
+        Assert.assertSame(second, table.remove(secondId));
+        Assert.assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testSkipOccupiedSlotAndFull() {
+        PendingRequestTable table = new PendingRequestTable(2);
+        RpcResponseFuture first = new RpcResponseFuture();
+        long firstId = table.register(first);
+        long secondId = table.register(new RpcResponseFuture());
+        // 表已满
+        Assert.assertEquals(-1, table.register(new RpcResponseFuture()));
+
+        // 释放第二个槽位后，新请求跳过仍被占用的第一个槽位
+        table.remove(secondId);
+        RpcResponseFuture third = new RpcResponseFuture();
+        long thirdId = table.register(third);
+        Assert.assertTrue(thirdId > secondId);
+        Assert.assertSame(first, table.remove(firstId));
+        Assert.assertSame(third, table.remove(thirdId));
+    }
+}
@@ -4,11 +4,15 @@ import cn.hutool.core.util.IdUtil;
 import com.ff.constant.RpcConstant;
 import com.ff.model.RpcRequest;
 import com.ff.protocol.*;
+import com.ff.server.tcp.TcpBufferHandlerWrapper;
 import io.vertx.core.buffer.Buffer;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class ProtocolMessageTest {
 
@@ -38,4 +42,70 @@ public class ProtocolMessageTest {
         Assert.assertNotNull(message);
     }
 
+    @Test
+    public void testEncodeAndDecodeV2() throws IOException {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION_2);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JDK.getKey());
+        header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+        header.setRequestId(42);
+        header.addFlag(ProtocolConstant.FLAG_COMPRESSED);
+        header.setDeadline(300);
+        header.setAttachments(Map.of("traceId", "链路-1", "zone", "a"));
+        RpcRequest rpcRequest = new RpcRequest();
+        rpcRequest.setServiceName("myService");
+        rpcRequest.setMethodName("myMethod");
+        rpcRequest.setParameterTypes(new Class[]{String.class});
+        rpcRequest.setParameters(new Object[]{"aaa"});
+
+        Buffer encodeBuffer = ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, rpcRequest));
+        // bodyLength 覆盖扩展区和消息体
+        Assert.assertEquals(encodeBuffer.length() - ProtocolConstant.MESSAGE_HEADER_LENGTH, encodeBuffer.getInt(13));
+        ProtocolMessage<?> message = ProtocolMessageDecoder.decode(encodeBuffer);
+        ProtocolMessage.Header decodedHeader = message.getHeader();
+        Assert.assertEquals(42, decodedHeader.getRequestId());
+        Assert.assertTrue(decodedHeader.hasFlag(ProtocolConstant.FLAG_COMPRESSED));
+        Assert.assertFalse(decodedHeader.hasFlag(ProtocolConstant.FLAG_ONEWAY));
+        Assert.assertEquals(300, decodedHeader.getDeadline());
+        Assert.assertEquals(header.getAttachments(), decodedHeader.getAttachments());
+        Assert.assertEquals("myMethod", ((RpcRequest) message.getBody()).getMethodName());
+
+        // 心跳没有消息体
+        header.setType((byte) ProtocolMessageTypeEnum.HEART_BEAT.getType());
+        message = ProtocolMessageDecoder.decode(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, null)));
+        Assert.assertNull(message.getBody());
+    }
+
+    @Test
+    public void testReassemblesSplitFrames() throws IOException {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION_1);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JDK.getKey());
+        header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+        RpcRequest large = new RpcRequest();
+        large.setMethodName("large");
+        large.setParameters(new Object[]{"a".repeat(64 * 1024)});
+        RpcRequest small = new RpcRequest();
+        small.setMethodName("small");
+        Buffer stream = Buffer.buffer()
+                .appendBuffer(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, large)))
+                .appendBuffer(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, small)))
+                .appendBuffer(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, small)));
+
+        // 大帧分多次到达，后两个帧的边界落在同一次读取的中间
+        List<String> methods = new ArrayList<>();
+        TcpBufferHandlerWrapper handler = new TcpBufferHandlerWrapper(frame -> {
+            try {
+                methods.add(((RpcRequest) ProtocolMessageDecoder.decode(frame).getBody()).getMethodName());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        for (int start = 0; start < stream.length(); start += 1000) {
+            handler.handle(stream.getBuffer(start, Math.min(start + 1000, stream.length())));
+        }
+        Assert.assertEquals(List.of("large", "small", "small"), methods);
+    }
 }
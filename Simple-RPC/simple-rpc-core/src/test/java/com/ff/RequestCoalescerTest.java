@@ -0,0 +1,194 @@
+package com.ff;
+
+import com.ff.config.CoalesceConfig;
+import com.ff.proxy.RequestCoalescer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest {
+
+    interface QueryService {
+        String get(String id);
+
+        String update(String id);
+
+        String find(Map<String, String> filter);
+
+        String load(Query query);
+
+        String getUser(User user);
+
+        String lookup(Handle handle);
+    }
+
+    record Query(String id) {
+    }
+
+    // 与 common 模块中的 User 一样由 Lombok 生成 equals/hashCode
+    @Data
+    @AllArgsConstructor
+    static class User {
+        private String name;
+    }
+
+    // 按引用比较的对象
+    static class Handle {
+        private final String id;
+
+        Handle(String id) {
+            this.id = id;
+        }
+    }
+
+    @Test
+    public void testIdenticalCallsShareInFlightRequest() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(coalesceConfig(QueryService.class.getName() + "#get"));
+        Method get = QueryService.class.getMethod("get", String.class);
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<Object> response = new CompletableFuture<>();
+
+        CompletableFuture<Object> first = requestCoalescer.call(get, new Object[]{"1"}, () -> {
+            sent.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<Object> second = requestCoalescer.call(get, new Object[]{new String("1")}, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        // 参数不同的调用单独发送
+        requestCoalescer.call(get, new Object[]{"2"}, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        Assert.assertEquals(2, sent.get());
+
+        // 一个调用方取消不影响其他调用方
+        second.cancel(false);
+        response.complete("user-1");
+        Assert.assertEquals("user-1", first.get());
+
+        // 在途调用结束后重新发送
+        requestCoalescer.call(get, new Object[]{"1"}, () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture("user-1");
+        });
+        Assert.assertEquals(3, sent.get());
+    }
+
+    @Test
+    public void testUnlistedOrLargeCallsAreNotCoalesced() throws Exception {
+        CoalesceConfig coalesceConfig = coalesceConfig(QueryService.class.getName() + "#get");
+        coalesceConfig.setMaxKeySize(8);
+        RequestCoalescer requestCoalescer = new RequestCoalescer(coalesceConfig);
+        AtomicInteger sent = new AtomicInteger();
+        Method update = QueryService.class.getMethod("update", String.class);
+        Method get = QueryService.class.getMethod("get", String.class);
+        for (int i = 0; i < 2; i++) {
+            requestCoalescer.call(update, new Object[]{"1"}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+            requestCoalescer.call(get, new Object[]{"0123456789"}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+        }
+        Assert.assertEquals(4, sent.get());
+    }
+
+    @Test
+    public void testMapsAndValueObjectsAreSized() throws Exception {
+        CoalesceConfig coalesceConfig = coalesceConfig(QueryService.class.getName());
+        coalesceConfig.setMaxKeySize(8);
+        RequestCoalescer requestCoalescer = new RequestCoalescer(coalesceConfig);
+        AtomicInteger sent = new AtomicInteger();
+        Method find = QueryService.class.getMethod("find", Map.class);
+        Method load = QueryService.class.getMethod("load", Query.class);
+        Method lookup = QueryService.class.getMethod("lookup", Handle.class);
+        for (int i = 0; i < 2; i++) {
+            // Map 按键和值累加
+            requestCoalescer.call(find, new Object[]{Map.of("id", "1")}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+            requestCoalescer.call(find, new Object[]{Map.of("id", "0123456789")}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+            // record 按字段累加，超过规模时不合并
+            requestCoalescer.call(load, new Object[]{new Query("1")}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+            requestCoalescer.call(load, new Object[]{new Query("0123456789")}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+            // 按引用比较的对象不合并
+            requestCoalescer.call(lookup, new Object[]{new Handle("1")}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+        }
+        Assert.assertEquals(8, sent.get());
+    }
+
+    @Test
+    public void testEqualDtoArgumentsAreCoalesced() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(coalesceConfig(QueryService.class.getName() + "#getUser"));
+        Method getUser = QueryService.class.getMethod("getUser", User.class);
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<Object> response = new CompletableFuture<>();
+
+        // 两个并发调用的参数是不同的对象，但值相等
+        CompletableFuture<Object> first = requestCoalescer.call(getUser, new Object[]{new User("ff")}, () -> {
+            sent.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<Object> second = requestCoalescer.call(getUser, new Object[]{new User("ff")}, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        Assert.assertEquals(1, sent.get());
+
+        response.complete("user-ff");
+        Assert.assertEquals("user-ff", first.get());
+        Assert.assertEquals("user-ff", second.get());
+    }
+
+    @Test
+    public void testErrorReleasesInFlightKey() throws Exception {
+        CoalesceConfig coalesceConfig = coalesceConfig(QueryService.class.getName() + "#get");
+        coalesceConfig.setMaxInFlightKeys(1);
+        RequestCoalescer requestCoalescer = new RequestCoalescer(coalesceConfig);
+        Method get = QueryService.class.getMethod("get", String.class);
+        CompletableFuture<Object> failed = requestCoalescer.call(get, new Object[]{"1"}, () -> {
+            throw new AssertionError("发送失败");
+        });
+        Assert.assertTrue(failed.isCompletedExceptionally());
+
+        // 合并键和在途计数已经释放，之后的调用仍然可以合并
+        AtomicInteger sent = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            requestCoalescer.call(get, new Object[]{"1"}, () -> {
+                sent.incrementAndGet();
+                return new CompletableFuture<>();
+            });
+        }
+        Assert.assertEquals(1, sent.get());
+    }
+
+    private static CoalesceConfig coalesceConfig(String rule) {
+        CoalesceConfig coalesceConfig = new CoalesceConfig();
+        coalesceConfig.setMethods(List.of(rule));
+        return coalesceConfig;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ff;
+
+import com.ff.config.HedgeConfig;
+import com.ff.fault.circuitbreaker.NoCircuitBreaker;
+import com.ff.fault.hedge.RequestHedger;
+import com.ff.loadbalancer.LoadBalancer;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class RequestHedgerTest {
+
+    private static final String SERVICE_NAME = "com.ff.common.service.UserService";
+
+    @Test
+    public void testSlowPrimaryIsHedgedAndCancelled() throws Exception {
+        RequestHedger requestHedger = new RequestHedger(hedgeConfig(SERVICE_NAME + "#getUser:10", 100));
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082));
+        CompletableFuture<RpcResponse> slow = new CompletableFuture<>();
+        RpcResponse response = new RpcResponse();
+        Map<ServiceMetaInfo, CompletableFuture<RpcResponse>> sent = new ConcurrentHashMap<>();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Map<String, Object> requestParams = new HashMap<>();
+
+        CompletableFuture<RpcResponse> result = requestHedger.call(request("getUser"), services.get(0), services,
+                requestParams, roundRobin(), new NoCircuitBreaker(), 1000, (node, timeoutMillis) -> {
+                    threads.add(Thread.currentThread().getName());
+                    CompletableFuture<RpcResponse> future = node == services.get(0)
+                            ? slow : CompletableFuture.completedFuture(response);
+                    sent.put(node, future);
+                    return future;
+                });
+
+        Assert.assertSame(response, result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, sent.size());
+        Assert.assertTrue(slow.isCancelled());
+        // 对冲请求不在定时器线程中发送
+        Assert.assertFalse(threads.contains("rpc-timer"));
+        // 对冲请求发往的节点记录下来，故障转移时排除
+        Assert.assertEquals(List.of(services.get(1)), requestParams.get("hedgedServices"));
+    }
+
+    @Test
+    public void testMethodWithoutRuleIsNotHedged() throws Exception {
+        RequestHedger requestHedger = new RequestHedger(hedgeConfig(SERVICE_NAME + "#getUser:1", 100));
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082));
+        CompletableFuture<RpcResponse> slow = new CompletableFuture<>();
+
+        CompletableFuture<RpcResponse> result = requestHedger.call(request("updateUser"), services.get(0), services,
+                new HashMap<>(), roundRobin(), new NoCircuitBreaker(), 1000, (node, timeoutMillis) -> {
+                    Assert.assertSame(services.get(0), node);
+                    return slow;
+                });
+
+        Thread.sleep(50);
+        Assert.assertFalse(result.isDone());
+        slow.complete(new RpcResponse());
+        Assert.assertNotNull(result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExhaustedBudgetSkipsHedge() throws Exception {
+        RequestHedger requestHedger = new RequestHedger(hedgeConfig(SERVICE_NAME + ":1", 0));
+        List<ServiceMetaInfo> services = List.of(service(8081), service(8082));
+        CompletableFuture<RpcResponse> slow = new CompletableFuture<>();
+        Map<ServiceMetaInfo, CompletableFuture<RpcResponse>> sent = new HashMap<>();
+
+        CompletableFuture<RpcResponse> result = requestHedger.call(request("getUser"), services.get(0), services,
+                new HashMap<>(), roundRobin(), new NoCircuitBreaker(), 1000, (node, timeoutMillis) -> {
+                    sent.put(node, slow);
+                    return slow;
+                });
+
+        Thread.sleep(50);
+        Assert.assertEquals(1, sent.size());
+        slow.completeExceptionally(new RuntimeException("调用失败"));
+        Assert.assertTrue(result.isCompletedExceptionally());
+    }
+
+    private static HedgeConfig hedgeConfig(String rule, int budgetPercent) {
+        HedgeConfig hedgeConfig = new HedgeConfig();
+        hedgeConfig.setMethods(List.of(rule));
+        hedgeConfig.setBudgetPercent(budgetPercent);
+        hedgeConfig.setBudgetMinHedgesPerSecond(0);
+        return hedgeConfig;
+    }
+
+    // 按调用顺序轮流返回节点
+    private static LoadBalancer roundRobin() {
+        int[] index = {0};
+        return (requestParams, services) -> services.get(index[0]++ % services.size());
+    }
+
+    private static RpcRequest request(String methodName) {
+        return RpcRequest.builder().serviceName(SERVICE_NAME).methodName(methodName).build();
+    }
+
+    private static ServiceMetaInfo service(int port) {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName(SERVICE_NAME);
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(port);
+        return serviceMetaInfo;
+    }
+}
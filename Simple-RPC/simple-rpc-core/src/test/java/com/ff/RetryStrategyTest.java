@@ -0,0 +1,73 @@
+package com.ff;
+
+import com.ff.config.RetryConfig;
+import com.ff.fault.retry.ExponentialBackoffRetryStrategy;
+import com.ff.fault.retry.RetryBudget;
+import com.ff.fault.retry.RetryStrategy;
+import com.ff.model.RpcResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryStrategyTest {
+
+    @Test
+    public void testRetryBudgetFollowsSuccesses() {
+        RetryBudget retryBudget = new RetryBudget(10, 0, 10);
+        Assert.assertFalse(retryBudget.tryAcquireRetry());
+        for (int i = 0; i < 100; i++) {
+            retryBudget.recordSuccess();
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(retryBudget.tryAcquireRetry());
+        }
+        Assert.assertFalse(retryBudget.tryAcquireRetry());
+    }
+
+    @Test
+    public void testExponentialBackoffRetriesOnTimer() throws Exception {
+        RetryConfig retryConfig = new RetryConfig();
+        retryConfig.setMaxAttempts(3);
+        retryConfig.setBaseDelayMillis(5L);
+        RetryStrategy retryStrategy = new ExponentialBackoffRetryStrategy(retryConfig);
+        AtomicInteger attempts = new AtomicInteger();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        RpcResponse response = new RpcResponse();
+        CompletableFuture<RpcResponse> result = retryStrategy.retryAsync(() -> {
+            threads.add(Thread.currentThread().getName());
+            return attempts.incrementAndGet() < 3
+                    ? CompletableFuture.failedFuture(new RuntimeException("连接失败"))
+                    : CompletableFuture.completedFuture(response);
+        });
+        Assert.assertSame(response, result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+        // 重试由定时器调度，但不在定时器线程中执行
+        Assert.assertFalse(threads.contains("rpc-timer"));
+    }
+
+    @Test
+    public void testExhaustedBudgetFailsWithoutRetry() throws Exception {
+        RetryConfig retryConfig = new RetryConfig();
+        retryConfig.setBudgetPercent(0);
+        retryConfig.setBudgetMinRetriesPerSecond(0);
+        RetryStrategy retryStrategy = new ExponentialBackoffRetryStrategy(retryConfig);
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<RpcResponse> result = retryStrategy.retryAsync(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new RuntimeException("连接失败"));
+        });
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertEquals("连接失败", e.getCause().getMessage());
+        }
+        Assert.assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,378 @@
+package com.ff;
+
+import com.ff.config.ConcurrencyLimitConfig;
+import com.ff.config.ConnectionPoolConfig;
+import com.ff.config.RpcConfig;
+import com.ff.config.ServerExecutionConfig;
+import com.ff.exception.RpcException;
+import com.ff.model.RpcRequest;
+import com.ff.model.RpcResponse;
+import com.ff.model.ServiceMetaInfo;
+import com.ff.protocol.ProtocolConstant;
+import com.ff.protocol.ProtocolMessage;
+import com.ff.protocol.ProtocolMessageSerializerEnum;
+import com.ff.protocol.ProtocolMessageStatusEnum;
+import com.ff.protocol.ProtocolMessageTypeEnum;
+import com.ff.proxy.AsyncServiceStub;
+import com.ff.proxy.ServiceProxyFactory;
+import com.ff.registry.LocalRegistry;
+import com.ff.server.ServerExecutionModel;
+import com.ff.server.ServerRequestExecutor;
+import com.ff.server.limit.ConcurrencyLimiter;
+import com.ff.server.tcp.RpcResponseFuture;
+import com.ff.server.tcp.TcpConnection;
+import com.ff.server.tcp.TcpConnectionPool;
+import com.ff.server.tcp.TcpServerHandler;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 经过 TcpServerHandler 的调用
+ * 并发限制：超过限制的请求以 LIMIT_EXCEEDED 拒绝且不执行服务方法，同步、异步和抛出异常的调用结束后都归还许可；
+ * v2 帧：服务方法可以读取请求携带的附加信息，单向请求执行服务方法但不响应；
+ * 无法解析的请求和排队超过截止时间的请求不执行服务方法，立即以对应的状态响应
+ */
+public class TcpServerHandlerTest {
+
+    private static final int PORT = 18095;
+
+    private static final String SERVICE_NAME = LimitedService.class.getName();
+
+    private final LimitedServiceImpl service = new LimitedServiceImpl();
+
+    private Vertx vertx;
+
+    private NetServer server;
+
+    private ServerRequestExecutor requestExecutor;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private TcpConnectionPool pool;
+
+    private TcpConnection connection;
+
+    @Before
+    public void setup() throws Exception {
+        // 服务端读取全局的指标配置，使用空的注册中心避免连接 etcd
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.getRegistryConfig().setRegistry(NoopRegistry.KEY);
+        RpcApplication.init(rpcConfig);
+        LocalRegistry.register(SERVICE_NAME, service);
+
+        // 每个方法只允许一个在途请求
+        ConcurrencyLimitConfig limitConfig = new ConcurrencyLimitConfig();
+        limitConfig.setEnabled(true);
+        limitConfig.setInitialLimit(1);
+        limitConfig.setMinLimit(1);
+        limitConfig.setMaxLimit(1);
+        concurrencyLimiter = new ConcurrencyLimiter(limitConfig);
+        ServerExecutionConfig executionConfig = new ServerExecutionConfig();
+        executionConfig.setMode(ServerExecutionModel.WORKER);
+        executionConfig.setWorkerThreads(4);
+        requestExecutor = new ServerRequestExecutor(executionConfig);
+
+        vertx = Vertx.vertx();
+        server = vertx.createNetServer().connectHandler(new TcpServerHandler(requestExecutor, concurrencyLimiter));
+        server.listen(PORT).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxConnectionsPerEndpoint(1);
+        poolConfig.setMethodDictionary(false);
+        pool = new TcpConnectionPool(vertx, poolConfig);
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(PORT);
+        connection = pool.acquire(serviceMetaInfo).get(5, TimeUnit.SECONDS);
+        // 等待握手协商出 v2 帧
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connection.getProtocolVersion() != ProtocolConstant.PROTOCOL_VERSION_2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(ProtocolConstant.PROTOCOL_VERSION_2, connection.getProtocolVersion());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.release.countDown();
+        service.pending.complete("done");
+        pool.close();
+        server.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        requestExecutor.shutdown();
+        LocalRegistry.delete(SERVICE_NAME);
+    }
+
+    @Test
+    public void testRejectsOverLimitWithoutInvoking() throws Exception {
+        RpcResponseFuture first = send("block");
+        Assert.assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+
+        // 第一个请求占用许可期间，第二个请求被拒绝，服务方法不执行
+        assertLimitExceeded(send("block"));
+        Assert.assertEquals(1, service.blockInvocations.get());
+        Assert.assertEquals(1, concurrencyLimiter.get(SERVICE_NAME, "block").getRejected());
+
+        service.release.countDown();
+        Assert.assertEquals("done", first.get(5, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals(0, concurrencyLimiter.get(SERVICE_NAME, "block").getInFlight());
+    }
+
+    @Test
+    public void testReleasesAfterAsyncResult() throws Exception {
+        RpcResponseFuture first = send("async");
+        // 服务方法已经返回 CompletableFuture，结果完成之前仍然占用许可
+        Assert.assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+        assertLimitExceeded(send("async"));
+        Assert.assertEquals(1, concurrencyLimiter.get(SERVICE_NAME, "async").getInFlight());
+
+        service.pending.complete("done");
+        Assert.assertEquals("done", first.get(5, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals(0, concurrencyLimiter.get(SERVICE_NAME, "async").getInFlight());
+    }
+
+    @Test
+    public void testReleasesAfterException() throws Exception {
+        // 服务方法抛出异常后归还许可，后续请求照常执行
+        for (int i = 0; i < 3; i++) {
+            RpcResponse response = send("fail").get(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(response.getException());
+            Assert.assertEquals(0, concurrencyLimiter.get(SERVICE_NAME, "fail").getInFlight());
+        }
+        Assert.assertEquals(0, concurrencyLimiter.get(SERVICE_NAME, "fail").getRejected());
+    }
+
+    @Test
+    public void testServiceReadsAttachments() throws Exception {
+        ProtocolMessage.Header header = newHeader();
+        header.setAttachments(Map.of("traceId", "trace-1"));
+        RpcResponse response = send("traceId", header).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("trace-1", response.getResult());
+
+        // 附加信息只对携带它的请求可见
+        Assert.assertNull(send("traceId", newHeader()).get(5, TimeUnit.SECONDS).getResult());
+    }
+
+    @Test
+    public void testOnewayRequestIsNotAnswered() throws Exception {
+        ProtocolMessage.Header header = newHeader();
+        header.addFlag(ProtocolConstant.FLAG_ONEWAY);
+        // 发送后立即完成，不占用在途请求槽位
+        Assert.assertNull(send("report", header).get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, connection.getPendingCount());
+        Assert.assertTrue(service.reported.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUndecodableRequestIsAnswered() throws Exception {
+        // 请求体反序列化失败时按请求头响应 BAD_REQUEST，而不是让客户端等到超时
+        assertStatus(ProtocolMessageStatusEnum.BAD_REQUEST, send("traceId", newHeader(), new Unreadable()));
+        Assert.assertEquals(0, connection.getPendingCount());
+    }
+
+    @Test
+    public void testExpiredRequestIsAnswered() throws Exception {
+        // 占满所有工作线程，请求在队列中超过截止时间
+        CountDownLatch busy = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            requestExecutor.execute(() -> {
+                try {
+                    busy.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        ProtocolMessage.Header header = newHeader();
+        header.setDeadline(50);
+        RpcResponseFuture future = send("report", header);
+        Thread.sleep(100);
+        busy.countDown();
+
+        assertStatus(ProtocolMessageStatusEnum.DEADLINE_EXCEEDED, future);
+        Assert.assertEquals(0, connection.getPendingCount());
+        Assert.assertEquals(1, service.reported.getCount());
+    }
+
+    @Test
+    public void testAsyncStubReturnsFutureResult() throws Exception {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName(SERVICE_NAME);
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(PORT);
+        NoopRegistry.setServices(List.of(serviceMetaInfo));
+        try {
+            AsyncServiceStub<LimitedService> stub = ServiceProxyFactory.getAsyncProxy(LimitedService.class);
+            // 返回 CompletableFuture 的方法通过 callAsync 调用，结果不多包一层
+            CompletableFuture<String> result = stub.callAsync(limitedService -> limitedService.async("id"));
+            service.pending.complete("done");
+            Assert.assertEquals("done", result.get(5, TimeUnit.SECONDS));
+
+            // 通过 call 调用时直接失败，不会在取结果时抛出 ClassCastException
+            try {
+                stub.call(limitedService -> limitedService.async("id")).get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        } finally {
+            NoopRegistry.setServices(List.of());
+        }
+    }
+
+    @Test
+    public void testIdleEndpointIsEvicted() throws Exception {
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setIdleTimeout(100L);
+        poolConfig.setMethodDictionary(false);
+        TcpConnectionPool idlePool = new TcpConnectionPool(vertx, poolConfig);
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(PORT);
+        try {
+            TcpConnection idle = idlePool.acquire(serviceMetaInfo).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(1, idlePool.getEndpointCount());
+
+            // 连接空闲回收后，所有槽位都已清空的服务节点随之移除
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (idlePool.getEndpointCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(0, idlePool.getEndpointCount());
+            Assert.assertFalse(idle.isActive());
+
+            // 再次获取时重新建立连接
+            Assert.assertTrue(idlePool.acquire(serviceMetaInfo).get(5, TimeUnit.SECONDS).isActive());
+            Assert.assertEquals(1, idlePool.getEndpointCount());
+        } finally {
+            idlePool.close();
+        }
+    }
+
+    // 客户端把 LIMIT_EXCEEDED 响应转换为带状态的 RpcException
+    private static void assertLimitExceeded(RpcResponseFuture future) throws Exception {
+        assertStatus(ProtocolMessageStatusEnum.LIMIT_EXCEEDED, future);
+    }
+
+    private static void assertStatus(ProtocolMessageStatusEnum status, RpcResponseFuture future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RpcException);
+            Assert.assertEquals(status, ((RpcException) e.getCause()).getStatus());
+        }
+    }
+
+    private RpcResponseFuture send(String methodName) {
+        return send(methodName, newHeader());
+    }
+
+    private RpcResponseFuture send(String methodName, ProtocolMessage.Header header) {
+        return send(methodName, header, "id");
+    }
+
+    private RpcResponseFuture send(String methodName, ProtocolMessage.Header header, Object parameter) {
+        RpcRequest request = RpcRequest.builder()
+                .serviceName(SERVICE_NAME)
+                .methodName(methodName)
+                .parameterTypes(new Class[]{String.class})
+                .parameters(new Object[]{parameter})
+                .build();
+        RpcResponseFuture future = new RpcResponseFuture();
+        connection.send(new ProtocolMessage<>(header, request), future);
+        return future;
+    }
+
+    private static ProtocolMessage.Header newHeader() {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JDK.getKey());
+        header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getType());
+        return header;
+    }
+
+    // 可以序列化、但服务端反序列化时失败的参数
+    public static class Unreadable implements Serializable {
+
+        private void readObject(ObjectInputStream in) throws IOException {
+            throw new InvalidObjectException("无法反序列化");
+        }
+    }
+
+    public interface LimitedService {
+
+        String block(String id);
+
+        CompletableFuture<String> async(String id);
+
+        String fail(String id);
+
+        String traceId(String id);
+
+        void report(String id);
+    }
+
+    public static class LimitedServiceImpl implements LimitedService {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final CompletableFuture<String> pending = new CompletableFuture<>();
+
+        private final AtomicInteger blockInvocations = new AtomicInteger();
+
+        private final CountDownLatch reported = new CountDownLatch(1);
+
+        @Override
+        public String block(String id) {
+            blockInvocations.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        }
+
+        @Override
+        public CompletableFuture<String> async(String id) {
+            entered.countDown();
+            return pending;
+        }
+
+        @Override
+        public String fail(String id) {
+            throw new IllegalStateException("服务方法执行失败");
+        }
+
+        @Override
+        public String traceId(String id) {
+            return RpcContext.getReceivedAttachment("traceId");
+        }
+
+        @Override
+        public void report(String id) {
+            reported.countDown();
+        }
+    }
+}
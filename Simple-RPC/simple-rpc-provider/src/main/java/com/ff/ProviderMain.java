@@ -33,6 +33,8 @@ public class ProviderMain {
         serviceMetaInfo.setServiceName(serviceName);
         serviceMetaInfo.setServiceHost(rpcConfig.getServerHost());
         serviceMetaInfo.setServicePort(rpcConfig.getServerPort());
+        serviceMetaInfo.setWeight(rpcConfig.getWeight());
+        serviceMetaInfo.setWarmup(rpcConfig.getWarmup());
         try {
             registry.registry(serviceMetaInfo);
         } catch (Exception e) {